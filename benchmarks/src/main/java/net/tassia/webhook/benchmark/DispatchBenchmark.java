@@ -0,0 +1,75 @@
+package net.tassia.webhook.benchmark;
+
+import net.tassia.webhook.DiscordMessage;
+import net.tassia.webhook.DiscordResponse;
+import net.tassia.webhook.DiscordWebhook;
+import net.tassia.webhook.DiscordWebhookBuilder;
+import net.tassia.webhook.DiscordWebhookClient;
+import net.tassia.webhook.stub.DiscordStubServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete sends against a {@link DiscordStubServer} that accepts everything and never rate limits.
+ * Run with <code>-prof gc</code> to see allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "MAX" })
+    public Payloads payload;
+
+    private DiscordStubServer server;
+    private DiscordWebhookClient client;
+    private DiscordWebhook webhook;
+    private DiscordWebhookBuilder builder;
+    private DiscordMessage message;
+
+    @Setup
+    public void setup() throws IOException {
+        server = DiscordStubServer.builder()
+            .withRateLimit(Integer.MAX_VALUE, Duration.ofSeconds(1))
+            .withValidation(false)
+            .withRecordRequests(false)
+            .start();
+
+        client = DiscordWebhookClient.builder()
+            .withBaseURL(server.getBaseURL())
+            .withMaxRequestsPerHost(64)
+            .build();
+        webhook = client.webhook(1L, "token");
+        builder = payload.create(webhook);
+        message = builder.freeze();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void executeBuilder() throws IOException {
+        builder.execute();
+    }
+
+    @Benchmark
+    public void executeMessage() throws IOException {
+        webhook.execute(message);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public DiscordResponse executeAsyncConcurrent() {
+        return webhook.executeAsync(message).join();
+    }
+
+}
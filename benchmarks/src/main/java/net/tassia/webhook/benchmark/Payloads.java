@@ -0,0 +1,81 @@
+package net.tassia.webhook.benchmark;
+
+import net.tassia.webhook.DiscordEmbed;
+import net.tassia.webhook.DiscordWebhook;
+import net.tassia.webhook.DiscordWebhookBuilder;
+
+import java.awt.Color;
+
+/**
+ * Payload shapes shared by all benchmarks.
+ */
+public enum Payloads {
+
+    /**
+     * Content only.
+     */
+    SMALL {
+        @Override
+        public DiscordWebhookBuilder create(DiscordWebhook webhook) {
+            return webhook.builder().withContent("Deployment of billing-service finished successfully.");
+        }
+    },
+
+    /**
+     * Content and one embed with author, footer, timestamp, color and 5 fields.
+     */
+    MEDIUM {
+        @Override
+        public DiscordWebhookBuilder create(DiscordWebhook webhook) {
+            DiscordWebhookBuilder builder = webhook.builder()
+                .withContent("Alert")
+                .withUsername("Alertmanager");
+            embed(builder.embed(), 5);
+            return builder;
+        }
+    },
+
+    /**
+     * The maximum amount of embeds (10), each with the maximum amount of fields (25).
+     */
+    MAX {
+        @Override
+        public DiscordWebhookBuilder create(DiscordWebhook webhook) {
+            DiscordWebhookBuilder builder = webhook.builder().withContent("Alert storm");
+            for (int i = 0; i < DiscordWebhook.LIMIT_EMBEDS; i++) {
+                embed(builder.embed(), DiscordWebhook.LIMIT_EMBED_FIELDS);
+            }
+            return builder;
+        }
+    };
+
+    /**
+     * Creates the payload.
+     * @param webhook the webhook
+     * @return the builder
+     */
+    public abstract DiscordWebhookBuilder create(DiscordWebhook webhook);
+
+    private static final String[] NAMES = new String[DiscordWebhook.LIMIT_EMBED_FIELDS];
+    private static final String[] VALUES = new String[DiscordWebhook.LIMIT_EMBED_FIELDS];
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            NAMES[i] = "f" + i;
+            VALUES[i] = "value " + i;
+        }
+    }
+
+    private static void embed(DiscordEmbed embed, int fields) {
+        embed.setTitle("High latency")
+            .setDescription("p99 > 500ms")
+            .setAuthor("prod")
+            .setFooter("ops", "https://example.com/icon.png")
+            .setColor(Color.RED)
+            .setTimestamp(1600000000000L);
+        for (int i = 0; i < fields; i++) {
+            embed.addField(NAMES[i], VALUES[i], true);
+        }
+    }
+
+}
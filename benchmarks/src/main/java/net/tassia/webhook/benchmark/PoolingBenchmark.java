@@ -0,0 +1,66 @@
+package net.tassia.webhook.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.tassia.webhook.DiscordMessage;
+import net.tassia.webhook.DiscordWebhook;
+import net.tassia.webhook.DiscordWebhookClient;
+import net.tassia.webhook.InMemoryWebhookTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and sending messages with and without builder pooling.
+ * Run with <code>-prof gc</code> to see allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PoolingBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "MAX" })
+    public Payloads payload;
+
+    @Param({ "false", "true" })
+    public boolean pooling;
+
+    private InMemoryWebhookTransport transport;
+    private DiscordWebhookClient client;
+    private DiscordWebhook webhook;
+
+    @Setup
+    public void setup() {
+        transport = new InMemoryWebhookTransport();
+        client = DiscordWebhookClient.builder()
+            .withSerializationMode(DiscordWebhookClient.SerializationMode.BUILT_IN)
+            .withBuilderPooling(pooling)
+            .withTransport(transport)
+            .build();
+        webhook = client.webhook(1L, "token");
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        transport.clear();
+    }
+
+    @Benchmark
+    public DiscordMessage buildAndFreeze() throws JsonProcessingException {
+        return payload.create(webhook).freeze();
+    }
+
+    @Benchmark
+    public void buildAndExecute() throws IOException {
+        payload.create(webhook).execute();
+    }
+
+}
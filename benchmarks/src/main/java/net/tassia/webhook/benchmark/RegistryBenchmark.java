@@ -0,0 +1,66 @@
+package net.tassia.webhook.benchmark;
+
+import net.tassia.webhook.DiscordWebhook;
+import net.tassia.webhook.DiscordWebhookClient;
+import net.tassia.webhook.DiscordWebhookRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving webhook URLs of many tenants, by parsing them every time or through a registry.
+ * Run with <code>-prof gc</code> to see allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int tenants;
+
+    private DiscordWebhookClient client;
+    private DiscordWebhookRegistry registry;
+    private String[] urls;
+
+    @Setup
+    public void setup() {
+        client = DiscordWebhookClient.builder().build();
+        registry = new DiscordWebhookRegistry(client, tenants);
+        urls = new String[tenants];
+        for (int i = 0; i < tenants; i++) {
+            urls[i] = "https://discord.com/api/webhooks/" + (800000000000000000L + i) + "/token-" + i;
+            registry.get(urls[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    private String url() {
+        return urls[ThreadLocalRandom.current().nextInt(urls.length)];
+    }
+
+    @Benchmark
+    public DiscordWebhook parse() {
+        return client.webhook(url());
+    }
+
+    @Benchmark
+    public DiscordWebhook registry() {
+        return registry.get(url());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DiscordWebhook registryConcurrent() {
+        return registry.get(url());
+    }
+
+}
@@ -0,0 +1,86 @@
+package net.tassia.webhook.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import net.tassia.webhook.DiscordEmbed;
+import net.tassia.webhook.DiscordMessage;
+import net.tassia.webhook.DiscordWebhook;
+import net.tassia.webhook.DiscordWebhookBuilder;
+import net.tassia.webhook.DiscordWebhookClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building, validating and serializing payloads of different sizes.
+ * Run with <code>-prof gc</code> to see allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "MAX" })
+    public Payloads payload;
+
+    @Param({ "JACKSON", "BUILT_IN" })
+    public DiscordWebhookClient.SerializationMode serialization;
+
+    private DiscordWebhookClient client;
+    private DiscordWebhook webhook;
+    private DiscordWebhookBuilder builder;
+    private DiscordEmbed embed;
+
+    @Setup
+    public void setup() {
+        client = DiscordWebhookClient.builder().withSerializationMode(serialization).build();
+        webhook = client.webhook(1L, "token");
+        builder = payload.create(webhook);
+        embed = new DiscordEmbed().setColor(Color.ORANGE).setTimestamp(1600000000000L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public DiscordWebhookBuilder build() {
+        return payload.create(webhook);
+    }
+
+    @Benchmark
+    public String getJSON() throws JsonProcessingException {
+        return builder.getJSON();
+    }
+
+    @Benchmark
+    public DiscordMessage freeze() throws JsonProcessingException {
+        return builder.freeze();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DiscordMessage freezeConcurrent() throws JsonProcessingException {
+        return builder.freeze();
+    }
+
+    @Benchmark
+    public DiscordMessage buildAndFreeze() throws JsonProcessingException {
+        return payload.create(webhook).freeze();
+    }
+
+    @Benchmark
+    public Integer getColorAsInt() {
+        return embed.getColorAsInt();
+    }
+
+    @Benchmark
+    public String getTimestampAsString() {
+        return embed.getTimestampAsString();
+    }
+
+}
@@ -0,0 +1,199 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Represents a file attached to a webhook message.
+ * Attachments are streamed into the request when it is sent, they are never fully loaded onto the heap.
+ */
+public abstract class DiscordAttachment {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String name;
+    private final long size;
+
+    private DiscordAttachment(String name, long size) {
+        if (name == null) throw new NullPointerException("Name cannot be null.");
+        this.name = name;
+        this.size = size;
+    }
+
+    /**
+     * Creates an attachment that is read from the given file.
+     * @param name the file name shown in Discord
+     * @param file the file
+     * @return the attachment
+     * @throws IOException if the size of the file cannot be determined
+     */
+    public static DiscordAttachment of(String name, Path file) throws IOException {
+        return new FileAttachment(name, file, Files.size(file));
+    }
+
+    /**
+     * Creates an attachment from the remaining bytes of the given buffer.
+     * The buffer's position is not changed, but its content must not change until the message has been sent.
+     * @param name the file name shown in Discord
+     * @param data the data
+     * @return the attachment
+     */
+    public static DiscordAttachment of(String name, ByteBuffer data) {
+        return new BufferAttachment(name, data.duplicate());
+    }
+
+    /**
+     * Creates an attachment that is read from the given stream. The stream can only be read once,
+     * so a message with such an attachment cannot be retried.
+     * @param name the file name shown in Discord
+     * @param in the stream
+     * @param size the amount of bytes to read from the stream
+     * @return the attachment
+     */
+    public static DiscordAttachment of(String name, InputStream in, long size) {
+        if (in == null) throw new NullPointerException();
+        if (size < 0) throw new IllegalArgumentException("size cannot be negative");
+        return new StreamAttachment(name, in, size);
+    }
+
+    /**
+     * Returns the file name.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the size in bytes.
+     * @return the size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether this attachment can only be written once.
+     * @return is one-shot
+     */
+    public boolean isOneShot() {
+        return false;
+    }
+
+    /**
+     * Writes exactly {@link #getSize()} bytes to the given stream.
+     * If the stream is also a {@link WritableByteChannel}, data is transferred channel to channel.
+     * @param out the stream
+     * @throws IOException if an I/O error occurs
+     */
+    abstract void writeTo(OutputStream out) throws IOException;
+
+
+
+    private static class FileAttachment extends DiscordAttachment {
+
+        private final Path file;
+
+        private FileAttachment(String name, Path file, long size) {
+            super(name, size);
+            this.file = file;
+        }
+
+        @Override
+        void writeTo(OutputStream out) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (out instanceof WritableByteChannel) {
+                    WritableByteChannel target = (WritableByteChannel) out;
+                    long position = 0;
+                    while (position < getSize()) {
+                        long transferred = channel.transferTo(position, getSize() - position, target);
+                        if (transferred <= 0) throw new IOException("File has been truncated: " + file);
+                        position += transferred;
+                    }
+                } else {
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    long remaining = getSize();
+                    while (remaining > 0) {
+                        buffer.clear().limit((int) Math.min(BUFFER_SIZE, remaining));
+                        int read = channel.read(buffer);
+                        if (read < 0) throw new IOException("File has been truncated: " + file);
+                        out.write(buffer.array(), 0, read);
+                        remaining -= read;
+                    }
+                }
+            }
+        }
+
+    }
+
+
+
+    private static class BufferAttachment extends DiscordAttachment {
+
+        private final ByteBuffer data;
+
+        private BufferAttachment(String name, ByteBuffer data) {
+            super(name, data.remaining());
+            this.data = data;
+        }
+
+        @Override
+        void writeTo(OutputStream out) throws IOException {
+            ByteBuffer buffer = data.duplicate();
+            if (out instanceof WritableByteChannel) {
+                WritableByteChannel target = (WritableByteChannel) out;
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            } else if (buffer.hasArray()) {
+                out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                byte[] chunk = new byte[Math.min(BUFFER_SIZE, buffer.remaining())];
+                while (buffer.hasRemaining()) {
+                    int length = Math.min(chunk.length, buffer.remaining());
+                    buffer.get(chunk, 0, length);
+                    out.write(chunk, 0, length);
+                }
+            }
+        }
+
+    }
+
+
+
+    private static class StreamAttachment extends DiscordAttachment {
+
+        private final InputStream in;
+
+        private StreamAttachment(String name, InputStream in, long size) {
+            super(name, size);
+            this.in = in;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+
+        @Override
+        void writeTo(OutputStream out) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = getSize();
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) throw new IOException("Stream ended before " + getSize() + " bytes were read");
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package net.tassia.webhook;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The outcome of {@link DiscordWebhookClient#broadcast(DiscordMessage, java.util.Collection) broadcasting}
+ * a message to several webhooks. Every target either has a response or a failure.
+ */
+public final class DiscordBroadcastResult {
+
+    private final Map<DiscordWebhook, DiscordResponse> responses;
+    private final Map<DiscordWebhook, Throwable> failures;
+    private final long nanos;
+
+    DiscordBroadcastResult(Map<DiscordWebhook, DiscordResponse> responses, Map<DiscordWebhook, Throwable> failures, long nanos) {
+        this.responses = Collections.unmodifiableMap(responses);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the responses of all webhooks the message was delivered to, in the order of the targets.
+     * @return the responses
+     */
+    public Map<DiscordWebhook, DiscordResponse> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Returns the failures of all webhooks the message could not be delivered to, in the order of the targets.
+     * Discord rejecting the message is reported as a {@link DiscordWebhookException}.
+     * @return the failures
+     */
+    public Map<DiscordWebhook, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the amount of webhooks the message was delivered to.
+     * @return the amount of successful deliveries
+     */
+    public int getSuccessCount() {
+        return responses.size();
+    }
+
+    /**
+     * Returns the amount of webhooks the message could not be delivered to.
+     * @return the amount of failed deliveries
+     */
+    public int getFailureCount() {
+        return failures.size();
+    }
+
+    /**
+     * Returns whether the message was delivered to every webhook.
+     * @return is successful
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Returns how long the broadcast took, in nanoseconds.
+     * @return the duration
+     */
+    public long getDuration() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "DiscordBroadcastResult{successes=" + responses.size() + ", failures=" + failures.size()
+            + ", duration=" + (nanos / 1000000L) + "ms}";
+    }
+
+}
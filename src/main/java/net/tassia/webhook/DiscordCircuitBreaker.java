@@ -0,0 +1,133 @@
+package net.tassia.webhook;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to a webhook while it is down, instead of blocking threads on doomed requests.
+ * <p>
+ * After a configured amount of consecutive failures (network errors, retryable status codes or a
+ * <code>404</code> that did not come from Discord) the circuit opens, and requests fail immediately with a {@link DiscordCircuitOpenException}. Once the open duration has
+ * passed, a single request is let through: if it succeeds the circuit closes, otherwise it opens again. If Discord
+ * reports that the webhook does not exist (<code>404 Unknown Webhook</code>), the circuit stays open until it is
+ * {@link #reset() reset}.
+ * </p>
+ */
+public class DiscordCircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private volatile State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt = 0L;
+    private boolean probing = false;
+
+    DiscordCircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Returns the current state.
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Closes the circuit, e.g. after a deleted webhook has been recreated with the same ID and token.
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+    }
+
+    /**
+     * Checks whether a request may be sent.
+     * @throws DiscordCircuitOpenException if the circuit is open
+     */
+    void acquire() throws DiscordCircuitOpenException {
+        if (state == State.CLOSED) return;
+        synchronized (this) {
+            switch (state) {
+                case DELETED:
+                    throw new DiscordCircuitOpenException("Webhook has been deleted", true);
+                case OPEN:
+                    long remaining = openNanos - (System.nanoTime() - openedAt);
+                    if (remaining > 0) {
+                        throw new DiscordCircuitOpenException("Webhook is unavailable, retrying in "
+                            + TimeUnit.NANOSECONDS.toMillis(remaining) + "ms", false);
+                    }
+                    state = State.HALF_OPEN;
+                    probing = true;
+                    return;
+                case HALF_OPEN:
+                    if (probing) throw new DiscordCircuitOpenException("Webhook is unavailable, waiting for probe", false);
+                    probing = true;
+                    return;
+                default:
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Gives up a slot obtained with {@link #acquire()} without sending a request.
+     */
+    synchronized void release() {
+        probing = false;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.DELETED) return;
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+    }
+
+    synchronized void onFailure() {
+        if (state == State.DELETED || failureThreshold <= 0) return;
+        failures++;
+        probing = false;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    synchronized void onDeleted() {
+        state = State.DELETED;
+        probing = false;
+    }
+
+
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+
+        /**
+         * Requests are sent.
+         */
+        CLOSED,
+
+        /**
+         * Requests fail immediately, until the open duration has passed.
+         */
+        OPEN,
+
+        /**
+         * A single request is sent to check whether the webhook is available again.
+         */
+        HALF_OPEN,
+
+        /**
+         * The webhook has been deleted, requests fail immediately until the circuit is reset.
+         */
+        DELETED
+
+    }
+
+}
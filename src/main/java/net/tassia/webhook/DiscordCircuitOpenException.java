@@ -0,0 +1,33 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request if the {@link DiscordCircuitBreaker circuit breaker} of a webhook is open,
+ * because the webhook has been failing repeatedly or has been deleted.
+ */
+public class DiscordCircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean permanent;
+
+    /**
+     * Creates a new exception.
+     * @param message the message
+     * @param permanent whether the webhook has been deleted
+     */
+    public DiscordCircuitOpenException(String message, boolean permanent) {
+        super(message);
+        this.permanent = permanent;
+    }
+
+    /**
+     * Returns whether the circuit is open permanently, because the webhook has been deleted.
+     * @return is permanent
+     */
+    public boolean isPermanent() {
+        return permanent;
+    }
+
+}
@@ -0,0 +1,209 @@
+package net.tassia.webhook;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges messages submitted to the same webhook into as few executions as possible.
+ * <p>
+ * Messages are only merged if they share the same username override, avatar override and TTS flag, and if
+ * they have no files attached. Their contents are joined with a line break and their embeds are concatenated, as
+ * long as the result stays within {@link DiscordConstants#LIMIT_CONTENT}, {@link DiscordConstants#LIMIT_EMBEDS}
+ * and {@link DiscordConstants#LIMIT_TOTAL}. A pending batch is sent once it can take no more embeds, or once the
+ * linger time has passed since its first message was submitted.
+ * </p>
+ * <p>
+ * Messages of the same batch are delivered in submission order. Batches with different overrides are sent
+ * independently of each other. Submitted builders (and their embeds) must not be modified afterwards.
+ * </p>
+ */
+public class DiscordCoalescingQueue implements DiscordConstants, Closeable {
+
+    private final DiscordWebhook webhook;
+    private final long linger;
+    private final Map<List<Object>, Batch> batches = new HashMap<>();
+    private boolean closed = false;
+
+    /**
+     * Creates a new coalescing queue.
+     * @param webhook the webhook to send the merged messages to
+     * @param linger how long a message may wait for other messages to be merged with
+     */
+    public DiscordCoalescingQueue(DiscordWebhook webhook, Duration linger) {
+        if (webhook == null || linger == null) throw new NullPointerException();
+        if (linger.isNegative()) throw new IllegalArgumentException("linger cannot be negative");
+        this.webhook = webhook;
+        this.linger = linger.toNanos();
+    }
+
+    /**
+     * Submits a message. It will be sent together with other messages submitted within the linger time.
+     * Messages with files and messages that exceed the limits of Discord are not merged, but sent on their own.
+     * @param message the message
+     * @return a future that completes with the response of the execution the message was part of
+     * @throws IllegalStateException if this queue has been closed
+     */
+    public CompletableFuture<DiscordResponse> submit(DiscordWebhookBuilder message) throws IllegalStateException {
+        if (message == null) throw new NullPointerException();
+        if (!message.isValid() || !message.getFiles().isEmpty()) {
+            // Cannot be merged with anything, send it on its own (split, if allowed)
+            synchronized (this) {
+                if (closed) throw new IllegalStateException("Queue has been closed.");
+            }
+            return message.executeAsync();
+        }
+        List<Object> key = Arrays.asList(message.getUsername(), message.getAvatarURL(), message.isTTS());
+        CompletableFuture<DiscordResponse> future = new CompletableFuture<>();
+        Batch full = null;
+        Batch sendNow = null;
+
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Queue has been closed.");
+
+            Batch batch = batches.get(key);
+            if (batch != null && !batch.fits(message)) {
+                batches.remove(key);
+                batch.cancelTimer();
+                full = batch;
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(key, message);
+                batches.put(key, batch);
+                if (linger > 0) {
+                    Batch created = batch;
+                    batch.timer = webhook.getClient().getScheduler().schedule(() -> flush(created), linger, TimeUnit.NANOSECONDS);
+                }
+            }
+            batch.add(message, future);
+
+            if (linger == 0 || batch.embeds >= LIMIT_EMBEDS) {
+                batches.remove(key);
+                batch.cancelTimer();
+                sendNow = batch;
+            }
+        }
+
+        if (full != null) full.send();
+        if (sendNow != null) sendNow.send();
+        return future;
+    }
+
+    /**
+     * Sends all pending batches immediately.
+     */
+    public void flush() {
+        List<Batch> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(batches.values());
+            batches.clear();
+        }
+        for (Batch batch : pending) {
+            batch.cancelTimer();
+            batch.send();
+        }
+    }
+
+    /**
+     * Returns the amount of messages that are waiting to be sent.
+     * @return the amount of pending messages
+     */
+    public synchronized int getPendingCount() {
+        int count = 0;
+        for (Batch batch : batches.values()) {
+            count += batch.futures.size();
+        }
+        return count;
+    }
+
+    /**
+     * Sends all pending batches and stops accepting new messages.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (batches.get(batch.key) != batch) return;
+            batches.remove(batch.key);
+        }
+        batch.send();
+    }
+
+
+
+    private class Batch {
+
+        private final List<Object> key;
+        private final DiscordWebhookBuilder merged;
+        private final List<CompletableFuture<DiscordResponse>> futures = new ArrayList<>();
+        private StringBuilder content = null;
+        private int embeds = 0;
+        private int total = 0;
+        private ScheduledFuture<?> timer = null;
+
+        private Batch(List<Object> key, DiscordWebhookBuilder first) {
+            this.key = key;
+            // Not taken from the pool, the batch outlives the calling thread's next message
+            this.merged = new DiscordWebhookBuilder(webhook)
+                .withUsername(first.getUsername())
+                .withAvatarURL(first.getAvatarURL())
+                .withTTS(first.isTTS());
+        }
+
+        private boolean fits(DiscordWebhookBuilder message) {
+            if (embeds + message.getEmbeds().size() > LIMIT_EMBEDS) return false;
+            if (message.getContent() != null && content != null) {
+                if (content.length() + 1 + message.getContent().length() > LIMIT_CONTENT) return false;
+            }
+            return total + message.length() <= LIMIT_TOTAL;
+        }
+
+        private void add(DiscordWebhookBuilder message, CompletableFuture<DiscordResponse> future) {
+            if (message.getContent() != null) {
+                if (content == null) {
+                    content = new StringBuilder(message.getContent());
+                } else {
+                    content.append('\n').append(message.getContent());
+                }
+            }
+            // Added at once, so the merged message is only counted once
+            merged.withEmbeds(message.getEmbeds().toArray(new DiscordEmbed[0]));
+            embeds += message.getEmbeds().size();
+            total += message.length();
+            futures.add(future);
+        }
+
+        private void cancelTimer() {
+            if (timer != null) timer.cancel(false);
+        }
+
+        private void send() {
+            if (content != null) merged.withContent(content.toString());
+            merged.executeAsync().whenComplete((response, ex) -> {
+                for (CompletableFuture<DiscordResponse> future : futures) {
+                    if (ex != null) {
+                        future.completeExceptionally(ex);
+                    } else {
+                        future.complete(response);
+                    }
+                }
+            });
+        }
+
+    }
+
+}
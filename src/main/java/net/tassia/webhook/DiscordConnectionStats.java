@@ -0,0 +1,172 @@
+package net.tassia.webhook;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the connections a {@link DiscordWebhookClient} opens and reuses with the
+ * {@link DiscordWebhookClient.TransportType#OKHTTP OkHttp transport}, to verify that warm-up, keep-alive and
+ * HTTP/2 multiplexing work. Ideally, a long-running client performs a handful of handshakes and reuses
+ * connections for almost every request.
+ */
+public final class DiscordConnectionStats {
+
+    private final ConnectionPool pool;
+    private final LongAdder dnsLookups = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionFailures = new LongAdder();
+    private final LongAdder handshakes = new LongAdder();
+    private final LongAdder http2Connections = new LongAdder();
+    private final LongAdder connectionsAcquired = new LongAdder();
+    private final LongAdder connectionsReused = new LongAdder();
+
+    DiscordConnectionStats(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the amount of DNS lookups.
+     * @return the amount of DNS lookups
+     */
+    public long getDnsLookups() {
+        return dnsLookups.sum();
+    }
+
+    /**
+     * Returns the amount of connections that have been established.
+     * @return the amount of new connections
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    /**
+     * Returns the amount of connection attempts that failed.
+     * @return the amount of failed connection attempts
+     */
+    public long getConnectionFailures() {
+        return connectionFailures.sum();
+    }
+
+    /**
+     * Returns the amount of completed TLS handshakes.
+     * @return the amount of handshakes
+     */
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    /**
+     * Returns the amount of established connections that negotiated HTTP/2.
+     * @return the amount of HTTP/2 connections
+     */
+    public long getHttp2Connections() {
+        return http2Connections.sum();
+    }
+
+    /**
+     * Returns the amount of times a request obtained a connection, new or reused.
+     * @return the amount of acquired connections
+     */
+    public long getConnectionsAcquired() {
+        return connectionsAcquired.sum();
+    }
+
+    /**
+     * Returns the amount of times a request reused an existing connection, without connecting or handshaking.
+     * @return the amount of reused connections
+     */
+    public long getConnectionsReused() {
+        return connectionsReused.sum();
+    }
+
+    /**
+     * Returns the amount of connections currently held by the pool.
+     * @return the amount of open connections
+     */
+    public int getOpenConnections() {
+        return pool.connectionCount();
+    }
+
+    /**
+     * Returns the amount of connections currently held by the pool that are not in use.
+     * @return the amount of idle connections
+     */
+    public int getIdleConnections() {
+        return pool.idleConnectionCount();
+    }
+
+    /**
+     * Returns a factory for the event listener that collects these stats.
+     * @return the factory
+     */
+    EventListener.Factory factory() {
+        return call -> new Listener();
+    }
+
+    @Override
+    public String toString() {
+        return "DiscordConnectionStats{"
+            + "open=" + getOpenConnections()
+            + ", idle=" + getIdleConnections()
+            + ", opened=" + getConnectionsOpened()
+            + ", http2=" + getHttp2Connections()
+            + ", handshakes=" + getHandshakes()
+            + ", dnsLookups=" + getDnsLookups()
+            + ", failures=" + getConnectionFailures()
+            + ", acquired=" + getConnectionsAcquired()
+            + ", reused=" + getConnectionsReused()
+            + "}";
+    }
+
+
+
+    private class Listener extends EventListener {
+
+        private boolean connected = false;
+
+        @Override
+        public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> inetAddressList) {
+            dnsLookups.increment();
+        }
+
+        @Override
+        public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+            handshakes.increment();
+        }
+
+        @Override
+        public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol) {
+            connected = true;
+            connectionsOpened.increment();
+            if (protocol == Protocol.HTTP_2 || protocol == Protocol.H2_PRIOR_KNOWLEDGE) http2Connections.increment();
+        }
+
+        @Override
+        public void connectFailed(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol, @NotNull IOException ioe) {
+            connectionFailures.increment();
+        }
+
+        @Override
+        public void connectionAcquired(@NotNull Call call, @NotNull Connection connection) {
+            connectionsAcquired.increment();
+            if (!connected) connectionsReused.increment();
+            connected = false;
+        }
+
+    }
+
+}
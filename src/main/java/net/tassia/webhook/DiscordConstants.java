@@ -63,4 +63,14 @@ public interface DiscordConstants {
      */
     int LIMIT_TOTAL = 6000;
 
+    /**
+     * Defines the maximum amount of files a webhook can have.
+     */
+    int LIMIT_FILES = 10;
+
+    /**
+     * Defines the maximum combined size of all files of a webhook in bytes.
+     */
+    long LIMIT_FILE_SIZE = 10L * 1024L * 1024L;
+
 }
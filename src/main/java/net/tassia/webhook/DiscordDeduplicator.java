@@ -0,0 +1,309 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Suppresses duplicate messages sent to the same webhook, e.g. during alert storms.
+ * <p>
+ * The first occurrence of a message is sent immediately and opens a window. Identical messages submitted while
+ * the window is open are not sent, they only increase a counter. Once the window closes, a single summary
+ * ("repeated N more times") is sent if there were any duplicates. Messages are identical if their serialized
+ * payloads are equal, or, if submitted with a key, if their keys are equal.
+ * </p>
+ * <p>
+ * At most <code>maxKeys</code> windows are tracked at once. If there are more, the oldest window is closed early.
+ * </p>
+ */
+public class DiscordDeduplicator implements Closeable {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    private final DiscordWebhook webhook;
+    private final long window;
+    private final int maxKeys;
+    private final BiFunction<DiscordMessage, Integer, DiscordMessage> summary;
+    private final LinkedHashMap<Object, Window> windows = new LinkedHashMap<>();
+    private final AtomicLong suppressed = new AtomicLong();
+    private boolean closed = false;
+
+    /**
+     * Creates a new deduplicator that sends a plain text summary.
+     * @param webhook the webhook to send the messages to
+     * @param window how long duplicates of a message are suppressed after it has been sent
+     * @param maxKeys the maximum amount of windows tracked at once
+     * @throws IllegalArgumentException if <code>window</code> is not positive, or <code>maxKeys</code> is less than 1
+     */
+    public DiscordDeduplicator(DiscordWebhook webhook, Duration window, int maxKeys) throws IllegalArgumentException {
+        this(webhook, window, maxKeys, null);
+    }
+
+    /**
+     * Creates a new deduplicator.
+     * @param webhook the webhook to send the messages to
+     * @param window how long duplicates of a message are suppressed after it has been sent
+     * @param maxKeys the maximum amount of windows tracked at once
+     * @param summary creates the summary from the original message and the amount of suppressed duplicates,
+     *                or <code>null</code> to send a plain text summary
+     * @throws IllegalArgumentException if <code>window</code> is not positive, or <code>maxKeys</code> is less than 1
+     */
+    public DiscordDeduplicator(DiscordWebhook webhook, Duration window, int maxKeys, BiFunction<DiscordMessage, Integer, DiscordMessage> summary) throws IllegalArgumentException {
+        if (webhook == null || window == null) throw new NullPointerException();
+        if (window.isNegative() || window.isZero()) throw new IllegalArgumentException("window must be positive");
+        if (maxKeys < 1) throw new IllegalArgumentException("maxKeys must be at least 1");
+        this.webhook = webhook;
+        this.window = window.toNanos();
+        this.maxKeys = maxKeys;
+        this.summary = summary != null ? summary : defaultSummary(window);
+    }
+
+    private static BiFunction<DiscordMessage, Integer, DiscordMessage> defaultSummary(Duration window) {
+        String period = window.getSeconds() > 0 ? window.getSeconds() + " seconds" : window.toMillis() + " milliseconds";
+        String suffix = " in the last " + period + "._\"}";
+        return (message, count) -> DiscordMessage.of("{\"content\":\"_Repeated " + count + (count == 1 ? " more time" : " more times") + suffix);
+    }
+
+    /**
+     * {@link DiscordWebhookBuilder#freeze() Freezes} the message and sends it, unless it is a duplicate.
+     * @param message the message
+     * @return a future that completes with the response of the message, or of the original message if it is a duplicate
+     * @throws IllegalStateException if this deduplicator has been closed
+     */
+    public CompletableFuture<DiscordResponse> submit(DiscordWebhookBuilder message) throws IllegalStateException {
+        DiscordMessage frozen;
+        try {
+            frozen = message.freeze();
+        } catch (JsonProcessingException | IllegalStateException ex) {
+            // An invalid message, which must not be mistaken for a closed deduplicator
+            return CompletableFuture.failedFuture(ex);
+        }
+        return submit(frozen);
+    }
+
+    /**
+     * Sends the message, unless it is a duplicate. Messages are compared by their serialized payload.
+     * @param message the message
+     * @return a future that completes with the response of the message, or of the original message if it is a duplicate
+     * @throws IllegalStateException if this deduplicator has been closed
+     */
+    public CompletableFuture<DiscordResponse> submit(DiscordMessage message) throws IllegalStateException {
+        if (message == null) throw new NullPointerException();
+        return submit(new PayloadKey(message.array()), message, null);
+    }
+
+    /**
+     * Sends the message, unless a message with the same key has been sent within the window.
+     * Duplicates are not serialized at all.
+     * @param key the key, e.g. the name of the failing dependency
+     * @param message the message
+     * @return a future that completes with the response of the message, or of the original message if it is a duplicate
+     * @throws IllegalStateException if this deduplicator has been closed
+     */
+    public CompletableFuture<DiscordResponse> submit(String key, DiscordWebhookBuilder message) throws IllegalStateException {
+        if (key == null || message == null) throw new NullPointerException();
+        return submit(key, null, message);
+    }
+
+    /**
+     * Sends the message, unless a message with the same key has been sent within the window.
+     * @param key the key, e.g. the name of the failing dependency
+     * @param message the message
+     * @return a future that completes with the response of the message, or of the original message if it is a duplicate
+     * @throws IllegalStateException if this deduplicator has been closed
+     */
+    public CompletableFuture<DiscordResponse> submit(String key, DiscordMessage message) throws IllegalStateException {
+        if (key == null || message == null) throw new NullPointerException();
+        return submit(key, message, null);
+    }
+
+    private CompletableFuture<DiscordResponse> submit(Object key, DiscordMessage message, DiscordWebhookBuilder builder) throws IllegalStateException {
+        Window created;
+        Window evicted = null;
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("Deduplicator has been closed.");
+
+            Window existing = windows.get(key);
+            if (existing != null) {
+                existing.repeated++;
+                suppressed.incrementAndGet();
+                return existing.future.copy();
+            }
+
+            if (message == null) {
+                try {
+                    message = builder.freeze();
+                } catch (JsonProcessingException | IllegalStateException ex) {
+                    return CompletableFuture.failedFuture(ex);
+                }
+            }
+            created = new Window(key, message);
+            windows.put(key, created);
+            if (windows.size() > maxKeys) {
+                Iterator<Window> eldest = windows.values().iterator();
+                evicted = eldest.next();
+                eldest.remove();
+            }
+            created.timer = webhook.getClient().getScheduler().schedule(() -> expire(created), window, TimeUnit.NANOSECONDS);
+        }
+
+        if (evicted != null) close(evicted);
+        webhook.executeAsync(created.message).whenComplete((response, ex) -> {
+            if (ex != null) {
+                created.future.completeExceptionally(ex);
+            } else {
+                created.future.complete(response);
+            }
+        });
+        return created.future.copy();
+    }
+
+    private void expire(Window window) {
+        synchronized (this) {
+            if (windows.get(window.key) != window) return;
+            windows.remove(window.key);
+        }
+        close(window);
+    }
+
+    private void close(Window window) {
+        window.timer.cancel(false);
+        int repeated;
+        synchronized (this) {
+            repeated = window.repeated;
+        }
+        if (repeated > 0) {
+            webhook.executeAsync(summary.apply(window.message, repeated));
+        }
+    }
+
+    /**
+     * Closes all open windows immediately, sending their summaries.
+     */
+    public void flush() {
+        List<Window> open;
+        synchronized (this) {
+            open = new ArrayList<>(windows.values());
+            windows.clear();
+        }
+        for (Window window : open) {
+            close(window);
+        }
+    }
+
+    /**
+     * Returns the amount of open windows.
+     * @return the amount of tracked messages
+     */
+    public synchronized int getWindowCount() {
+        return windows.size();
+    }
+
+    /**
+     * Returns the total amount of suppressed duplicates.
+     * @return the amount of suppressed messages
+     */
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    /**
+     * Sends the summaries of all open windows and stops accepting new messages.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+    }
+
+    /**
+     * Hashes the given bytes with the mixing functions of xxHash64, reading eight bytes at a time.
+     * @param data the data
+     * @return the hash
+     */
+    static long hash(byte[] data) {
+        long h = PRIME_5 + data.length;
+        int i = 0;
+        for (; i + 8 <= data.length; i += 8) {
+            long k = (long) LONGS.get(data, i) * PRIME_2;
+            h ^= Long.rotateLeft(k, 31) * PRIME_1;
+            h = Long.rotateLeft(h, 27) * PRIME_1 + PRIME_4;
+        }
+        for (; i < data.length; i++) {
+            h ^= (data[i] & 0xFFL) * PRIME_5;
+            h = Long.rotateLeft(h, 11) * PRIME_1;
+        }
+        h ^= h >>> 33;
+        h *= PRIME_2;
+        h ^= h >>> 29;
+        h *= PRIME_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+
+
+    private static class PayloadKey {
+
+        private final byte[] payload;
+        private final long hash;
+
+        private PayloadKey(byte[] payload) {
+            this.payload = payload;
+            this.hash = hash(payload);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PayloadKey)) return false;
+            PayloadKey other = (PayloadKey) obj;
+            // Equal hashes are checked first, so payloads are only compared if they are almost certainly equal
+            return hash == other.hash && Arrays.equals(payload, other.payload);
+        }
+
+    }
+
+
+
+    private static class Window {
+
+        private final Object key;
+        private final DiscordMessage message;
+        private final CompletableFuture<DiscordResponse> future = new CompletableFuture<>();
+        private ScheduledFuture<?> timer = null;
+        private int repeated = 0;
+
+        private Window(Object key, DiscordMessage message) {
+            this.key = key;
+            this.message = message;
+        }
+
+    }
+
+}
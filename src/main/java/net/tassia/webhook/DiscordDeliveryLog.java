@@ -0,0 +1,417 @@
+package net.tassia.webhook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, memory-mapped log of serialized payloads that survives restarts of the JVM.
+ * <p>
+ * Payloads are appended to fixed-size segment files. Each record carries a sequence number, a CRC32 checksum
+ * and a state byte that is flipped in place once the payload has been delivered ({@link #ack(long)}).
+ * Segments whose records have all been acknowledged are deleted. Whenever a new segment is started, the remaining
+ * unacknowledged records of sparsely used segments are moved into it (see {@link #compact()}), so the log does not
+ * grow while a few old records stay unacknowledged. On startup, the segments are scanned and all unacknowledged
+ * records can be replayed with {@link #replay(Consumer)}. A torn record at the end of a segment (e.g. after a crash
+ * during an append) fails its checksum and ends the scan of that segment.
+ * </p>
+ * <p>
+ * Appends only write to the memory mapping. Writes survive a crash of the JVM, but to survive a crash of the
+ * operating system, call {@link #force()}.
+ * </p>
+ */
+public class DiscordDeliveryLog implements Closeable {
+
+    /**
+     * Defines the default size of a segment file in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final String SUFFIX = ".log";
+    private static final byte STATE_EMPTY = 0;
+    private static final byte STATE_PENDING = 1;
+    private static final byte STATE_ACKED = 2;
+
+    // state (1) + length (4) + sequence (8) + crc (4)
+    private static final int HEADER_SIZE = 17;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, Location> pending = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private Segment active = null;
+    private long nextSequence = 0L;
+    private long nextSegment = 0L;
+    private boolean closed = false;
+    private boolean compacting = false;
+
+    private DiscordDeliveryLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the log in the given directory with the {@link #DEFAULT_SEGMENT_SIZE}.
+     * @param directory the directory, created if it does not exist
+     * @return the log
+     * @throws IOException if an I/O error occurs
+     */
+    public static DiscordDeliveryLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the log in the given directory.
+     * @param directory the directory, created if it does not exist
+     * @param segmentSize the size of new segment files in bytes
+     * @return the log
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if <code>segmentSize</code> is too small
+     */
+    public static DiscordDeliveryLog open(Path directory, int segmentSize) throws IOException, IllegalArgumentException {
+        if (segmentSize < HEADER_SIZE + 1) {
+            throw new IllegalArgumentException("Segment size is too small (min. " + (HEADER_SIZE + 1) + ")");
+        }
+        Files.createDirectories(directory);
+        DiscordDeliveryLog log = new DiscordDeliveryLog(directory, segmentSize);
+        log.recover();
+        return log;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id;
+            try {
+                id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            Segment segment = Segment.map(file, id, (int) Files.size(file));
+            segments.put(id, segment);
+            nextSegment = Math.max(nextSegment, id + 1);
+            scan(segment);
+        }
+
+        // Records copied by compact() may exist twice if we crashed before the old segment was deleted
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment.pendingCount == 0) {
+                deleteSegment(segment);
+            }
+        }
+        if (!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+            if (last.position < last.buffer.capacity()) {
+                active = last;
+            }
+        }
+    }
+
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            byte state = buffer.get(position);
+            if (state != STATE_PENDING && state != STATE_ACKED) break;
+            int length = buffer.getInt(position + 1);
+            long sequence = buffer.getLong(position + 5);
+            int checksum = buffer.getInt(position + 13);
+            if (length < 0 || length > buffer.capacity() - position - HEADER_SIZE) break;
+            if (checksum != checksum(buffer, position + HEADER_SIZE, length, sequence)) break;
+
+            if (state == STATE_PENDING) {
+                Location previous = pending.put(sequence, new Location(segment, position));
+                if (previous != null) {
+                    // Keep the copy made by compact(), drop the original
+                    if (previous.segment.id > segment.id) {
+                        pending.put(sequence, previous);
+                    } else {
+                        previous.segment.pendingCount--;
+                        segment.pendingCount++;
+                    }
+                } else {
+                    segment.pendingCount++;
+                }
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            position += HEADER_SIZE + length;
+        }
+        segment.position = position;
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length, long sequence) {
+        crc.reset();
+        for (int i = 56; i >= 0; i -= 8) {
+            crc.update((int) (sequence >>> i));
+        }
+        crc.update(slice(buffer, offset, length));
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        return slice;
+    }
+
+    private static byte[] read(ByteBuffer buffer, int position) {
+        byte[] payload = new byte[buffer.getInt(position + 1)];
+        slice(buffer, position + HEADER_SIZE, payload.length).get(payload);
+        return payload;
+    }
+
+    /**
+     * Appends a payload.
+     * @param payload the payload
+     * @return the sequence number of the record
+     * @throws IOException if a new segment could not be created
+     * @throws IllegalArgumentException if the payload does not fit into a segment
+     */
+    public synchronized long append(byte[] payload) throws IOException, IllegalArgumentException {
+        long sequence = nextSequence;
+        write(payload, sequence);
+        nextSequence++;
+        return sequence;
+    }
+
+    private void write(byte[] payload, long sequence) throws IOException {
+        if (closed) throw new IOException("Log has been closed.");
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Payload is too large (max. " + (segmentSize - HEADER_SIZE) + " bytes)");
+        }
+        while (active == null || active.position + size > active.buffer.capacity()) {
+            // Compaction may have filled part of the new segment
+            roll();
+        }
+
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.position;
+        slice(buffer, position + HEADER_SIZE, payload.length).put(payload);
+        buffer.putInt(position + 1, payload.length);
+        buffer.putLong(position + 5, sequence);
+        buffer.putInt(position + 13, checksum(buffer, position + HEADER_SIZE, payload.length, sequence));
+        // The state is written last, so a record is never visible before it is complete
+        buffer.put(position, STATE_PENDING);
+
+        active.position += size;
+        active.pendingCount++;
+        pending.put(sequence, new Location(active, position));
+    }
+
+    private void roll() throws IOException {
+        Segment previous = active;
+        long id = nextSegment++;
+        Path file = directory.resolve(String.format("%020d%s", id, SUFFIX));
+        active = Segment.map(file, id, segmentSize);
+        segments.put(id, active);
+        if (previous != null && previous.pendingCount == 0) {
+            deleteSegment(previous);
+        }
+        compact();
+    }
+
+    /**
+     * Marks a record as delivered. Acknowledging an unknown or already acknowledged record has no effect.
+     * @param sequence the sequence number of the record
+     * @throws IOException if a segment could not be deleted
+     */
+    public synchronized void ack(long sequence) throws IOException {
+        Location location = pending.remove(sequence);
+        if (location == null) return;
+        location.segment.buffer.put(location.position, STATE_ACKED);
+        location.segment.pendingCount--;
+        if (location.segment.pendingCount == 0 && location.segment != active) {
+            deleteSegment(location.segment);
+        }
+    }
+
+    /**
+     * Passes all unacknowledged records, in sequence order, to the given consumer.
+     * @param consumer the consumer
+     */
+    public synchronized void replay(Consumer<Record> consumer) {
+        for (Map.Entry<Long, Location> entry : new TreeMap<>(pending).entrySet()) {
+            Location location = entry.getValue();
+            consumer.accept(new Record(entry.getKey(), read(location.segment.buffer, location.position)));
+        }
+    }
+
+    /**
+     * Returns the amount of unacknowledged records.
+     * @return the amount of pending records
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the amount of segment files.
+     * @return the amount of segments
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Copies the unacknowledged records of sparsely used segments into the active segment and deletes them.
+     * A segment is compacted if less than half of its space is used by unacknowledged records.
+     * Sequence numbers do not change. This happens automatically whenever a new segment is started.
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void compact() throws IOException {
+        // Copying records may start a new segment, which must not compact again
+        if (compacting) return;
+        compacting = true;
+        try {
+            compactSparse();
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private void compactSparse() throws IOException {
+        List<Segment> sparse = new ArrayList<>();
+        Map<Segment, Integer> usage = new HashMap<>();
+        for (Location location : pending.values()) {
+            int length = location.segment.buffer.getInt(location.position + 1);
+            usage.merge(location.segment, HEADER_SIZE + length, Integer::sum);
+        }
+        for (Segment segment : segments.values()) {
+            if (segment != active && usage.getOrDefault(segment, 0) * 2 < segment.position) {
+                sparse.add(segment);
+            }
+        }
+
+        for (Segment segment : sparse) {
+            for (Map.Entry<Long, Location> entry : new TreeMap<>(pending).entrySet()) {
+                Location location = entry.getValue();
+                if (location.segment != segment) continue;
+                byte[] payload = read(segment.buffer, location.position);
+                segment.pendingCount--;
+                write(payload, entry.getKey());
+            }
+            if (active != null) active.buffer.force();
+            deleteSegment(segment);
+        }
+    }
+
+    /**
+     * Writes all changes to the storage device.
+     */
+    public synchronized void force() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Forces all changes to the storage device and closes the log.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        force();
+        closed = true;
+    }
+
+    private void deleteSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        if (segment == active) active = null;
+        Files.deleteIfExists(segment.file);
+    }
+
+
+
+    /**
+     * Represents an unacknowledged record.
+     */
+    public static class Record {
+
+        private final long sequence;
+        private final byte[] payload;
+
+        private Record(long sequence, byte[] payload) {
+            this.sequence = sequence;
+            this.payload = payload;
+        }
+
+        /**
+         * Returns the sequence number, which is passed to {@link DiscordDeliveryLog#ack(long)}.
+         * @return the sequence number
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns the payload.
+         * @return the payload
+         */
+        public byte[] getPayload() {
+            return payload;
+        }
+
+    }
+
+
+
+    private static class Segment {
+
+        private final Path file;
+        private final long id;
+        private final MappedByteBuffer buffer;
+        private int position = 0;
+        private int pendingCount = 0;
+
+        private Segment(Path file, long id, MappedByteBuffer buffer) {
+            this.file = file;
+            this.id = id;
+            this.buffer = buffer;
+        }
+
+        private static Segment map(Path file, long id, int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                return new Segment(file, id, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size())));
+            }
+        }
+
+    }
+
+
+
+    private static class Location {
+
+        private final Segment segment;
+        private final int position;
+
+        private Location(Segment segment, int position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+    }
+
+}
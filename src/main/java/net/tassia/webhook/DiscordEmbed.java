@@ -4,23 +4,23 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.awt.Color;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
-import java.util.TimeZone;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * This class represents an embed.
  */
 public class DiscordEmbed implements DiscordConstants {
 
-    private static final DateFormat ISO_DATE_FORMAT;
-    static {
-        ISO_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-        ISO_DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
-    }
+    // DateTimeFormatter is immutable, so unlike SimpleDateFormat it can be shared between threads
+    private static final DateTimeFormatter ISO_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
 
     private String title = null;
     private String description = null;
@@ -31,7 +31,19 @@ public class DiscordEmbed implements DiscordConstants {
     private Image image = null;
     private Thumbnail thumbnail = null;
     private Author author = null;
-    private Collection<Field> fields = new ArrayList<>();
+    private final FieldList fields = new FieldList();
+    private boolean splitting = false;
+
+    // Characters counting towards LIMIT_TOTAL, of the title, description and all parts owned by this embed
+    private int length = 0;
+    // Amount of parts that are shared with other embeds, and therefore counted on demand
+    private int sharedParts = 0;
+
+    // Parts created by the convenience setters, reused once they are no longer attached to any embed
+    private Footer ownFooter = null;
+    private Author ownAuthor = null;
+    private final ArrayList<Field> ownFields = new ArrayList<>();
+    private int ownFieldsUsed = 0;
 
     @JsonProperty("title")
     public String getTitle() {
@@ -42,6 +54,7 @@ public class DiscordEmbed implements DiscordConstants {
         if (title.length() > LIMIT_EMBED_TITLE) {
             throw new IllegalArgumentException("Title is too long (max. " + LIMIT_EMBED_TITLE + ")");
         }
+        resize(title.length() - length(this.title));
         this.title = title;
         return this;
     }
@@ -52,9 +65,10 @@ public class DiscordEmbed implements DiscordConstants {
     }
 
     public DiscordEmbed setDescription(String description) throws IllegalArgumentException {
-        if (description.length() > LIMIT_EMBED_DESCRIPTION) {
+        if (!splitting && description.length() > LIMIT_EMBED_DESCRIPTION) {
             throw new IllegalArgumentException("Description is too long (max. " + LIMIT_EMBED_DESCRIPTION + ")");
         }
+        resize(description.length() - length(this.description));
         this.description = description;
         return this;
     }
@@ -72,7 +86,7 @@ public class DiscordEmbed implements DiscordConstants {
     @JsonProperty("timestamp")
     public String getTimestampAsString() {
         if (timestamp >= 0) {
-            return ISO_DATE_FORMAT.format(new Date(timestamp));
+            return ISO_DATE_FORMAT.format(Instant.ofEpochMilli(timestamp));
         } else {
             return null;
         }
@@ -115,16 +129,24 @@ public class DiscordEmbed implements DiscordConstants {
     }
 
     public DiscordEmbed setFooter(Footer footer) {
-        this.footer = footer;
+        this.footer = replace(this.footer, footer);
         return this;
     }
 
     public DiscordEmbed setFooter(String text) {
-        return setFooter(new Footer(text));
+        return setFooter(text, null);
     }
 
     public DiscordEmbed setFooter(String text, String iconUrl) {
-        return setFooter(new Footer(text, iconUrl));
+        Footer footer = ownFooter;
+        if (footer == null || !isDetached(footer)) {
+            footer = new Footer(text, iconUrl);
+        } else {
+            footer.setText(text);
+            footer.setIconUrl(iconUrl);
+        }
+        ownFooter = footer;
+        return setFooter(footer);
     }
 
     @JsonProperty("image")
@@ -161,16 +183,25 @@ public class DiscordEmbed implements DiscordConstants {
     }
 
     public DiscordEmbed setAuthor(Author author) {
-        this.author = author;
+        this.author = replace(this.author, author);
         return this;
     }
 
     public DiscordEmbed setAuthor(String name) {
-        return setAuthor(new Author(name));
+        return setAuthor(name, null, null);
     }
 
     public DiscordEmbed setAuthor(String name, String url, String iconUrl) {
-        return setAuthor(new Author(name, url, iconUrl));
+        Author author = ownAuthor;
+        if (author == null || !isDetached(author)) {
+            author = new Author(name, url, iconUrl);
+        } else {
+            author.setName(name);
+            author.setUrl(url);
+            author.setIconUrl(iconUrl);
+        }
+        ownAuthor = author;
+        return setAuthor(author);
     }
 
     @JsonProperty("fields")
@@ -179,32 +210,328 @@ public class DiscordEmbed implements DiscordConstants {
     }
 
     public DiscordEmbed setFields(Collection<Field> fields) {
-        if (fields.size() > DiscordWebhook.LIMIT_EMBED_FIELDS) {
+        if (!splitting && fields.size() > DiscordWebhook.LIMIT_EMBED_FIELDS) {
             throw new IllegalArgumentException("Embed has too many fields. (max. " + LIMIT_EMBED_FIELDS + ")");
         }
-        this.fields = fields;
+        int delta = 0;
+        for (Field field : fields) delta += field.length;
+        for (Field field : this.fields) delta -= field.length;
+        check(delta);
+        this.fields.clear();
+        this.fields.addAll(fields);
         return this;
     }
 
     public DiscordEmbed addField(Field field) {
-        if (fields.size() >= DiscordWebhook.LIMIT_EMBED_FIELDS) {
-            throw new IllegalArgumentException("Embed has too many fields. (max. " + LIMIT_EMBED_FIELDS + ")");
-        }
         fields.add(field);
         return this;
     }
 
     public DiscordEmbed addField(String title, String value) {
-        return addField(new Field(title, value));
+        return addField(title, value, false);
     }
 
     public DiscordEmbed addField(String title, String value, boolean inline) {
-        return addField(new Field(title, value, inline));
+        Field field = ownFieldsUsed < ownFields.size() ? ownFields.get(ownFieldsUsed) : null;
+        if (field == null || !isDetached(field)) {
+            field = new Field(title, value, inline);
+        } else {
+            field.setName(title);
+            field.setValue(value);
+            field.setInline(inline);
+        }
+        addField(field);
+        if (ownFieldsUsed < ownFields.size()) {
+            ownFields.set(ownFieldsUsed, field);
+        } else {
+            ownFields.add(field);
+        }
+        ownFieldsUsed++;
+        return this;
+    }
+
+    /**
+     * Clears this embed, so it can be filled again instead of creating a new one. Footers, authors and fields
+     * created by the convenience setters, such as {@link #addField(String, String, boolean)}, are kept and reused
+     * by the next calls, unless they have been removed, replaced or added to another embed in the meantime.
+     * References to the previous parts of this embed must therefore not be used after calling this method.
+     * @return <code>this</code>
+     */
+    public DiscordEmbed reset() {
+        title = null;
+        description = null;
+        url = null;
+        timestamp = -1L;
+        color = null;
+        if (footer != null) detach(footer);
+        footer = null;
+        if (author != null) detach(author);
+        author = null;
+        image = null;
+        thumbnail = null;
+        fields.reset();
+        splitting = false;
+        length = 0;
+        sharedParts = 0;
+        ownFieldsUsed = 0;
+        return this;
+    }
+
+    /**
+     * Sets whether this embed may exceed the limits of Discord. If enabled, the description may be longer than
+     * {@link #LIMIT_EMBED_DESCRIPTION}, there may be more than {@link #LIMIT_EMBED_FIELDS} fields and the embed may
+     * be longer than {@link #LIMIT_TOTAL}. The embed is then split into as few embeds as possible when the message
+     * is sent: the first one carries the title, author and thumbnail, the last one the footer, image and timestamp.
+     * @param splitting allow splitting
+     * @return <code>this</code>
+     */
+    public DiscordEmbed setSplitting(boolean splitting) {
+        this.splitting = splitting;
+        return this;
+    }
+
+    /**
+     * Returns whether this embed may exceed the limits of Discord and is split when sent.
+     * @return is splitting
+     */
+    @JsonIgnore
+    public boolean isSplitting() {
+        return splitting;
+    }
+
+    /**
+     * Returns the amount of characters that count towards {@link #LIMIT_TOTAL}.
+     * These are the title, description, field names and values, footer text and author name.
+     * The count is updated on every change, so this is O(1) unless parts are shared with other embeds.
+     * @return the length
+     */
+    int length() {
+        if (sharedParts == 0) return length;
+        int shared = 0;
+        if (footer != null && footer.shared) shared += footer.length;
+        if (author != null && author.shared) shared += author.length;
+        for (Field field : fields) {
+            if (field.shared) shared += field.length;
+        }
+        return length + shared;
+    }
+
+    /**
+     * Returns whether this embed is within all limits of Discord.
+     * @return is valid
+     */
+    boolean isValid() {
+        return (description == null || description.length() <= LIMIT_EMBED_DESCRIPTION)
+            && fields.size() <= LIMIT_EMBED_FIELDS
+            && length() <= LIMIT_TOTAL;
+    }
+
+    /**
+     * Splits this embed into as few embeds as possible that are within all limits of Discord.
+     * If this embed is already within the limits, it is returned as is.
+     * @return the embeds, in order
+     */
+    List<DiscordEmbed> split() {
+        if (isValid()) return Collections.singletonList(this);
+        List<DiscordEmbed> parts = new ArrayList<>();
+        DiscordEmbed current = new DiscordEmbed();
+        current.url = url;
+        current.color = color;
+        current.thumbnail = thumbnail;
+        if (title != null) current.setTitle(title);
+        if (author != null) current.setAuthor(new Author(author.name, author.url, author.iconUrl));
+
+        if (description != null) {
+            List<String> chunks = TextSplitter.split(description, LIMIT_EMBED_DESCRIPTION);
+            for (int i = 0; i < chunks.size(); i++) {
+                if (i > 0) {
+                    parts.add(current);
+                    current = continuation();
+                }
+                current.setDescription(chunks.get(i));
+            }
+        }
+        for (Field field : fields) {
+            if (current.fields.size() >= LIMIT_EMBED_FIELDS || current.length + field.length > LIMIT_TOTAL) {
+                parts.add(current);
+                current = continuation();
+            }
+            current.addField(new Field(field.name, field.value, field.inline));
+        }
+        if (footer != null) {
+            if (current.length + footer.length > LIMIT_TOTAL) {
+                parts.add(current);
+                current = continuation();
+            }
+            current.setFooter(new Footer(footer.text, footer.iconUrl));
+        }
+        current.image = image;
+        current.timestamp = timestamp;
+        parts.add(current);
+        return parts;
+    }
+
+    private DiscordEmbed continuation() {
+        DiscordEmbed embed = new DiscordEmbed();
+        embed.color = color;
+        return embed;
+    }
+
+    private static boolean isDetached(Part part) {
+        return part.owner == null && !part.shared;
+    }
+
+    private static int length(String string) {
+        return string != null ? string.length() : 0;
+    }
+
+    /**
+     * Checks whether this embed may grow by the given amount of characters.
+     */
+    private void check(int delta) throws IllegalArgumentException {
+        if (!splitting && delta > 0 && length() + delta > LIMIT_TOTAL) {
+            throw new IllegalArgumentException("Embed is too long (max. " + LIMIT_TOTAL + ")");
+        }
+    }
+
+    private void resize(int delta) throws IllegalArgumentException {
+        check(delta);
+        length += delta;
+    }
+
+    private <T extends Part> T replace(T previous, T part) throws IllegalArgumentException {
+        check((part != null ? part.length : 0) - (previous != null ? previous.length : 0));
+        if (previous != null) {
+            detach(previous);
+            if (previous != part) forget(previous);
+        }
+        if (part != null) attach(part);
+        return part;
+    }
+
+    /**
+     * Stops reusing an own part that was removed from this embed other than by {@link #reset()}, since the caller
+     * may still hold a reference to it from {@link #getFooter()}, {@link #getAuthor()} or {@link #getFields()}.
+     */
+    private void forget(Part part) {
+        if (part == ownFooter) ownFooter = null;
+        if (part == ownAuthor) ownAuthor = null;
+        for (int i = 0; i < ownFields.size(); i++) {
+            if (ownFields.get(i) == part) ownFields.set(i, null);
+        }
+    }
+
+    private void attach(Part part) {
+        if (part.owner == null && !part.shared) {
+            part.owner = this;
+            length += part.length;
+        } else {
+            // Parts used by several embeds no longer report changes, they are counted on demand instead
+            part.share();
+            sharedParts++;
+        }
+    }
+
+    private void detach(Part part) {
+        if (part.shared) {
+            sharedParts--;
+        } else if (part.owner == this) {
+            part.owner = null;
+            length -= part.length;
+        }
+    }
+
+
+
+    /**
+     * The base of all parts of an embed that count towards {@link #LIMIT_TOTAL}. Parts report changes of their
+     * length to the embed they belong to. Once a part is added to a second embed it becomes shared, and every
+     * embed that contains it counts it on demand instead.
+     */
+    abstract static class Part {
+
+        DiscordEmbed owner = null;
+        boolean shared = false;
+        int length = 0;
+
+        void resize(int delta) throws IllegalArgumentException {
+            if (owner != null) owner.resize(delta);
+            length += delta;
+        }
+
+        private void share() {
+            if (shared) return;
+            if (owner != null) {
+                owner.length -= length;
+                owner.sharedParts++;
+                owner = null;
+            }
+            shared = true;
+        }
+
+    }
+
+
+
+    private class FieldList extends AbstractList<Field> implements RandomAccess {
+
+        private final ArrayList<Field> elements = new ArrayList<>();
+
+        @Override
+        public Field get(int index) {
+            return elements.get(index);
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+
+        @Override
+        public Field set(int index, Field field) {
+            if (field == null) throw new NullPointerException("Field cannot be null.");
+            Field previous = elements.get(index);
+            check(field.length - previous.length);
+            detach(previous);
+            if (previous != field) forget(previous);
+            attach(field);
+            return elements.set(index, field);
+        }
+
+        @Override
+        public void add(int index, Field field) {
+            if (field == null) throw new NullPointerException("Field cannot be null.");
+            if (!splitting && elements.size() >= LIMIT_EMBED_FIELDS) {
+                throw new IllegalArgumentException("Embed has too many fields. (max. " + LIMIT_EMBED_FIELDS + ")");
+            }
+            check(field.length);
+            attach(field);
+            elements.add(index, field);
+            modCount++;
+        }
+
+        @Override
+        public Field remove(int index) {
+            Field previous = elements.remove(index);
+            detach(previous);
+            forget(previous);
+            modCount++;
+            return previous;
+        }
+
+        private void reset() {
+            for (int i = 0; i < elements.size(); i++) {
+                detach(elements.get(i));
+            }
+            elements.clear();
+            modCount++;
+        }
+
     }
 
 
 
-    public static class Footer {
+    public static class Footer extends Part {
 
         private String text;
         private String iconUrl;
@@ -228,6 +555,7 @@ public class DiscordEmbed implements DiscordConstants {
             if (text.length() > LIMIT_FOOTER) {
                 throw new IllegalArgumentException("Footer is too long (max. " + LIMIT_FOOTER + ")");
             }
+            resize(text.length() - length(this.text));
             this.text = text;
             return this;
         }
@@ -296,7 +624,7 @@ public class DiscordEmbed implements DiscordConstants {
 
 
 
-    public static class Author {
+    public static class Author extends Part {
 
         private String name;
         private String url;
@@ -322,6 +650,7 @@ public class DiscordEmbed implements DiscordConstants {
             if (name.length() > LIMIT_AUTHOR) {
                 throw new IllegalArgumentException("Author name is too long (max. " + LIMIT_AUTHOR + ")");
             }
+            resize(name.length() - length(this.name));
             this.name = name;
             return this;
         }
@@ -350,7 +679,7 @@ public class DiscordEmbed implements DiscordConstants {
 
 
 
-    public static class Field {
+    public static class Field extends Part {
 
         private String name;
         private String value;
@@ -375,6 +704,7 @@ public class DiscordEmbed implements DiscordConstants {
             if (name.length() > LIMIT_FIELD_NAME) {
                 throw new IllegalArgumentException("Field name is too long (max. " + LIMIT_FIELD_NAME + ")");
             }
+            resize(name.length() - length(this.name));
             this.name = name;
             return this;
         }
@@ -388,6 +718,7 @@ public class DiscordEmbed implements DiscordConstants {
             if (value.length() > LIMIT_FIELD_VALUE) {
                 throw new IllegalArgumentException("Field value is too long (max. " + LIMIT_FIELD_VALUE + ")");
             }
+            resize(value.length() - length(this.value));
             this.value = value;
             return this;
         }
@@ -0,0 +1,294 @@
+package net.tassia.webhook;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Writes the webhook payload model as UTF-8 JSON, without reflection and without Jackson databind.
+ * <p>
+ * The output is byte-identical to what {@link com.fasterxml.jackson.databind.ObjectMapper#writeValueAsBytes(Object)}
+ * produces for the same builder with a default mapper: the same property order, <code>null</code> values included,
+ * and strings escaped by {@link JsonEscape}. Every thread reuses its own buffer, and timestamps and colors are
+ * written without intermediate objects, so serializing does not allocate anything but the resulting array.
+ * </p>
+ */
+final class DiscordJsonWriter {
+
+    private static final ThreadLocal<DiscordJsonWriter> WRITERS = ThreadLocal.withInitial(DiscordJsonWriter::new);
+
+    // Buffers that grew beyond this size (e.g. for split messages) are not kept
+    private static final int MAX_RETAINED = 64 * 1024;
+
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    // 10000-01-01T00:00:00Z, later timestamps are formatted by DiscordEmbed
+    private static final long MAX_TIMESTAMP = 253402300800000L;
+
+    private byte[] buffer = new byte[1024];
+    private int position = 0;
+
+    private DiscordJsonWriter() {
+    }
+
+    /**
+     * Serializes a builder, including all of its embeds.
+     * @param builder the builder
+     * @return the UTF-8 encoded JSON
+     */
+    static byte[] write(DiscordWebhookBuilder builder) {
+        DiscordJsonWriter writer = WRITERS.get();
+        try {
+            writer.builder(builder);
+            return Arrays.copyOf(writer.buffer, writer.position);
+        } finally {
+            writer.reset();
+        }
+    }
+
+    /**
+     * Serializes an object with a single string property.
+     * @param name the property name
+     * @param value the value, or <code>null</code>
+     * @return the UTF-8 encoded JSON
+     */
+    static byte[] write(String name, String value) {
+        DiscordJsonWriter writer = WRITERS.get();
+        try {
+            writer.raw('{');
+            writer.string(name, value);
+            writer.raw('}');
+            return Arrays.copyOf(writer.buffer, writer.position);
+        } finally {
+            writer.reset();
+        }
+    }
+
+    private void reset() {
+        position = 0;
+        if (buffer.length > MAX_RETAINED) buffer = new byte[1024];
+    }
+
+    private void builder(DiscordWebhookBuilder builder) {
+        raw('{');
+        string("content", builder.getContent());
+        raw(',');
+        string("username", builder.getUsername());
+        raw(',');
+        name("tts");
+        raw(builder.isTTS() ? TRUE : FALSE);
+        raw(',');
+        name("embeds");
+        raw('[');
+        boolean first = true;
+        for (DiscordEmbed embed : builder.getEmbeds()) {
+            if (!first) raw(',');
+            first = false;
+            embed(embed);
+        }
+        raw(']');
+        raw(',');
+        string("avatar_url", builder.getAvatarURL());
+        raw('}');
+    }
+
+    private void embed(DiscordEmbed embed) {
+        if (embed == null) {
+            raw(NULL);
+            return;
+        }
+        raw('{');
+        string("title", embed.getTitle());
+        raw(',');
+        string("description", embed.getDescription());
+        raw(',');
+        string("url", embed.getUrl());
+        raw(',');
+
+        name("footer");
+        DiscordEmbed.Footer footer = embed.getFooter();
+        if (footer == null) {
+            raw(NULL);
+        } else {
+            raw('{');
+            string("text", footer.getText());
+            raw(',');
+            string("icon_url", footer.getIconUrl());
+            raw('}');
+        }
+        raw(',');
+
+        name("image");
+        DiscordEmbed.Image image = embed.getImage();
+        if (image == null) {
+            raw(NULL);
+        } else {
+            raw('{');
+            string("url", image.getUrl());
+            raw('}');
+        }
+        raw(',');
+
+        name("thumbnail");
+        DiscordEmbed.Thumbnail thumbnail = embed.getThumbnail();
+        if (thumbnail == null) {
+            raw(NULL);
+        } else {
+            raw('{');
+            string("url", thumbnail.getUrl());
+            raw('}');
+        }
+        raw(',');
+
+        name("author");
+        DiscordEmbed.Author author = embed.getAuthor();
+        if (author == null) {
+            raw(NULL);
+        } else {
+            raw('{');
+            string("name", author.getName());
+            raw(',');
+            string("url", author.getUrl());
+            raw(',');
+            string("icon_url", author.getIconUrl());
+            raw('}');
+        }
+        raw(',');
+
+        name("fields");
+        raw('[');
+        boolean first = true;
+        for (DiscordEmbed.Field field : embed.getFields()) {
+            if (!first) raw(',');
+            first = false;
+            if (field == null) {
+                raw(NULL);
+                continue;
+            }
+            raw('{');
+            string("name", field.getName());
+            raw(',');
+            string("value", field.getValue());
+            raw(',');
+            name("inline");
+            raw(field.isInline() ? TRUE : FALSE);
+            raw('}');
+        }
+        raw(']');
+        raw(',');
+
+        long timestamp = embed.getTimestamp();
+        if (timestamp >= 0 && timestamp < MAX_TIMESTAMP) {
+            name("timestamp");
+            timestamp(timestamp);
+        } else {
+            string("timestamp", embed.getTimestampAsString());
+        }
+        raw(',');
+        name("color");
+        Color color = embed.getColor();
+        if (color == null) {
+            raw(NULL);
+        } else {
+            // Same value as DiscordEmbed.getColorAsInt(), without boxing it
+            number(color.getRGB() & 0xFFFFFF);
+        }
+        raw('}');
+    }
+
+    /**
+     * Writes a timestamp in the format of {@link DiscordEmbed#getTimestampAsString()}, without allocating.
+     * Dates are converted with the algorithm by Howard Hinnant, for years 1970 to 9999.
+     */
+    private void timestamp(long millis) {
+        long days = millis / 86400000L;
+        int seconds = (int) (millis % 86400000L / 1000L);
+
+        long z = days + 719468L;
+        long era = z / 146097L;
+        long doe = z - era * 146097L;
+        long yoe = (doe - doe / 1460L + doe / 36524L - doe / 146096L) / 365L;
+        long doy = doe - (365L * yoe + yoe / 4L - yoe / 100L);
+        long mp = (5L * doy + 2L) / 153L;
+        int day = (int) (doy - (153L * mp + 2L) / 5L + 1L);
+        int month = (int) (mp < 10L ? mp + 3L : mp - 9L);
+        int year = (int) (yoe + era * 400L) + (month <= 2 ? 1 : 0);
+
+        ensure(22);
+        buffer[position++] = '"';
+        digits(year, 4);
+        buffer[position++] = '-';
+        digits(month, 2);
+        buffer[position++] = '-';
+        digits(day, 2);
+        buffer[position++] = 'T';
+        digits(seconds / 3600, 2);
+        buffer[position++] = ':';
+        digits(seconds / 60 % 60, 2);
+        buffer[position++] = ':';
+        digits(seconds % 60, 2);
+        buffer[position++] = 'Z';
+        buffer[position++] = '"';
+    }
+
+    private void digits(int value, int count) {
+        for (int i = position + count - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += count;
+    }
+
+    private void name(String name) {
+        // Property names are ASCII and never need escaping
+        int length = name.length();
+        ensure(length + 3);
+        buffer[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) name.charAt(i);
+        }
+        buffer[position++] = '"';
+        buffer[position++] = ':';
+    }
+
+    private void string(String name, String value) {
+        name(name);
+        if (value == null) {
+            raw(NULL);
+            return;
+        }
+        ensure(JsonEscape.length(value) + 2);
+        buffer[position++] = '"';
+        position = JsonEscape.write(value, buffer, position);
+        buffer[position++] = '"';
+    }
+
+    private void number(int value) {
+        // Only used for colors, which are never negative
+        int count = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            count++;
+        }
+        ensure(count);
+        digits(value, count);
+    }
+
+    private void raw(char c) {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void raw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensure(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single message that is kept up to date, such as a progress or status display.
+ * <p>
+ * Updates never wait for Discord: {@link #update(DiscordMessage)} only replaces the pending state. The first state
+ * creates the message, every later one edits it. At most one request is in flight and requests are at least the
+ * minimum interval apart, so frequent updates are coalesced and only the latest state is sent.
+ * If the message is deleted in the meantime, the next state creates a new one.
+ * </p>
+ */
+public class DiscordLiveMessage implements Closeable {
+
+    private static final int UNKNOWN_MESSAGE = 10008;
+
+    private final DiscordWebhook webhook;
+    private final long interval;
+    private final List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    private DiscordMessageHandle handle;
+    private DiscordMessage pending = null;
+    private boolean inFlight = false;
+    private boolean scheduled = false;
+    private boolean closed = false;
+    private long lastSent;
+    private long sent = 0L;
+    private long coalesced = 0L;
+    private Throwable lastFailure = null;
+
+    /**
+     * Creates a new live message. The message is created with the first update.
+     * @param webhook the webhook
+     * @param interval the minimum time between two requests
+     */
+    public DiscordLiveMessage(DiscordWebhook webhook, Duration interval) {
+        this(webhook, null, interval);
+    }
+
+    /**
+     * Creates a new live message that edits an existing message.
+     * @param handle the message
+     * @param interval the minimum time between two requests
+     */
+    public DiscordLiveMessage(DiscordMessageHandle handle, Duration interval) {
+        this(handle.getWebhook(), handle, interval);
+    }
+
+    private DiscordLiveMessage(DiscordWebhook webhook, DiscordMessageHandle handle, Duration interval) {
+        if (webhook == null || interval == null) throw new NullPointerException();
+        if (interval.isNegative()) throw new IllegalArgumentException("interval cannot be negative");
+        this.webhook = webhook;
+        this.handle = handle;
+        this.interval = interval.toNanos();
+        this.lastSent = System.nanoTime() - this.interval;
+    }
+
+    /**
+     * {@link DiscordWebhookBuilder#freeze() Freezes} the message and makes it the latest state.
+     * @param state the new state
+     * @throws IllegalStateException if this live message has been closed, or the message is invalid
+     * @throws JsonProcessingException if something goes wrong while generating the JSON
+     */
+    public void update(DiscordWebhookBuilder state) throws IllegalStateException, JsonProcessingException {
+        update(state.freeze());
+    }
+
+    /**
+     * Makes the message the latest state. It replaces any state that has not been sent yet.
+     * @param state the new state
+     * @throws IllegalStateException if this live message has been closed
+     */
+    public synchronized void update(DiscordMessage state) throws IllegalStateException {
+        if (state == null) throw new NullPointerException();
+        if (closed) throw new IllegalStateException("Live message has been closed.");
+        if (pending != null) coalesced++;
+        pending = state;
+        trySend();
+    }
+
+    private void trySend() {
+        if (inFlight || scheduled || pending == null) return;
+        long wait = interval - (System.nanoTime() - lastSent);
+        if (wait > 0) {
+            scheduled = true;
+            webhook.getClient().getScheduler().schedule(() -> {
+                synchronized (this) {
+                    scheduled = false;
+                    trySend();
+                }
+            }, wait, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        DiscordMessage state = pending;
+        pending = null;
+        inFlight = true;
+        lastSent = System.nanoTime();
+        CompletableFuture<?> future;
+        if (handle == null) {
+            future = webhook.executeAndWaitAsync(state).thenAccept(created -> {
+                synchronized (this) {
+                    handle = created;
+                }
+            });
+        } else {
+            future = handle.editAsync(state);
+        }
+        future.whenComplete((result, ex) -> complete(state, ex));
+    }
+
+    private synchronized void complete(DiscordMessage state, Throwable ex) {
+        inFlight = false;
+        if (ex instanceof CompletionException && ex.getCause() != null) ex = ex.getCause();
+        if (ex == null) {
+            sent++;
+        } else {
+            lastFailure = ex;
+            if (isUnknownMessage(ex)) {
+                // Deleted by someone else, create a new message unless a newer state is already pending
+                handle = null;
+                if (pending == null) pending = state;
+            }
+        }
+        trySend();
+        if (!inFlight && !scheduled && pending == null) {
+            for (CompletableFuture<Void> future : waiting) {
+                future.complete(null);
+            }
+            waiting.clear();
+        }
+    }
+
+    private static boolean isUnknownMessage(Throwable ex) {
+        if (!(ex instanceof DiscordWebhookException)) return false;
+        DiscordResponse response = ((DiscordWebhookException) ex).getResponse();
+        if (response.getCode() != 404) return false;
+        Map<String, String> body = JsonFields.parse(response.getBody());
+        return body != null && Integer.toString(UNKNOWN_MESSAGE).equals(body.get("code"));
+    }
+
+    /**
+     * Returns a future that completes once the latest state has been sent (or has failed).
+     * @return the future
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (!inFlight && !scheduled && pending == null) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        waiting.add(future);
+        return future;
+    }
+
+    /**
+     * Returns the handle of the message, or <code>null</code> if it has not been created yet.
+     * @return the handle
+     */
+    public synchronized DiscordMessageHandle getHandle() {
+        return handle;
+    }
+
+    /**
+     * Returns the amount of states that have been sent successfully.
+     * @return the amount of sent states
+     */
+    public synchronized long getSentCount() {
+        return sent;
+    }
+
+    /**
+     * Returns the amount of states that have been replaced by a newer state before they were sent.
+     * @return the amount of coalesced states
+     */
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * Returns the failure of the most recent request that failed, or <code>null</code> if none has failed.
+     * A failed state is not retried, the next update is sent as usual.
+     * @return the last failure
+     */
+    public synchronized Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops accepting updates. The latest state is still sent, see {@link #flush()}.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+    }
+
+}
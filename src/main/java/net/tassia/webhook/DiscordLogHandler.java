@@ -0,0 +1,182 @@
+package net.tassia.webhook;
+
+import java.awt.Color;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * A <code>java.util.logging</code> handler that forwards log records to a webhook.
+ * <p>
+ * Publishing a record never waits for Discord: the record is rendered into an embed (colored by level, with the
+ * logger, thread and a truncated stack trace) and queued. Queued embeds are sent in batches of up to
+ * {@link DiscordConstants#LIMIT_EMBEDS} per message. If the queue is full, records are dropped and the next message
+ * reports how many were lost. Records of this library and of OkHttp are never forwarded.
+ * </p>
+ * <p>
+ * By default, only records of level {@link Level#SEVERE} are published. The handler can also be configured in
+ * <code>logging.properties</code>, using the no-argument constructor:
+ * </p>
+ * <pre>
+ * handlers = net.tassia.webhook.DiscordLogHandler
+ * net.tassia.webhook.DiscordLogHandler.url = https://discordapp.com/api/webhooks/...
+ * net.tassia.webhook.DiscordLogHandler.level = WARNING
+ * net.tassia.webhook.DiscordLogHandler.capacity = 1000
+ * net.tassia.webhook.DiscordLogHandler.linger = 2000
+ * net.tassia.webhook.DiscordLogHandler.username = Production
+ * </pre>
+ */
+public class DiscordLogHandler extends Handler {
+
+    /**
+     * The default maximum amount of queued records.
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * The default time a record may wait for other records to be sent with.
+     */
+    public static final Duration DEFAULT_LINGER = Duration.ofSeconds(2);
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Color SEVERE_COLOR = new Color(0xE74C3C);
+    private static final Color WARNING_COLOR = new Color(0xE67E22);
+    private static final Color INFO_COLOR = new Color(0x3498DB);
+    private static final Color DEBUG_COLOR = new Color(0x95A5A6);
+
+    private final LogBatcher batcher;
+
+    /**
+     * Creates a new handler configured by the {@link LogManager}, sending through the
+     * {@link DiscordWebhookClient#getDefault() default client}.
+     * @throws IllegalArgumentException if no valid webhook url is configured
+     */
+    public DiscordLogHandler() throws IllegalArgumentException {
+        this(configuredWebhook(), configuredInt("capacity", DEFAULT_CAPACITY),
+            Duration.ofMillis(configuredInt("linger", (int) DEFAULT_LINGER.toMillis())), configured("username"));
+        String level = configured("level");
+        if (level != null) setLevel(Level.parse(level.trim()));
+    }
+
+    /**
+     * Creates a new handler with the default capacity and linger time.
+     * @param webhook the webhook
+     */
+    public DiscordLogHandler(DiscordWebhook webhook) {
+        this(webhook, DEFAULT_CAPACITY, DEFAULT_LINGER, null);
+    }
+
+    /**
+     * Creates a new handler.
+     * @param webhook the webhook
+     * @param capacity the maximum amount of queued records
+     * @param linger how long a record may wait for other records to be sent with
+     * @param username the username override of the messages, or <code>null</code>
+     * @throws IllegalArgumentException if <code>capacity</code> is less than 1
+     */
+    public DiscordLogHandler(DiscordWebhook webhook, int capacity, Duration linger, String username) throws IllegalArgumentException {
+        this.batcher = new LogBatcher(webhook, capacity, linger, username,
+            ex -> reportError("Log records could not be sent to Discord.", asException(ex), ErrorManager.WRITE_FAILURE));
+        setLevel(Level.SEVERE);
+        setFormatter(new SimpleFormatter());
+    }
+
+    private static String configured(String name) {
+        return LogManager.getLogManager().getProperty(DiscordLogHandler.class.getName() + "." + name);
+    }
+
+    private static int configuredInt(String name, int defaultValue) throws IllegalArgumentException {
+        String value = configured(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static DiscordWebhook configuredWebhook() throws IllegalArgumentException {
+        String url = configured("url");
+        if (url == null) throw new IllegalArgumentException("No webhook url configured.");
+        return new DiscordWebhook(url.trim());
+    }
+
+    private static Exception asException(Throwable ex) {
+        return ex instanceof Exception ? (Exception) ex : new Exception(ex);
+    }
+
+    /**
+     * Renders the record and queues it, unless it is not loggable. This method never blocks.
+     * The message is formatted with {@link java.util.logging.Formatter#formatMessage(LogRecord)}.
+     * @param record the record
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record) || LogBatcher.isIgnored(record.getLoggerName())) return;
+        try {
+            String stackTrace = null;
+            if (record.getThrown() != null) {
+                StringWriter writer = new StringWriter();
+                record.getThrown().printStackTrace(new PrintWriter(writer));
+                stackTrace = writer.toString();
+            }
+            DiscordEmbed embed = LogBatcher.render(record.getLevel().getName(), color(record.getLevel()),
+                record.getLoggerName(), getFormatter().formatMessage(record), Thread.currentThread().getName(),
+                record.getMillis(), stackTrace);
+            batcher.offer(embed);
+        } catch (RuntimeException ex) {
+            reportError("Log record could not be rendered.", ex, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+
+    private static Color color(Level level) {
+        int value = level.intValue();
+        if (value >= Level.SEVERE.intValue()) return SEVERE_COLOR;
+        if (value >= Level.WARNING.intValue()) return WARNING_COLOR;
+        if (value >= Level.INFO.intValue()) return INFO_COLOR;
+        return DEBUG_COLOR;
+    }
+
+    /**
+     * Sends the queued records without waiting for the linger time to pass. This method does not wait for
+     * Discord either.
+     */
+    @Override
+    public void flush() {
+        batcher.flush();
+    }
+
+    /**
+     * Stops accepting records and waits up to 5 seconds until all queued records have been sent.
+     */
+    @Override
+    public void close() {
+        if (!batcher.close(CLOSE_TIMEOUT)) {
+            reportError("Not all log records could be sent to Discord.", null, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    /**
+     * Returns the amount of records dropped because the queue was full or the handler was closed.
+     * @return the amount of dropped records
+     */
+    public long getDroppedCount() {
+        return batcher.getDroppedCount();
+    }
+
+    /**
+     * Returns the amount of queued records.
+     * @return the queue depth
+     */
+    public int getDepth() {
+        return batcher.getDepth();
+    }
+
+}
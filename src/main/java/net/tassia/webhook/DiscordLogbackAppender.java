@@ -0,0 +1,166 @@
+package net.tassia.webhook;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import java.awt.Color;
+import java.time.Duration;
+
+/**
+ * A Logback appender that forwards logging events to a webhook. Logback is an optional dependency of this library,
+ * so it has to be on the class path of the application to use this appender.
+ * <p>
+ * Appending an event never waits for Discord: the event is rendered into an embed (colored by level, with the
+ * logger, thread and a truncated stack trace) and queued. Queued embeds are sent in batches of up to
+ * {@link DiscordConstants#LIMIT_EMBEDS} per message. If the queue is full, events are dropped and the next message
+ * reports how many were lost. Events of this library and of OkHttp are never forwarded.
+ * </p>
+ * <pre>
+ * &lt;appender name="DISCORD" class="net.tassia.webhook.DiscordLogbackAppender"&gt;
+ *     &lt;url&gt;https://discordapp.com/api/webhooks/...&lt;/url&gt;
+ *     &lt;threshold&gt;WARN&lt;/threshold&gt;
+ *     &lt;capacity&gt;1000&lt;/capacity&gt;
+ *     &lt;linger&gt;2 seconds&lt;/linger&gt;
+ *     &lt;username&gt;Production&lt;/username&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ */
+public class DiscordLogbackAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Color ERROR_COLOR = new Color(0xE74C3C);
+    private static final Color WARN_COLOR = new Color(0xE67E22);
+    private static final Color INFO_COLOR = new Color(0x3498DB);
+    private static final Color DEBUG_COLOR = new Color(0x95A5A6);
+
+    private DiscordWebhook webhook = null;
+    private String url = null;
+    private Level threshold = Level.ERROR;
+    private int capacity = DiscordLogHandler.DEFAULT_CAPACITY;
+    private Duration linger = DiscordLogHandler.DEFAULT_LINGER;
+    private String username = null;
+    private LogBatcher batcher = null;
+
+    /**
+     * Sets the webhook to send to. Takes precedence over the {@link #setUrl(String) url}.
+     * @param webhook the webhook
+     */
+    public void setWebhook(DiscordWebhook webhook) {
+        this.webhook = webhook;
+    }
+
+    /**
+     * Sets the url of the webhook to send to, through the {@link DiscordWebhookClient#getDefault() default client}.
+     * @param url the webhook url
+     */
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Sets the lowest level of the events that are forwarded. Defaults to <code>ERROR</code>.
+     * @param threshold the level name
+     */
+    public void setThreshold(String threshold) {
+        this.threshold = Level.toLevel(threshold, Level.ERROR);
+    }
+
+    /**
+     * Sets the maximum amount of queued events. Defaults to {@link DiscordLogHandler#DEFAULT_CAPACITY}.
+     * @param capacity the capacity
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Sets how long an event may wait for other events to be sent with. Defaults to
+     * {@link DiscordLogHandler#DEFAULT_LINGER}.
+     * @param linger the linger time, such as <code>2 seconds</code>
+     */
+    public void setLinger(ch.qos.logback.core.util.Duration linger) {
+        this.linger = Duration.ofMillis(linger.getMilliseconds());
+    }
+
+    /**
+     * Sets the username override of the messages.
+     * @param username the username
+     */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    @Override
+    public void start() {
+        DiscordWebhook webhook = this.webhook;
+        try {
+            if (webhook == null) {
+                if (url == null) {
+                    addError("No webhook url set for the appender named [" + name + "].");
+                    return;
+                }
+                webhook = new DiscordWebhook(url.trim());
+            }
+            batcher = new LogBatcher(webhook, capacity, linger, username,
+                ex -> addError("Log events could not be sent to Discord.", ex));
+        } catch (IllegalArgumentException ex) {
+            addError("Invalid configuration of the appender named [" + name + "].", ex);
+            return;
+        }
+        super.start();
+    }
+
+    /**
+     * Renders the event and queues it, unless it is below the threshold. This method never blocks.
+     * @param event the event
+     */
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!event.getLevel().isGreaterOrEqual(threshold) || LogBatcher.isIgnored(event.getLoggerName())) return;
+        IThrowableProxy throwable = event.getThrowableProxy();
+        DiscordEmbed embed = LogBatcher.render(event.getLevel().toString(), color(event.getLevel()),
+            event.getLoggerName(), event.getFormattedMessage(), event.getThreadName(), event.getTimeStamp(),
+            throwable != null ? ThrowableProxyUtil.asString(throwable) : null);
+        batcher.offer(embed);
+    }
+
+    private static Color color(Level level) {
+        if (level.isGreaterOrEqual(Level.ERROR)) return ERROR_COLOR;
+        if (level.isGreaterOrEqual(Level.WARN)) return WARN_COLOR;
+        if (level.isGreaterOrEqual(Level.INFO)) return INFO_COLOR;
+        return DEBUG_COLOR;
+    }
+
+    /**
+     * Stops accepting events and waits up to 5 seconds until all queued events have been sent.
+     */
+    @Override
+    public void stop() {
+        if (!isStarted()) return;
+        super.stop();
+        if (!batcher.close(CLOSE_TIMEOUT)) {
+            addWarn("Not all log events could be sent to Discord.");
+        }
+    }
+
+    /**
+     * Returns the amount of events dropped because the queue was full or the appender was stopped.
+     * @return the amount of dropped events
+     */
+    public long getDroppedCount() {
+        return batcher != null ? batcher.getDroppedCount() : 0L;
+    }
+
+    /**
+     * Returns the amount of queued events.
+     * @return the queue depth
+     */
+    public int getDepth() {
+        return batcher != null ? batcher.getDepth() : 0;
+    }
+
+}
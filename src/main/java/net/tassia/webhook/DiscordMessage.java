@@ -0,0 +1,77 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An immutable, already serialized message.
+ * <p>
+ * Messages are created with {@link DiscordWebhookBuilder#freeze()}. They are validated and serialized exactly
+ * once, so they can be sent, retried and shared between threads any number of times without any further
+ * serialization cost.
+ * </p>
+ */
+public final class DiscordMessage implements DiscordPayload {
+
+    private final byte[] json;
+
+    DiscordMessage(byte[] json) {
+        if (json == null) throw new NullPointerException();
+        this.json = json;
+    }
+
+    /**
+     * Creates a message from a JSON payload. The payload is not validated.
+     * @param json the JSON payload
+     * @return the message
+     */
+    public static DiscordMessage of(String json) {
+        return new DiscordMessage(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the JSON payload of this message.
+     * @return the JSON payload
+     */
+    public String getJSON() {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a copy of the UTF-8 encoded JSON payload of this message.
+     * @return the JSON payload
+     */
+    public byte[] toByteArray() {
+        return json.clone();
+    }
+
+    /**
+     * Returns the internal payload array, which must not be modified.
+     * @return the JSON payload
+     */
+    byte[] array() {
+        return json;
+    }
+
+    @Override
+    public String getContentType() {
+        return JacksonPayload.CONTENT_TYPE;
+    }
+
+    @Override
+    public long getContentLength() {
+        return json.length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(json);
+    }
+
+    @Override
+    public String toString() {
+        return getJSON();
+    }
+
+}
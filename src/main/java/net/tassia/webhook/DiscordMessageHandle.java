@@ -0,0 +1,119 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A message that has been sent by a webhook, which can be edited or deleted afterwards.
+ * Handles are returned by {@link DiscordWebhook#executeAndWait(DiscordPayload)}.
+ */
+public final class DiscordMessageHandle {
+
+    private final DiscordWebhook webhook;
+    private final String id;
+    private final String url;
+
+    DiscordMessageHandle(DiscordWebhook webhook, String id) {
+        if (webhook == null || id == null) throw new NullPointerException();
+        this.webhook = webhook;
+        this.id = id;
+        this.url = webhook.getURL() + "/messages/" + id;
+    }
+
+    /**
+     * Returns the webhook that sent the message.
+     * @return the webhook
+     */
+    public DiscordWebhook getWebhook() {
+        return webhook;
+    }
+
+    /**
+     * Returns the ID of the message.
+     * @return the ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the URL of the message, used to edit or delete it.
+     * @return the URL
+     */
+    public String getURL() {
+        return url;
+    }
+
+    /**
+     * Replaces the content and embeds of the message.
+     * @param payload the new payload
+     * @return the response
+     * @throws IOException if an I/O error occurs, or the message does not exist anymore
+     */
+    public DiscordResponse edit(DiscordPayload payload) throws IOException {
+        WebhookRequest request = new WebhookRequest("PATCH", url, payload);
+        return webhook.getClient().execute(webhook, request, 200);
+    }
+
+    /**
+     * Replaces the content and embeds of the message. The username, avatar and TTS flag of the builder are ignored.
+     * @param message the new message
+     * @return the response
+     * @throws IOException if an I/O error occurs, or the message does not exist anymore
+     * @throws IllegalStateException if the message has neither content, embeds nor files,
+     * or exceeds the limits of Discord
+     */
+    public DiscordResponse edit(DiscordWebhookBuilder message) throws IOException, IllegalStateException {
+        return edit(message.toPayload());
+    }
+
+    /**
+     * Replaces the content and embeds of the message without blocking the calling thread.
+     * @param payload the new payload
+     * @return a future that completes with the response
+     */
+    public CompletableFuture<DiscordResponse> editAsync(DiscordPayload payload) {
+        WebhookRequest request = new WebhookRequest("PATCH", url, payload);
+        return webhook.getClient().executeAsync(webhook, request, 200);
+    }
+
+    /**
+     * Replaces the content and embeds of the message without blocking the calling thread.
+     * The builder is {@link DiscordWebhookBuilder#freeze() frozen} before this method returns.
+     * @param message the new message
+     * @return a future that completes with the response
+     */
+    public CompletableFuture<DiscordResponse> editAsync(DiscordWebhookBuilder message) {
+        try {
+            return editAsync(message.toPayload());
+        } catch (JsonProcessingException | IllegalStateException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Deletes the message.
+     * @throws IOException if an I/O error occurs, or the message does not exist anymore
+     */
+    public void delete() throws IOException {
+        WebhookRequest request = new WebhookRequest("DELETE", url, null);
+        webhook.getClient().execute(webhook, request, 204);
+    }
+
+    /**
+     * Deletes the message without blocking the calling thread.
+     * @return a future that completes with the response
+     */
+    public CompletableFuture<DiscordResponse> deleteAsync() {
+        WebhookRequest request = new WebhookRequest("DELETE", url, null);
+        return webhook.getClient().executeAsync(webhook, request, 204);
+    }
+
+    @Override
+    public String toString() {
+        return "DiscordMessageHandle{id=" + id + "}";
+    }
+
+}
@@ -0,0 +1,352 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue of messages waiting to be sent to a single webhook.
+ * <p>
+ * Producers never wait for Discord: {@link #submit(DiscordWebhookBuilder)} freezes the message, puts it into a
+ * lock-free ring buffer and returns. Messages are sent one after another, in submission order, without occupying
+ * a thread while waiting for a response or a rate limit. If the outbox is full, the {@link OverflowPolicy}
+ * decides what happens.
+ * </p>
+ * <p>
+ * Optionally, an outbox can be backed by a {@link DiscordDeliveryLog}. Every accepted message is then appended
+ * to the log and acknowledged once Discord accepted or permanently rejected it. After a restart,
+ * {@link #recover()} queues all messages that were not acknowledged. A log must only be used by one outbox.
+ * </p>
+ */
+public class DiscordOutbox {
+
+    private static final long MAX_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final DiscordWebhook webhook;
+    private final RingBuffer<Entry> queue;
+    private final OverflowPolicy policy;
+    private final long blockTimeout;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicLong dropped = new AtomicLong();
+    private final DiscordDeliveryLog log;
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates a new outbox. If the overflow policy is {@link OverflowPolicy#BLOCK}, producers wait indefinitely.
+     * @param webhook the webhook
+     * @param capacity the maximum amount of queued messages
+     * @param policy what to do if the outbox is full
+     * @throws IllegalArgumentException if <code>capacity</code> is less than 1
+     */
+    public DiscordOutbox(DiscordWebhook webhook, int capacity, OverflowPolicy policy) throws IllegalArgumentException {
+        this(webhook, capacity, policy, null);
+    }
+
+    /**
+     * Creates a new outbox.
+     * @param webhook the webhook
+     * @param capacity the maximum amount of queued messages
+     * @param policy what to do if the outbox is full
+     * @param blockTimeout how long producers wait for space if the policy is {@link OverflowPolicy#BLOCK},
+     *                     or <code>null</code> to wait indefinitely
+     * @throws IllegalArgumentException if <code>capacity</code> is less than 1
+     */
+    public DiscordOutbox(DiscordWebhook webhook, int capacity, OverflowPolicy policy, Duration blockTimeout) throws IllegalArgumentException {
+        this(webhook, capacity, policy, blockTimeout, null);
+    }
+
+    /**
+     * Creates a new outbox that is backed by a delivery log.
+     * @param webhook the webhook
+     * @param capacity the maximum amount of queued messages
+     * @param policy what to do if the outbox is full
+     * @param blockTimeout how long producers wait for space if the policy is {@link OverflowPolicy#BLOCK},
+     *                     or <code>null</code> to wait indefinitely
+     * @param log the delivery log, or <code>null</code> to keep messages in memory only
+     * @throws IllegalArgumentException if <code>capacity</code> is less than 1
+     */
+    public DiscordOutbox(DiscordWebhook webhook, int capacity, OverflowPolicy policy, Duration blockTimeout, DiscordDeliveryLog log) throws IllegalArgumentException {
+        if (webhook == null || policy == null) throw new NullPointerException();
+        this.webhook = webhook;
+        this.queue = new RingBuffer<>(capacity);
+        this.policy = policy;
+        this.blockTimeout = blockTimeout != null ? blockTimeout.toNanos() : Long.MAX_VALUE;
+        this.log = log;
+    }
+
+    /**
+     * Queues all messages of the delivery log that have not been acknowledged yet.
+     * Should be called once, right after creating the outbox. Messages that do not fit into the outbox
+     * remain in the log and are recovered the next time.
+     * @return the amount of recovered messages
+     * @throws IllegalStateException if this outbox is not backed by a delivery log
+     */
+    public int recover() throws IllegalStateException {
+        if (log == null) throw new IllegalStateException("Outbox is not backed by a delivery log.");
+        int[] count = { 0 };
+        log.replay(record -> {
+            Entry entry = new Entry(new DiscordMessage(record.getPayload()), record.getSequence());
+            if (queue.offer(entry)) count[0]++;
+        });
+        drain();
+        return count[0];
+    }
+
+    /**
+     * {@link DiscordWebhookBuilder#freeze() Freezes} the message and queues it.
+     * @param message the message
+     * @return a future that completes with the response, or is cancelled if the message was dropped
+     * @throws RejectedExecutionException if the outbox is full and the policy rejects the message,
+     * or the outbox has been shut down
+     */
+    public CompletableFuture<DiscordResponse> submit(DiscordWebhookBuilder message) throws RejectedExecutionException {
+        try {
+            return submit(message.freeze());
+        } catch (JsonProcessingException | IllegalStateException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Queues a JSON payload.
+     * @param jsonPayload the payload
+     * @return a future that completes with the response, or is cancelled if the message was dropped
+     * @throws RejectedExecutionException if the outbox is full and the policy rejects the message,
+     * or the outbox has been shut down
+     */
+    public CompletableFuture<DiscordResponse> submit(String jsonPayload) throws RejectedExecutionException {
+        return submit(DiscordMessage.of(jsonPayload));
+    }
+
+    /**
+     * Queues a message.
+     * @param message the message
+     * @return a future that completes with the response, or is cancelled if the message was dropped
+     * @throws RejectedExecutionException if the outbox is full and the policy rejects the message,
+     * or the outbox has been shut down
+     */
+    public CompletableFuture<DiscordResponse> submit(DiscordMessage message) throws RejectedExecutionException {
+        if (message == null) throw new NullPointerException();
+        if (shutdown) throw new RejectedExecutionException("Outbox has been shut down.");
+
+        Entry entry = new Entry(message, -1L);
+        if (log != null) {
+            try {
+                entry.sequence = log.append(message.array());
+            } catch (IOException ex) {
+                // Still deliver the message, just not durably
+                entry.sequence = -1L;
+            }
+        }
+
+        if (!queue.offer(entry)) {
+            switch (policy) {
+                case BLOCK:
+                    try {
+                        block(entry);
+                    } catch (RejectedExecutionException ex) {
+                        acknowledge(entry);
+                        throw ex;
+                    }
+                    break;
+                case DROP_NEWEST:
+                    dropped.incrementAndGet();
+                    acknowledge(entry);
+                    entry.future.cancel(false);
+                    return entry.future;
+                case DROP_OLDEST:
+                    do {
+                        Entry oldest = queue.poll();
+                        if (oldest != null) {
+                            dropped.incrementAndGet();
+                            acknowledge(oldest);
+                            oldest.future.cancel(false);
+                        }
+                    } while (!queue.offer(entry));
+                    break;
+                case REJECT:
+                    acknowledge(entry);
+                    throw new RejectedExecutionException("Outbox is full (capacity: " + queue.capacity() + ")");
+            }
+        }
+
+        webhook.getMetrics().onQueueDepth(webhook, queue.size());
+        drain();
+        return entry.future;
+    }
+
+    private void acknowledge(Entry entry) {
+        if (log == null || entry.sequence < 0) return;
+        try {
+            log.ack(entry.sequence);
+        } catch (IOException ignored) {
+            // The segment could not be deleted, it will be retried on the next acknowledgement or restart
+        }
+    }
+
+    private void block(Entry entry) throws RejectedExecutionException {
+        long start = System.nanoTime();
+        long park = 1000L;
+        while (!queue.offer(entry)) {
+            long remaining = blockTimeout - (System.nanoTime() - start);
+            if (remaining <= 0) {
+                throw new RejectedExecutionException("Outbox is full (capacity: " + queue.capacity() + ")");
+            }
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for space in the outbox");
+            }
+            LockSupport.parkNanos(this, Math.min(park, remaining));
+            park = Math.min(park * 2, MAX_PARK);
+        }
+    }
+
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) return;
+        while (true) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                draining.set(false);
+                // A producer may have offered an entry after our last poll, but before we released the flag
+                if (queue.isEmpty() || !draining.compareAndSet(false, true)) return;
+                continue;
+            }
+            webhook.getMetrics().onQueueDepth(webhook, queue.size());
+            if (entry.future.isDone()) continue;
+
+            CompletableFuture<DiscordResponse> sent = webhook.executeAsync(entry.payload);
+            if (!sent.isDone()) {
+                sent.whenComplete((response, ex) -> {
+                    complete(entry, response, ex);
+                    draining.set(false);
+                    drain();
+                });
+                return;
+            }
+            sent.whenComplete((response, ex) -> complete(entry, response, ex));
+        }
+    }
+
+    private void complete(Entry entry, DiscordResponse response, Throwable ex) {
+        // Network errors leave the message in the log, so it is recovered after a restart
+        boolean deleted = ex instanceof DiscordCircuitOpenException && ((DiscordCircuitOpenException) ex).isPermanent();
+        if (ex == null || ex instanceof DiscordWebhookException || deleted) {
+            acknowledge(entry);
+        }
+        if (ex != null) {
+            entry.future.completeExceptionally(ex);
+        } else {
+            entry.future.complete(response);
+        }
+    }
+
+    /**
+     * Returns the amount of queued messages, excluding the one currently being sent.
+     * @return the queue depth
+     */
+    public int getDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the maximum amount of queued messages.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return queue.capacity();
+    }
+
+    /**
+     * Returns the amount of messages dropped due to the overflow policy.
+     * @return the amount of dropped messages
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns whether {@link #shutdown(Duration)} has been called.
+     * @return is shut down
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Stops accepting messages and waits until all queued messages have been sent.
+     * Messages that are still queued when the timeout expires are cancelled.
+     * @param timeout the maximum time to wait
+     * @return <code>true</code> if all messages have been sent, <code>false</code> if the timeout expired
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        shutdown = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!queue.isEmpty() || draining.get()) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    entry.future.cancel(false);
+                }
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK));
+        }
+        return true;
+    }
+
+
+
+    /**
+     * Defines what happens if a message is submitted while the outbox is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The producer waits until there is space, or the block timeout expires.
+         * On timeout a {@link RejectedExecutionException} is thrown.
+         */
+        BLOCK,
+
+        /**
+         * The submitted message is dropped, its future is cancelled.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The oldest queued message is dropped to make space, its future is cancelled.
+         */
+        DROP_OLDEST,
+
+        /**
+         * A {@link RejectedExecutionException} is thrown.
+         */
+        REJECT
+
+    }
+
+
+
+    private static class Entry {
+
+        private final DiscordMessage payload;
+        private final CompletableFuture<DiscordResponse> future = new CompletableFuture<>();
+        private long sequence;
+
+        private Entry(DiscordMessage payload, long sequence) {
+            this.payload = payload;
+            this.sequence = sequence;
+        }
+
+    }
+
+}
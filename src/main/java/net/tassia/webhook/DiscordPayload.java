@@ -0,0 +1,41 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Represents the body of a webhook request that writes itself directly into the request stream.
+ */
+public interface DiscordPayload {
+
+    /**
+     * Returns the media type of this payload, including its charset if applicable.
+     * @return the content type
+     */
+    String getContentType();
+
+    /**
+     * Returns the length of this payload in bytes.
+     * @return the length, or <code>-1</code> if it is not known in advance
+     */
+    long getContentLength();
+
+    /**
+     * Returns whether this payload can only be written once, e.g. because it is read from a stream.
+     * Requests with one-shot payloads are never retried.
+     * @return is one-shot
+     */
+    default boolean isOneShot() {
+        return false;
+    }
+
+    /**
+     * Writes this payload. Unless it is {@link #isOneShot() one-shot}, this may be called more than once
+     * if a request has to be retried.
+     * The stream must not be closed.
+     * @param out the stream
+     * @throws IOException if an I/O error occurs
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,222 @@
+package net.tassia.webhook;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of Discord's rate limits and reserves request slots ahead of time.
+ * <p>
+ * Each webhook (identified by its ID and token) has its own bucket, unless Discord reports the same
+ * <code>X-RateLimit-Bucket</code> for several of them. A bucket allows <code>limit</code> requests
+ * per window; once a window is used up, further requests are reserved in the following window and their callers
+ * are told how long to wait. The bucket is corrected with the <code>X-RateLimit-*</code> headers of every response.
+ * Until the first response arrives, Discord's documented webhook limit of 5 requests per 2 seconds is assumed.
+ * </p>
+ */
+class DiscordRateLimiter {
+
+    private static final int DEFAULT_LIMIT = 5;
+    private static final long DEFAULT_WINDOW = TimeUnit.SECONDS.toNanos(2);
+
+    // Discord starts a window when its first request arrives and reports the reset rounded to milliseconds, so a
+    // window learned from a response is padded to keep windows reserved ahead of time from overlapping
+    private static final long WINDOW_MARGIN = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Bucket> sharedBuckets = new ConcurrentHashMap<>();
+    private volatile long globalResetAt;
+
+    DiscordRateLimiter() {
+        // nanoTime values may only be compared by their difference, so there is no safe "minimum" value
+        this.globalResetAt = System.nanoTime();
+    }
+
+    /**
+     * Returns the rate limit state of the given route. It may be kept by the caller, so later requests do not
+     * have to look it up again.
+     * @param route the route key
+     * @return the route state
+     */
+    Route route(String route) {
+        Route state = routes.get(route);
+        if (state == null) {
+            state = routes.computeIfAbsent(route, key -> new Route(new Bucket(System.nanoTime())));
+        }
+        return state;
+    }
+
+    /**
+     * Forgets the state of the given route. Callers that kept it can still use it, but later lookups
+     * start with a fresh bucket.
+     * @param route the route key
+     */
+    void release(String route) {
+        Route state = routes.remove(route);
+        if (state == null) return;
+        Bucket bucket = state.bucket;
+        if (bucket.id != null) sharedBuckets.remove(bucket.id, bucket);
+    }
+
+    /**
+     * Reserves a slot for a request to the given route.
+     * @param route the route state
+     * @return how long the caller has to wait before sending the request, in nanoseconds
+     */
+    long reserve(Route route) {
+        long now = System.nanoTime();
+        long delay = route.bucket.reserve(now);
+        long global = globalResetAt - now;
+        return Math.max(delay, global);
+    }
+
+    /**
+     * Updates the bucket of the given route with the rate limit headers of a response.
+     * @param route the route state
+     * @param response the response
+     * @return how long the request has to wait before it may be retried (in nanoseconds),
+     * or <code>-1</code> if the response is not a <code>429 Too Many Requests</code>
+     */
+    long update(Route route, DiscordResponse response) {
+        long now = System.nanoTime();
+        Bucket bucket = route.bucket;
+
+        String bucketId = response.getHeader("X-RateLimit-Bucket");
+        if (bucketId != null) {
+            // Routes reporting the same bucket hash share their limit
+            Bucket shared = sharedBuckets.putIfAbsent(bucketId, bucket);
+            if (shared == null) {
+                bucket.id = bucketId;
+            } else if (shared != bucket) {
+                route.bucket = shared;
+                bucket = shared;
+            }
+        }
+        int limit = parseInt(response.getHeader("X-RateLimit-Limit"));
+        int remaining = parseInt(response.getHeader("X-RateLimit-Remaining"));
+        long resetAfter = parseSeconds(response.getHeader("X-RateLimit-Reset-After"));
+        bucket.update(now, limit, remaining, resetAfter);
+
+        if (response.getCode() != 429) return -1L;
+
+        long retryAfter = resetAfter;
+        boolean global = "true".equalsIgnoreCase(response.getHeader("X-RateLimit-Global"))
+            || "global".equalsIgnoreCase(response.getHeader("X-RateLimit-Scope"));
+        // Not JSON (e.g. a Cloudflare error page) means relying on the headers only
+        Map<String, String> body = JsonFields.parse(response.getBody());
+        if (body != null) {
+            long bodyRetryAfter = parseSeconds(body.get("retry_after"));
+            if (bodyRetryAfter >= 0) retryAfter = Math.max(retryAfter, bodyRetryAfter);
+            global |= "true".equals(body.get("global"));
+        }
+        if (retryAfter < 0) {
+            retryAfter = parseSeconds(response.getHeader("Retry-After"));
+        }
+        if (retryAfter < 0) {
+            retryAfter = DEFAULT_WINDOW;
+        }
+
+        if (global) {
+            globalResetAt = now + retryAfter;
+        } else {
+            bucket.exhaust(now, retryAfter);
+        }
+        return retryAfter;
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) return -1;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static long parseSeconds(String value) {
+        if (value == null) return -1L;
+        try {
+            return (long) (Double.parseDouble(value.trim()) * 1e9);
+        } catch (NumberFormatException ex) {
+            return -1L;
+        }
+    }
+
+
+
+    /**
+     * The rate limit state of a single route. Its bucket is replaced once Discord reports that the route
+     * shares its limit with other routes.
+     */
+    static final class Route {
+
+        private volatile Bucket bucket;
+
+        private Route(Bucket bucket) {
+            this.bucket = bucket;
+        }
+
+    }
+
+
+
+    private static class Bucket {
+
+        // The bucket hash reported by Discord, once this bucket is shared under it
+        private volatile String id = null;
+        private int limit = DEFAULT_LIMIT;
+        private long window = DEFAULT_WINDOW;
+        private int remaining = DEFAULT_LIMIT;
+        private long windowStart;
+        private long resetAt;
+
+        Bucket(long now) {
+            this.windowStart = now;
+            this.resetAt = now;
+        }
+
+        synchronized long reserve(long now) {
+            if (now - resetAt >= 0) {
+                // The tracked window is over, start a new one
+                remaining = limit;
+                windowStart = now;
+                resetAt = now + window;
+            }
+            if (remaining <= 0) {
+                // The current window is used up, reserve a slot in the following one
+                windowStart = resetAt;
+                resetAt = windowStart + window;
+                remaining = limit;
+            }
+            remaining--;
+            return Math.max(0L, windowStart - now);
+        }
+
+        synchronized void update(long now, int limit, int remaining, long resetAfter) {
+            if (limit > 0) {
+                if (remaining == limit - 1 && resetAfter > 0) {
+                    // First request of a window, so reset-after spans the whole window
+                    this.window = resetAfter + WINDOW_MARGIN;
+                }
+                // Slots already reserved under the assumed limit still count against the real one
+                this.remaining += limit - this.limit;
+                this.limit = limit;
+            }
+            if (remaining < 0 || resetAfter < 0) return;
+            if (windowStart - now <= 0) {
+                // We are in the window the server reported on, so its view is authoritative
+                this.remaining = Math.min(this.remaining, remaining);
+                this.resetAt = now + resetAfter;
+            }
+        }
+
+        synchronized void exhaust(long now, long retryAfter) {
+            remaining = 0;
+            windowStart = now;
+            resetAt = now + retryAfter;
+        }
+
+    }
+
+}
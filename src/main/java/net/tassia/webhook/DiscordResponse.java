@@ -0,0 +1,73 @@
+package net.tassia.webhook;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Represents the response Discord sent for a webhook request.
+ */
+public class DiscordResponse {
+
+    private final int code;
+    private final Map<String, List<String>> headers;
+    private final String body;
+
+    /**
+     * Creates a new response object.
+     * @param code the HTTP status code
+     * @param headers the response headers
+     * @param body the response body, or <code>null</code> if there was none
+     */
+    public DiscordResponse(int code, Map<String, List<String>> headers, String body) {
+        if (headers == null) throw new NullPointerException();
+        this.code = code;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    /**
+     * Returns the HTTP status code.
+     * @return the status code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Returns all response headers. Header names are lower-case.
+     * @return the headers
+     */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Returns the first value of the given header.
+     * @param name the header name (case-insensitive)
+     * @return the header value, or <code>null</code> if the header is not present
+     */
+    public String getHeader(String name) {
+        List<String> values = headers.get(name.toLowerCase(Locale.ROOT));
+        if (values == null || values.isEmpty()) return null;
+        return values.get(0);
+    }
+
+    /**
+     * Returns the response body.
+     * @return the body, or <code>null</code> if there was none
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Returns whether the status code is in the range 200-299.
+     * @return is successful
+     */
+    public boolean isSuccessful() {
+        return code >= 200 && code < 300;
+    }
+
+}
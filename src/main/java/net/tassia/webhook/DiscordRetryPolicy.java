@@ -0,0 +1,255 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Defines how failed requests are retried, and when a webhook is considered down.
+ * <p>
+ * Requests that fail with a network error or a retryable status code (by default all <code>5xx</code> codes)
+ * are retried up to {@link Builder#withMaxAttempts(int) maxAttempts - 1} times. Before each retry the request waits
+ * for a random duration between zero and <code>baseDelay * 2^retry</code>, capped at <code>maxDelay</code>
+ * ("full jitter"), so clients that failed at the same time do not retry in lockstep. Requests with
+ * {@link DiscordPayload#isOneShot() one-shot} bodies are never retried.
+ * </p>
+ * <p>
+ * A <code>POST</code> that timed out may still have been accepted by Discord, so by default it is not retried,
+ * as that could post the message twice. Only errors that happen before the request reaches Discord, such as
+ * refused connections and unknown hosts, are retried. Timeouts of idempotent requests, such as edits and deletes,
+ * are always retried. See {@link Builder#withRetryOnTimeouts(boolean)}.
+ * </p>
+ * <p>
+ * Rate limited requests (<code>429 Too Many Requests</code>) are handled separately, see
+ * {@link DiscordWebhookClient.Builder#withMaxRateLimitRetries(int)}.
+ * </p>
+ */
+public final class DiscordRetryPolicy {
+
+    /**
+     * Never retries and never opens the circuit, except for deleted webhooks.
+     */
+    public static final DiscordRetryPolicy NONE = builder().withMaxAttempts(1).withCircuitBreaker(0, Duration.ZERO).build();
+
+    /**
+     * Up to 3 attempts, starting with a delay of up to 500ms, retrying network errors (except timed out messages)
+     * and <code>5xx</code> responses. The circuit opens for 30 seconds after 5 consecutive failures.
+     */
+    public static final DiscordRetryPolicy DEFAULT = builder().build();
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final boolean[] retryable;
+    private final boolean retryNetworkErrors;
+    private final boolean retryTimeouts;
+    private final int failureThreshold;
+    private final long openDuration;
+
+    private DiscordRetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelay = builder.baseDelay.toNanos();
+        this.maxDelay = builder.maxDelay.toNanos();
+        this.retryable = builder.retryable.clone();
+        this.retryNetworkErrors = builder.retryNetworkErrors;
+        this.retryTimeouts = builder.retryTimeouts;
+        this.failureThreshold = builder.failureThreshold;
+        this.openDuration = builder.openDuration.toNanos();
+    }
+
+    /**
+     * Returns a new builder that can be used to configure a retry policy.
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the maximum amount of attempts, including the first one.
+     * @return the maximum amount of attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns whether a response with the given status code is retried.
+     * @param code the status code
+     * @return is retryable
+     */
+    public boolean isRetryable(int code) {
+        return code >= 0 && code < retryable.length && retryable[code];
+    }
+
+    /**
+     * Returns whether a request that failed with the given network error is retried.
+     * @param method the HTTP method of the request, such as <code>POST</code>
+     * @param ex the error
+     * @return is retryable
+     */
+    public boolean isRetryable(String method, IOException ex) {
+        if (!retryNetworkErrors || ex instanceof DiscordCircuitOpenException) return false;
+        if (isTimeout(ex)) {
+            // The request may have been processed, so only repeat it if that is harmless
+            return retryTimeouts || !"POST".equals(method);
+        }
+        // Interrupts are not retried
+        return !(ex instanceof InterruptedIOException);
+    }
+
+    private static boolean isTimeout(IOException ex) {
+        if (ex instanceof HttpConnectTimeoutException) return false;
+        return ex instanceof SocketTimeoutException || ex instanceof HttpTimeoutException;
+    }
+
+    /**
+     * Returns a random delay for the given retry, with full jitter.
+     * @param retry the retry, starting at 1
+     * @return the delay in nanoseconds
+     */
+    long backoff(int retry) {
+        long ceiling = baseDelay << Math.min(retry - 1, 30);
+        if (ceiling <= 0 || ceiling > maxDelay) ceiling = maxDelay;
+        return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0L;
+    }
+
+    /**
+     * Creates a circuit breaker with the settings of this policy.
+     * @return the circuit breaker
+     */
+    DiscordCircuitBreaker newCircuitBreaker() {
+        return new DiscordCircuitBreaker(failureThreshold, openDuration);
+    }
+
+
+
+    /**
+     * This class is responsible for configuring a {@link DiscordRetryPolicy}.
+     */
+    public static class Builder {
+
+        private int maxAttempts = 3;
+        private Duration baseDelay = Duration.ofMillis(500);
+        private Duration maxDelay = Duration.ofSeconds(30);
+        private final boolean[] retryable = new boolean[600];
+        private boolean retryNetworkErrors = true;
+        private boolean retryTimeouts = false;
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        private Builder() {
+            Arrays.fill(retryable, 500, 600, true);
+        }
+
+        /**
+         * Sets the maximum amount of attempts, including the first one.
+         * @param maxAttempts the maximum amount of attempts
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>maxAttempts</code> is less than 1
+         */
+        public Builder withMaxAttempts(int maxAttempts) throws IllegalArgumentException {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff. The delay before the n-th retry is random between zero and
+         * <code>min(maxDelay, baseDelay * 2^(n-1))</code>.
+         * @param baseDelay the upper bound of the first delay
+         * @param maxDelay the upper bound of all delays
+         * @return <code>this</code>
+         */
+        public Builder withBackoff(Duration baseDelay, Duration maxDelay) {
+            if (baseDelay == null || maxDelay == null) throw new NullPointerException();
+            this.baseDelay = baseDelay;
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Sets the retryable status codes, replacing the default of all <code>5xx</code> codes.
+         * @param codes the status codes
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if a code is not between 100 and 599
+         */
+        public Builder withRetryableStatusCodes(int...codes) throws IllegalArgumentException {
+            Arrays.fill(retryable, false);
+            for (int code : codes) {
+                if (code < 100 || code >= 600) throw new IllegalArgumentException("Invalid status code: " + code);
+                retryable[code] = true;
+            }
+            return this;
+        }
+
+        /**
+         * Marks all status codes of a class as retryable, e.g. <code>5</code> for all <code>5xx</code> codes.
+         * @param statusClass the status class
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>statusClass</code> is not between 1 and 5
+         */
+        public Builder withRetryableStatusClass(int statusClass) throws IllegalArgumentException {
+            if (statusClass < 1 || statusClass > 5) throw new IllegalArgumentException("Invalid status class: " + statusClass);
+            Arrays.fill(retryable, statusClass * 100, statusClass * 100 + 100, true);
+            return this;
+        }
+
+        /**
+         * Sets whether network errors and timeouts are retried.
+         * @param retryNetworkErrors retry network errors
+         * @return <code>this</code>
+         */
+        public Builder withRetryOnNetworkErrors(boolean retryNetworkErrors) {
+            this.retryNetworkErrors = retryNetworkErrors;
+            return this;
+        }
+
+        /**
+         * Sets whether messages are sent again after a timeout. A timed out request may have reached Discord
+         * anyway, so enabling this can post a message twice. Timeouts of idempotent requests, such as edits and
+         * deletes, are retried regardless. Disabled by default.
+         * @param retryTimeouts retry timed out messages
+         * @return <code>this</code>
+         */
+        public Builder withRetryOnTimeouts(boolean retryTimeouts) {
+            this.retryTimeouts = retryTimeouts;
+            return this;
+        }
+
+        /**
+         * Configures the circuit breaker of each webhook.
+         * @param failureThreshold the amount of consecutive failures that open the circuit, or 0 to never open it
+         *                         (deleted webhooks still open it permanently)
+         * @param openDuration how long the circuit stays open before a request is let through again
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>failureThreshold</code> is negative
+         */
+        public Builder withCircuitBreaker(int failureThreshold, Duration openDuration) throws IllegalArgumentException {
+            if (openDuration == null) throw new NullPointerException();
+            if (failureThreshold < 0) {
+                throw new IllegalArgumentException("failureThreshold cannot be negative");
+            }
+            this.failureThreshold = failureThreshold;
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * Builds the retry policy.
+         * @return the retry policy
+         */
+        public DiscordRetryPolicy build() {
+            return new DiscordRetryPolicy(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A message shape that has been compiled once and can be rendered many times with different values.
+ * <p>
+ * Placeholders are written as <code>{{name}}</code> inside any string of a {@link DiscordWebhookBuilder} or its
+ * {@link DiscordEmbed}s (content, titles, field names and values, footers, URLs, ...). Compiling serializes the
+ * builder once and splits the JSON into static UTF-8 segments and placeholder slots. Rendering only escapes the
+ * values and copies them between the segments into a single, exactly sized array.
+ * </p>
+ * <p>
+ * Templates are immutable and thread-safe. Rendered values are not checked against the limits in
+ * {@link DiscordConstants}, so callers must make sure they fit.
+ * </p>
+ */
+public final class DiscordTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{([A-Za-z0-9_.-]+)}}");
+
+    private final byte[][] segments;
+    private final int[] slots;
+    private final List<String> placeholders;
+    private final int staticLength;
+
+    private DiscordTemplate(byte[][] segments, int[] slots, List<String> placeholders) {
+        this.segments = segments;
+        this.slots = slots;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (byte[] segment : segments) {
+            length += segment.length;
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * Compiles the given builder into a template.
+     * @param builder the builder
+     * @return the template
+     * @throws JsonProcessingException if something goes wrong while generating the JSON
+     */
+    public static DiscordTemplate compile(DiscordWebhookBuilder builder) throws JsonProcessingException {
+        String json = builder.getJSON();
+        Matcher matcher = PLACEHOLDER.matcher(json);
+        Map<String, Integer> indices = new LinkedHashMap<>();
+        List<byte[]> segments = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int start = 0;
+        while (matcher.find()) {
+            segments.add(json.substring(start, matcher.start()).getBytes(StandardCharsets.UTF_8));
+            Integer index = indices.get(matcher.group(1));
+            if (index == null) {
+                index = indices.size();
+                indices.put(matcher.group(1), index);
+            }
+            slots.add(index);
+            start = matcher.end();
+        }
+        segments.add(json.substring(start).getBytes(StandardCharsets.UTF_8));
+
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        List<String> placeholders = Collections.unmodifiableList(new ArrayList<>(indices.keySet()));
+        return new DiscordTemplate(segments.toArray(new byte[0][]), slotArray, placeholders);
+    }
+
+    /**
+     * Returns the names of all placeholders, in the order they first appear.
+     * This is the order expected by {@link #render(String...)}.
+     * @return the placeholder names
+     */
+    public List<String> getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Renders a message.
+     * @param values the value of each placeholder, in the order of {@link #getPlaceholders()}
+     * @return the message
+     * @throws IllegalArgumentException if the amount of values does not match the amount of placeholders,
+     * or a value is <code>null</code>
+     */
+    public DiscordMessage render(String... values) throws IllegalArgumentException {
+        if (values.length != placeholders.size()) {
+            throw new IllegalArgumentException("Expected " + placeholders.size() + " values, got " + values.length);
+        }
+
+        int length = staticLength;
+        for (int slot : slots) {
+            String value = values[slot];
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for placeholder: " + placeholders.get(slot));
+            }
+            length += JsonEscape.length(value);
+        }
+
+        byte[] json = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < slots.length; i++) {
+            System.arraycopy(segments[i], 0, json, offset, segments[i].length);
+            offset += segments[i].length;
+            offset = JsonEscape.write(values[slots[i]], json, offset);
+        }
+        byte[] last = segments[segments.length - 1];
+        System.arraycopy(last, 0, json, offset, last.length);
+        return new DiscordMessage(json);
+    }
+
+    /**
+     * Renders a message.
+     * @param values the value of each placeholder, by name
+     * @return the message
+     * @throws IllegalArgumentException if a value is missing
+     */
+    public DiscordMessage render(Map<String, String> values) throws IllegalArgumentException {
+        String[] array = new String[placeholders.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(placeholders.get(i));
+        }
+        return render(array);
+    }
+
+    @Override
+    public String toString() {
+        return "DiscordTemplate" + placeholders;
+    }
+
+}
@@ -1,9 +1,9 @@
 package net.tassia.webhook;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.*;
-
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,42 +12,92 @@ import java.util.regex.Pattern;
  */
 public class DiscordWebhook implements DiscordConstants {
 
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    /**
+     * Matches the URLs Discord hands out for webhooks, on all of its hosts and with or without an API version.
+     * Group 1 is the ID, group 2 the token.
+     */
+    static final Pattern URL_PATTERN = Pattern.compile(
+        "https://(?:(?:ptb|canary)\\.)?discord(?:app)?\\.com/api(?:/v[0-9]+)?/webhooks/([0-9]{1,20})/([a-zA-Z0-9_-]+)/?");
 
     private final long id;
     private final String token;
-    private final ObjectMapper mapper;
-    private final OkHttpClient client;
+    private final String route;
+    private final String url;
+    private final DiscordWebhookClient webhookClient;
+    private volatile DiscordWebhookMetrics metrics;
+
+    // Resolved on first use, so requests do not have to look them up in the client
+    private volatile DiscordCircuitBreaker circuitBreaker = null;
+    private volatile DiscordRateLimiter.Route rateLimit = null;
 
     /**
-     * Creates a new Discord webhook object with the given URL.
+     * Creates a new Discord webhook object with the given URL, bound to the
+     * {@link DiscordWebhookClient#getDefault() default client}. The URL may point to any Discord host
+     * (<code>discord.com</code>, <code>discordapp.com</code>, <code>ptb.</code> or <code>canary.</code>) and may
+     * contain an API version. Applications that look up webhooks by URL repeatedly should use a
+     * {@link DiscordWebhookRegistry}.
      * @param url the webhook url
      * @throws IllegalArgumentException if the url does not match a valid Discord webhook url
      */
     public DiscordWebhook(String url) throws IllegalArgumentException {
-        Pattern pattern = Pattern.compile("https://discordapp\\.com/api/webhooks/([0-9]+)/([a-zA-Z0-9-_]+)");
-        Matcher matcher = pattern.matcher(url);
+        this(DiscordWebhookClient.getDefault(), url);
+    }
+
+    /**
+     * Creates a new Discord webhook object with the given ID and token, bound to the
+     * {@link DiscordWebhookClient#getDefault() default client}.
+     * @param id the ID
+     * @param token the token
+     */
+    public DiscordWebhook(long id, String token) {
+        this(DiscordWebhookClient.getDefault(), id, token);
+    }
+
+    DiscordWebhook(DiscordWebhookClient webhookClient, String url) throws IllegalArgumentException {
+        this(webhookClient, parse(url));
+    }
 
+    private DiscordWebhook(DiscordWebhookClient webhookClient, Matcher matcher) {
+        this(webhookClient, parseID(matcher.group(1)), matcher.group(2));
+    }
+
+    /**
+     * Matches a webhook URL.
+     * @param url the webhook url
+     * @return the matcher, with the ID in group 1 and the token in group 2
+     * @throws IllegalArgumentException if the url does not match a valid Discord webhook url
+     */
+    static Matcher parse(String url) throws IllegalArgumentException {
+        if (url == null) throw new NullPointerException();
+        Matcher matcher = URL_PATTERN.matcher(url);
         if (!matcher.matches()) {
             throw new IllegalArgumentException("url does not match a valid Discord webhook url");
         }
-
-        this.id = Long.parseLong(matcher.group(1));
-        this.token = matcher.group(2);
-        this.mapper = new ObjectMapper();
-        this.client = new OkHttpClient();
+        return matcher;
     }
 
     /**
-     * Creates a new Discord webhook object with the given ID and token.
+     * Parses the ID group of a matched webhook URL.
      * @param id the ID
-     * @param token the token
+     * @return the ID
+     * @throws IllegalArgumentException if the ID is out of range
      */
-    public DiscordWebhook(long id, String token) {
+    static long parseID(String id) throws IllegalArgumentException {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("url does not match a valid Discord webhook url");
+        }
+    }
+
+    DiscordWebhook(DiscordWebhookClient webhookClient, long id, String token) {
+        if (webhookClient == null || token == null) throw new NullPointerException();
         this.id = id;
         this.token = token;
-        this.mapper = new ObjectMapper();
-        this.client = new OkHttpClient();
+        this.route = id + "/" + token;
+        this.url = webhookClient.getBaseURL() + "/webhooks/" + route;
+        this.webhookClient = webhookClient;
+        this.metrics = webhookClient.getMetrics();
     }
 
     /**
@@ -67,33 +117,167 @@ public class DiscordWebhook implements DiscordConstants {
     }
 
     /**
-     * Returns a new webhook builder that can be used to execute this webhook.
+     * Returns the key identifying the rate limit bucket of this webhook.
+     * @return the route key
+     */
+    String getRoute() {
+        return route;
+    }
+
+    /**
+     * Returns the client this webhook sends its requests through.
+     * @return the client
+     */
+    public DiscordWebhookClient getClient() {
+        return webhookClient;
+    }
+
+    /**
+     * Returns the circuit breaker of this webhook. It is shared by all webhook objects of the same client
+     * with the same ID and token, until a {@link DiscordWebhookRegistry} evicts the webhook.
+     * @return the circuit breaker
+     */
+    public DiscordCircuitBreaker getCircuitBreaker() {
+        DiscordCircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (circuitBreaker == null) {
+            circuitBreaker = webhookClient.getCircuitBreaker(route);
+            this.circuitBreaker = circuitBreaker;
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns the rate limit state of this webhook. Like the circuit breaker, it is shared by all webhook objects
+     * of the same client with the same ID and token.
+     * @return the rate limit state
+     */
+    DiscordRateLimiter.Route getRateLimit() {
+        DiscordRateLimiter.Route rateLimit = this.rateLimit;
+        if (rateLimit == null) {
+            rateLimit = webhookClient.getRateLimit(route);
+            this.rateLimit = rateLimit;
+        }
+        return rateLimit;
+    }
+
+    /**
+     * Returns the metrics listener of this webhook.
+     * @return the metrics listener
+     */
+    public DiscordWebhookMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics listener of this webhook, replacing the default listener of the client.
+     * @param metrics the metrics listener
+     */
+    public void setMetrics(DiscordWebhookMetrics metrics) {
+        if (metrics == null) throw new NullPointerException();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns a webhook builder that can be used to execute this webhook. If the client
+     * {@link DiscordWebhookClient.Builder#withBuilderPooling(boolean) pools builders}, this is the
+     * {@link DiscordWebhookBuilder#reset() reset} builder of the current thread, otherwise a new one.
      * @return the builder
      */
     public DiscordWebhookBuilder builder() {
-        return new DiscordWebhookBuilder(this, mapper);
+        return webhookClient.newBuilder(this);
     }
 
     /**
-     * Returns the URL of this webhook.
+     * Returns the URL of this webhook. It is based on the {@link DiscordWebhookClient#getBaseURL() base URL}
+     * of the client.
      * @return the URL
      */
     public String getURL() {
-        return "https://discordapp.com/api/webhooks/" + getID() + "/" + getToken();
+        return url;
     }
 
     /**
      * Sends a JSON payload to this webhook using a POST method.
+     * If the rate limit of this webhook is exhausted, this method waits until it resets.
      * @param jsonPayload the payload
      * @throws IOException if an I/O error occurs
      */
     public void execute(String jsonPayload) throws IOException {
-        RequestBody body = RequestBody.create(jsonPayload, JSON);
-        Request request = new Request.Builder().url(getURL()).post(body).build();
-        Response response = client.newCall(request).execute();
-        if (response.code() != 204) {
-            throw new IOException("Unexpected response: " + response.code());
-        }
+        execute(DiscordMessage.of(jsonPayload));
+    }
+
+    /**
+     * Sends a JSON payload to this webhook using a POST method, without blocking the calling thread.
+     * <p>
+     * If the rate limit of this webhook is exhausted, the request is scheduled for when the limit resets.
+     * If Discord responds with anything other than <code>204 No Content</code>, the returned future
+     * completes exceptionally with a {@link DiscordWebhookException}.
+     * Cancelling the future cancels the underlying HTTP call.
+     * </p>
+     * @param jsonPayload the payload
+     * @return a future that completes with the response
+     */
+    public CompletableFuture<DiscordResponse> executeAsync(String jsonPayload) {
+        return executeAsync(DiscordMessage.of(jsonPayload));
+    }
+
+    /**
+     * Sends a payload to this webhook using a POST method.
+     * If the rate limit of this webhook is exhausted, this method waits until it resets.
+     * @param payload the payload
+     * @throws IOException if an I/O error occurs
+     */
+    public void execute(DiscordPayload payload) throws IOException {
+        WebhookRequest request = new WebhookRequest("POST", getURL(), payload);
+        webhookClient.execute(this, request, 204);
+    }
+
+    /**
+     * Sends a payload to this webhook using a POST method, without blocking the calling thread.
+     * The payload is written on a dispatcher thread, so it must not change until the returned future completes.
+     * @param payload the payload
+     * @return a future that completes with the response
+     * @see #executeAsync(String)
+     */
+    public CompletableFuture<DiscordResponse> executeAsync(DiscordPayload payload) {
+        WebhookRequest request = new WebhookRequest("POST", getURL(), payload);
+        return webhookClient.executeAsync(this, request, 204);
+    }
+
+    /**
+     * Sends a payload to this webhook and waits until Discord has created the message, so it can be edited
+     * or deleted afterwards.
+     * @param payload the payload
+     * @return the handle of the created message
+     * @throws IOException if an I/O error occurs
+     */
+    public DiscordMessageHandle executeAndWait(DiscordPayload payload) throws IOException {
+        WebhookRequest request = new WebhookRequest("POST", getURL() + "?wait=true", payload);
+        return toHandle(webhookClient.execute(this, request, 200));
+    }
+
+    /**
+     * Sends a payload to this webhook without blocking the calling thread, and completes once Discord has
+     * created the message, so it can be edited or deleted afterwards.
+     * @param payload the payload
+     * @return a future that completes with the handle of the created message
+     * @see #executeAsync(DiscordPayload)
+     */
+    public CompletableFuture<DiscordMessageHandle> executeAndWaitAsync(DiscordPayload payload) {
+        WebhookRequest request = new WebhookRequest("POST", getURL() + "?wait=true", payload);
+        return webhookClient.executeAsync(this, request, 200).thenApply(response -> {
+            try {
+                return toHandle(response);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    private DiscordMessageHandle toHandle(DiscordResponse response) throws IOException {
+        Map<String, String> message = JsonFields.parse(response.getBody());
+        if (message == null || message.get("id") == null) throw new DiscordWebhookException(response);
+        return new DiscordMessageHandle(this, message.get("id"));
     }
 
     /**
@@ -101,26 +285,14 @@ public class DiscordWebhook implements DiscordConstants {
      * @throws IOException if an I/O error occurs
      */
     public void delete() throws IOException {
-        Request request = new Request.Builder().url(getURL()).delete().build();
-        Response response = client.newCall(request).execute();
-        if (response.code() != 204) {
-            throw new IOException("Unexpected response: " + response.code());
-        }
+        WebhookRequest request = new WebhookRequest("DELETE", getURL(), null);
+        webhookClient.execute(this, request, 204);
     }
 
-    private void applySettings(Object update) throws IOException {
-        String json = mapper.writeValueAsString(update);
-        RequestBody body = RequestBody.create(json, JSON);
-        Request request = new Request.Builder().url(getURL()).patch(body).build();
-        Response response = client.newCall(request).execute();
-        if (response.code() != 20) {
-            ResponseBody responseBody = response.body();
-            if (responseBody != null) {
-                throw new IOException("Unexpected response: " + response.code() + "\n\n" + responseBody.string());
-            } else {
-                throw new IOException("Unexpected response: " + response.code());
-            }
-        }
+    private void applySettings(byte[] json) throws IOException {
+        DiscordMessage body = new DiscordMessage(json);
+        WebhookRequest request = new WebhookRequest("PATCH", getURL(), body);
+        webhookClient.execute(this, request, 200);
     }
 
     /**
@@ -129,9 +301,13 @@ public class DiscordWebhook implements DiscordConstants {
      * @throws IOException if an I/O error occurs
      */
     public void setName(String name) throws IOException {
+        if (webhookClient.getSerializationMode() == DiscordWebhookClient.SerializationMode.BUILT_IN) {
+            applySettings(DiscordJsonWriter.write("name", name));
+            return;
+        }
         UpdateNameJson data = new UpdateNameJson();
         data.name = name;
-        applySettings(data);
+        applySettings(webhookClient.getMapper().writeValueAsBytes(data));
     }
 
     private static class UpdateNameJson {
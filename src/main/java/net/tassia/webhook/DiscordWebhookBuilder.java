@@ -3,30 +3,74 @@ package net.tassia.webhook;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This class is responsible for building and executing a webhook.
  */
 public class DiscordWebhookBuilder implements DiscordConstants {
 
-    private final DiscordWebhook webhook;
-    private final ObjectMapper mapper;
+    private DiscordWebhook webhook;
     private String content = null;
     private String username = null;
     private String avatarUrl = null;
     private boolean tts = false;
     private final Collection<DiscordEmbed> embeds = new ArrayList<>();
+    private final List<DiscordAttachment> files = new ArrayList<>();
+    private long filesSize = 0L;
+    private boolean splitting = false;
 
-    DiscordWebhookBuilder(DiscordWebhook webhook, ObjectMapper mapper) {
-        if (webhook == null || mapper == null) throw new NullPointerException();
+    // Embeds created by embed(), reset and reused after this builder has been reset
+    private final List<DiscordEmbed> ownEmbeds = new ArrayList<>();
+    private int ownEmbedsUsed = 0;
+
+    DiscordWebhookBuilder(DiscordWebhook webhook) {
+        if (webhook == null) throw new NullPointerException();
+        this.webhook = webhook;
+    }
+
+    /**
+     * Clears this builder, so it can be filled again instead of creating a new one. Embeds created by
+     * {@link #embed()} are {@link DiscordEmbed#reset() reset} and reused by the next calls, embeds added with
+     * {@link #withEmbed(DiscordEmbed)} are only removed. Splitting is disabled again.
+     * @return <code>this</code>
+     */
+    public DiscordWebhookBuilder reset() {
+        content = null;
+        username = null;
+        avatarUrl = null;
+        tts = false;
+        embeds.clear();
+        files.clear();
+        filesSize = 0L;
+        splitting = false;
+        for (int i = 0; i < ownEmbedsUsed; i++) {
+            ownEmbeds.get(i).reset();
+        }
+        ownEmbedsUsed = 0;
+        return this;
+    }
+
+    /**
+     * Resets this builder and binds it to another webhook.
+     * @param webhook the webhook
+     * @return <code>this</code>
+     */
+    DiscordWebhookBuilder reset(DiscordWebhook webhook) {
+        if (webhook == null) throw new NullPointerException();
         this.webhook = webhook;
-        this.mapper = mapper;
+        return reset();
     }
 
     /**
@@ -36,26 +80,303 @@ public class DiscordWebhookBuilder implements DiscordConstants {
      */
     @JsonIgnore
     public String getJSON() throws JsonProcessingException {
-        return mapper.writeValueAsString(this);
+        if (isBuiltIn()) return new String(DiscordJsonWriter.write(this), StandardCharsets.UTF_8);
+        return webhook.getClient().getMapper().writeValueAsString(this);
     }
 
     /**
-     * Returns a pretty JSON string of the payload.
+     * Returns a pretty JSON string of the payload. This always uses the Jackson mapper of the client.
      * @return the pretty JSON payload
      * @throws JsonProcessingException if something goes wrong while generating the JSON
      */
     @JsonIgnore
     public String getPrettyJSON() throws JsonProcessingException {
-        return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(this);
+        return webhook.getClient().getMapper().writerWithDefaultPrettyPrinter().writeValueAsString(this);
+    }
+
+    private boolean isBuiltIn() {
+        return webhook.getClient().getSerializationMode() == DiscordWebhookClient.SerializationMode.BUILT_IN;
+    }
+
+    private byte[] toBytes() throws JsonProcessingException {
+        long start = System.nanoTime();
+        byte[] json = isBuiltIn() ? DiscordJsonWriter.write(this) : webhook.getClient().getMapper().writeValueAsBytes(this);
+        webhook.getMetrics().onSerialized(webhook, System.nanoTime() - start, json.length);
+        return json;
+    }
+
+    /**
+     * Validates and serializes this builder into an immutable message, which can be sent any number of times.
+     * Later changes to this builder do not affect the message.
+     * @return the message
+     * @throws IllegalStateException if the message has files, has neither content nor embeds,
+     * or exceeds the limits of Discord (see {@link #split()})
+     * @throws JsonProcessingException if something goes wrong while generating the JSON
+     */
+    public DiscordMessage freeze() throws IllegalStateException, JsonProcessingException {
+        if (!files.isEmpty()) {
+            throw new IllegalStateException("Messages with files cannot be frozen.");
+        }
+        validate();
+        return new DiscordMessage(toBytes());
+    }
+
+    /**
+     * Compiles this builder into a template. Strings may contain <code>{{name}}</code> placeholders.
+     * @return the template
+     * @throws JsonProcessingException if something goes wrong while generating the JSON
+     * @see DiscordTemplate
+     */
+    public DiscordTemplate compile() throws JsonProcessingException {
+        return DiscordTemplate.compile(this);
+    }
+
+    private void validate() throws IllegalStateException {
+        if (content == null && embeds.isEmpty() && files.isEmpty()) {
+            throw new IllegalStateException("Message has neither content, embeds nor files.");
+        }
+        if (content != null && content.length() > LIMIT_CONTENT) {
+            throw new IllegalStateException("Content is too long (max. " + LIMIT_CONTENT + ")");
+        }
+        if (embeds.size() > LIMIT_EMBEDS) {
+            throw new IllegalStateException("Too many embeds. (max. " + LIMIT_EMBEDS + ")");
+        }
+        for (DiscordEmbed embed : embeds) {
+            if (!embed.isValid()) throw new IllegalStateException("Embed exceeds the limits of Discord and must be split.");
+        }
+        if (length() > LIMIT_TOTAL) {
+            throw new IllegalStateException("Embeds are too long (max. " + LIMIT_TOTAL + ")");
+        }
     }
 
     /**
-     * Executes this webhook.
+     * Returns whether this message is within all limits of Discord, so it can be sent without splitting.
+     * @return is valid
+     */
+    boolean isValid() {
+        if (content != null && content.length() > LIMIT_CONTENT) return false;
+        if (embeds.size() > LIMIT_EMBEDS) return false;
+        for (DiscordEmbed embed : embeds) {
+            if (!embed.isValid()) return false;
+        }
+        return length() <= LIMIT_TOTAL;
+    }
+
+    /**
+     * Returns the amount of characters of all embeds that count towards {@link #LIMIT_TOTAL}.
+     * Embeds keep their own count up to date, so this is O(1) per embed. The builder does not keep a total of its
+     * own, as embeds may still be changed after they have been added, so callers should not call this in a loop.
+     * @return the length
+     */
+    int length() {
+        int length = 0;
+        for (DiscordEmbed embed : embeds) {
+            length += embed.length();
+        }
+        return length;
+    }
+
+    /**
+     * Splits this message into the smallest sequence of messages that are within all limits of Discord.
+     * Long content is cut at line breaks and code blocks are closed and reopened across messages, embeds that
+     * {@link DiscordEmbed#setSplitting(boolean) allow splitting} are split, and embeds are packed into as few
+     * messages as possible, in order. The username and avatar are kept on every message, text-to-speech only on the
+     * first one and files are attached to the last one. If this message is already within the limits,
+     * a list containing only this builder is returned.
+     * @return the messages, in the order they should be sent
+     * @throws IllegalStateException if the message has neither content, embeds nor files
+     */
+    public List<DiscordWebhookBuilder> split() throws IllegalStateException {
+        if (content == null && embeds.isEmpty() && files.isEmpty()) {
+            throw new IllegalStateException("Message has neither content, embeds nor files.");
+        }
+        if (isValid()) return Collections.singletonList(this);
+
+        List<DiscordWebhookBuilder> parts = new ArrayList<>();
+        DiscordWebhookBuilder current = null;
+        if (content != null) {
+            for (String chunk : TextSplitter.split(content, LIMIT_CONTENT)) {
+                current = part(parts.isEmpty());
+                current.content = chunk;
+                parts.add(current);
+            }
+        }
+        // Length of the embeds of the current part, so it is not counted again for every piece
+        int length = 0;
+        for (DiscordEmbed embed : embeds) {
+            for (DiscordEmbed piece : embed.split()) {
+                int pieceLength = piece.length();
+                if (current == null || current.embeds.size() >= LIMIT_EMBEDS || length + pieceLength > LIMIT_TOTAL) {
+                    current = part(parts.isEmpty());
+                    parts.add(current);
+                    length = 0;
+                }
+                current.embeds.add(piece);
+                length += pieceLength;
+            }
+        }
+        if (!files.isEmpty()) {
+            if (current == null) {
+                current = part(true);
+                parts.add(current);
+            }
+            current.files.addAll(files);
+            current.filesSize = filesSize;
+        }
+        return parts;
+    }
+
+    private DiscordWebhookBuilder part(boolean first) {
+        DiscordWebhookBuilder part = new DiscordWebhookBuilder(webhook);
+        part.username = username;
+        part.avatarUrl = avatarUrl;
+        part.tts = first && tts;
+        return part;
+    }
+
+    private DiscordPayload toMultipart() throws IllegalStateException, JsonProcessingException {
+        validate();
+        return new MultipartPayload(toBytes(), new ArrayList<>(files));
+    }
+
+    /**
+     * Validates and serializes this builder into a payload that can be sent asynchronously.
+     * @return the frozen message, or a multipart payload if files are attached
+     * @throws IllegalStateException if the message has neither content, embeds nor files,
+     * or exceeds the limits of Discord
+     * @throws JsonProcessingException if something goes wrong while generating the JSON
+     */
+    DiscordPayload toPayload() throws IllegalStateException, JsonProcessingException {
+        return files.isEmpty() ? freeze() : toMultipart();
+    }
+
+    /**
+     * Executes this webhook. The payload is serialized straight into the request body.
+     * If files are attached, they are streamed into a <code>multipart/form-data</code> request.
+     * If {@link #withSplitting(boolean) splitting} is enabled, the {@link #split() split} messages are sent in order.
      * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the message has neither content, embeds nor files,
+     * or exceeds the limits of Discord
      */
     @JsonIgnore
-    public void execute() throws IOException {
-        webhook.execute(getJSON());
+    public void execute() throws IOException, IllegalStateException {
+        if (splitting) {
+            for (DiscordWebhookBuilder part : split()) {
+                part.send();
+            }
+        } else {
+            send();
+        }
+    }
+
+    private void send() throws IOException {
+        if (files.isEmpty()) {
+            validate();
+            if (isBuiltIn()) {
+                webhook.execute(new DiscordMessage(toBytes()));
+            } else {
+                webhook.execute(new JacksonPayload(webhook, this));
+            }
+        } else {
+            webhook.execute(toMultipart());
+        }
+    }
+
+    /**
+     * Executes this webhook without blocking the calling thread.
+     * The payload is {@link #freeze() frozen} before this method returns, so the builder may be modified afterwards.
+     * If {@link #withSplitting(boolean) splitting} is enabled, the {@link #split() split} messages are sent in order
+     * and the future completes with the response of the last one.
+     * @return a future that completes with the response
+     * @see DiscordWebhook#executeAsync(DiscordPayload)
+     */
+    @JsonIgnore
+    public CompletableFuture<DiscordResponse> executeAsync() {
+        // Pooled builders may be bound to another webhook before the parts have been sent
+        DiscordWebhook webhook = this.webhook;
+        try {
+            if (!splitting) {
+                return webhook.executeAsync(toPayload());
+            }
+            CompletableFuture<DiscordResponse> future = null;
+            for (DiscordWebhookBuilder part : split()) {
+                DiscordPayload payload = part.toPayload();
+                future = future == null ? webhook.executeAsync(payload) : future.thenCompose(response -> webhook.executeAsync(payload));
+            }
+            return future;
+        } catch (JsonProcessingException | IllegalStateException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Executes this webhook and waits until Discord has created the message, so it can be edited or deleted
+     * afterwards. If {@link #withSplitting(boolean) splitting} is enabled, the {@link #split() split} messages are
+     * sent in order and the handle of the last one is returned.
+     * @return the handle of the created message
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the message has neither content, embeds nor files,
+     * or exceeds the limits of Discord
+     */
+    @JsonIgnore
+    public DiscordMessageHandle executeAndWait() throws IOException, IllegalStateException {
+        if (!splitting) return webhook.executeAndWait(toPayload());
+        List<DiscordWebhookBuilder> parts = split();
+        for (int i = 0; i < parts.size() - 1; i++) {
+            parts.get(i).send();
+        }
+        return webhook.executeAndWait(parts.get(parts.size() - 1).toPayload());
+    }
+
+    /**
+     * Executes this webhook without blocking the calling thread, and completes once Discord has created the
+     * message, so it can be edited or deleted afterwards.
+     * The payload is {@link #freeze() frozen} before this method returns, so the builder may be modified afterwards.
+     * If {@link #withSplitting(boolean) splitting} is enabled, the {@link #split() split} messages are sent in order
+     * and the future completes with the handle of the last one.
+     * @return a future that completes with the handle of the created message
+     * @see DiscordWebhook#executeAndWaitAsync(DiscordPayload)
+     */
+    @JsonIgnore
+    public CompletableFuture<DiscordMessageHandle> executeAndWaitAsync() {
+        DiscordWebhook webhook = this.webhook;
+        try {
+            if (!splitting) {
+                return webhook.executeAndWaitAsync(toPayload());
+            }
+            List<DiscordWebhookBuilder> parts = split();
+            CompletableFuture<DiscordResponse> future = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < parts.size() - 1; i++) {
+                DiscordPayload payload = parts.get(i).toPayload();
+                future = future.thenCompose(response -> webhook.executeAsync(payload));
+            }
+            DiscordPayload last = parts.get(parts.size() - 1).toPayload();
+            return future.thenCompose(response -> webhook.executeAndWaitAsync(last));
+        } catch (JsonProcessingException | IllegalStateException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Sets whether this message may exceed the limits of Discord. If enabled, the content may be longer than
+     * {@link #LIMIT_CONTENT}, there may be more than {@link #LIMIT_EMBEDS} embeds and the embeds may be longer than
+     * {@link #LIMIT_TOTAL}. When executed, the message is {@link #split() split} into as few messages as possible,
+     * which are sent in order.
+     * @param splitting allow splitting
+     * @return <code>this</code>
+     */
+    public DiscordWebhookBuilder withSplitting(boolean splitting) {
+        this.splitting = splitting;
+        return this;
+    }
+
+    /**
+     * Returns whether this message may exceed the limits of Discord and is split when executed.
+     * @return is splitting
+     */
+    @JsonIgnore
+    public boolean isSplitting() {
+        return splitting;
     }
 
     /**
@@ -63,9 +384,10 @@ public class DiscordWebhookBuilder implements DiscordConstants {
      * @param content the content
      * @return <code>this</code>
      * @throws IllegalArgumentException if <code>content</code> is longer than {@link #LIMIT_CONTENT}
+     * and splitting is disabled
      */
     public DiscordWebhookBuilder withContent(String content) throws IllegalArgumentException {
-        if (content.length() > LIMIT_CONTENT) {
+        if (!splitting && content.length() > LIMIT_CONTENT) {
             throw new IllegalArgumentException("Content is too long (max. " + LIMIT_CONTENT + ")");
         }
         this.content = content;
@@ -138,32 +460,153 @@ public class DiscordWebhookBuilder implements DiscordConstants {
         return tts;
     }
 
-    // TODO: With file
+    /**
+     * Attaches a file. The file is streamed from disk when the webhook is executed.
+     * @param file the file
+     * @return <code>this</code>
+     * @throws IOException if the size of the file cannot be determined
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_FILES} files,
+     * or they would be larger than {@link #LIMIT_FILE_SIZE} bytes combined
+     */
+    public DiscordWebhookBuilder withFile(Path file) throws IOException, IllegalArgumentException {
+        return withFile(file.getFileName().toString(), file);
+    }
+
+    /**
+     * Attaches a file. The file is streamed from disk when the webhook is executed.
+     * @param name the file name shown in Discord
+     * @param file the file
+     * @return <code>this</code>
+     * @throws IOException if the size of the file cannot be determined
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_FILES} files,
+     * or they would be larger than {@link #LIMIT_FILE_SIZE} bytes combined
+     */
+    public DiscordWebhookBuilder withFile(String name, Path file) throws IOException, IllegalArgumentException {
+        return withFile(DiscordAttachment.of(name, file));
+    }
+
+    /**
+     * Attaches the remaining bytes of a buffer as a file. The buffer is not copied,
+     * so its content must not change until the webhook has been executed.
+     * @param name the file name shown in Discord
+     * @param data the data
+     * @return <code>this</code>
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_FILES} files,
+     * or they would be larger than {@link #LIMIT_FILE_SIZE} bytes combined
+     */
+    public DiscordWebhookBuilder withFile(String name, ByteBuffer data) throws IllegalArgumentException {
+        return withFile(DiscordAttachment.of(name, data));
+    }
+
+    /**
+     * Attaches a file that is read from a stream. The stream is read when the webhook is executed,
+     * and it can only be read once, so the request is not retried if it is rate limited.
+     * @param name the file name shown in Discord
+     * @param in the stream
+     * @param size the amount of bytes to read from the stream
+     * @return <code>this</code>
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_FILES} files,
+     * or they would be larger than {@link #LIMIT_FILE_SIZE} bytes combined
+     */
+    public DiscordWebhookBuilder withFile(String name, InputStream in, long size) throws IllegalArgumentException {
+        return withFile(DiscordAttachment.of(name, in, size));
+    }
 
-    // TODO: Get files
+    /**
+     * Attaches a file.
+     * @param file the file
+     * @return <code>this</code>
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_FILES} files,
+     * or they would be larger than {@link #LIMIT_FILE_SIZE} bytes combined
+     */
+    public DiscordWebhookBuilder withFile(DiscordAttachment file) throws IllegalArgumentException {
+        if (file == null) throw new NullPointerException("File cannot be null.");
+        if (files.size() >= LIMIT_FILES) {
+            throw new IllegalArgumentException("Too many files. (max. " + LIMIT_FILES + ")");
+        }
+        if (filesSize + file.getSize() > LIMIT_FILE_SIZE) {
+            throw new IllegalArgumentException("Files are too large. (max. " + LIMIT_FILE_SIZE + " bytes)");
+        }
+        files.add(file);
+        filesSize += file.getSize();
+        return this;
+    }
+
+    /**
+     * Returns all files currently attached.
+     * @return files
+     */
+    @JsonIgnore
+    public List<DiscordAttachment> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
 
     /**
      * Adds an embed.
      * @param embed the embed
      * @return <code>this</code>
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_EMBEDS} embeds, or they would be
+     * longer than {@link #LIMIT_TOTAL} characters combined, and splitting is disabled
      */
-    public DiscordWebhookBuilder withEmbed(DiscordEmbed embed) {
-        if (this.embeds.size() >= LIMIT_EMBEDS) {
-            throw new IllegalArgumentException("Too many embeds. (max. " + LIMIT_EMBEDS + ")");
-        }
-        if (embed == null) throw new NullPointerException("Embed cannot be null.");
+    public DiscordWebhookBuilder withEmbed(DiscordEmbed embed) throws IllegalArgumentException {
+        checkEmbed(embed);
         embeds.add(embed);
         return this;
     }
 
+    /**
+     * Adds an empty embed and returns it. Unlike embeds added with {@link #withEmbed(DiscordEmbed)}, embeds created
+     * this way belong to this builder: they are reset and reused after {@link #reset()}, so they must not be
+     * added to other builders.
+     * @return the embed
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_EMBEDS} embeds
+     * and splitting is disabled
+     */
+    public DiscordEmbed embed() throws IllegalArgumentException {
+        DiscordEmbed embed;
+        if (ownEmbedsUsed < ownEmbeds.size()) {
+            embed = ownEmbeds.get(ownEmbedsUsed);
+        } else {
+            embed = new DiscordEmbed();
+            ownEmbeds.add(embed);
+        }
+        checkEmbed(embed);
+        embeds.add(embed);
+        ownEmbedsUsed++;
+        return embed;
+    }
+
+    private void checkEmbed(DiscordEmbed embed) throws IllegalArgumentException {
+        if (embed == null) throw new NullPointerException("Embed cannot be null.");
+        if (!splitting) {
+            if (this.embeds.size() >= LIMIT_EMBEDS) {
+                throw new IllegalArgumentException("Too many embeds. (max. " + LIMIT_EMBEDS + ")");
+            }
+            if (length() + embed.length() > LIMIT_TOTAL) {
+                throw new IllegalArgumentException("Embeds are too long (max. " + LIMIT_TOTAL + ")");
+            }
+        }
+    }
+
     /**
      * Adds an array of embeds.
      * @param embeds the embeds
      * @return <code>this</code>
+     * @throws IllegalArgumentException if there would be more than {@link #LIMIT_EMBEDS} embeds, or they would be
+     * longer than {@link #LIMIT_TOTAL} characters combined, and splitting is disabled
      */
-    public DiscordWebhookBuilder withEmbeds(DiscordEmbed...embeds) {
-        if (this.embeds.size() + embeds.length > LIMIT_EMBEDS) {
-            throw new IllegalArgumentException("Too many embeds. (max. " + LIMIT_EMBEDS + ")");
+    public DiscordWebhookBuilder withEmbeds(DiscordEmbed...embeds) throws IllegalArgumentException {
+        if (!splitting) {
+            if (this.embeds.size() + embeds.length > LIMIT_EMBEDS) {
+                throw new IllegalArgumentException("Too many embeds. (max. " + LIMIT_EMBEDS + ")");
+            }
+            int length = length();
+            for (DiscordEmbed embed : embeds) {
+                length += embed.length();
+            }
+            if (length > LIMIT_TOTAL) {
+                throw new IllegalArgumentException("Embeds are too long (max. " + LIMIT_TOTAL + ")");
+            }
         }
         this.embeds.addAll(Arrays.asList(embeds));
         return this;
@@ -0,0 +1,1132 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the transport, connection pool and JSON mapper that are shared by all webhooks created through it.
+ * <p>
+ * Creating a client is expensive, creating a webhook through a client is cheap. Applications that talk to many
+ * webhooks should create one client (or use {@link #getDefault()}) and obtain their webhooks from it, so that
+ * sockets, TLS sessions and dispatcher threads are reused.
+ * </p>
+ */
+public class DiscordWebhookClient implements Closeable {
+
+    /**
+     * Defines the default base URL of the Discord API.
+     */
+    public static final String DEFAULT_BASE_URL = "https://discordapp.com/api";
+
+    // Discord's JSON error code for "Unknown Webhook"
+    private static final int UNKNOWN_WEBHOOK = 10015;
+
+    private static final Object DEFAULT_LOCK = new Object();
+    private static volatile DiscordWebhookClient defaultClient = null;
+
+    private final WebhookTransport transport;
+    private final SerializationMode serializationMode;
+    private final ObjectMapper customMapper;
+    private volatile ObjectMapper mapper = null;
+    private final ThreadLocal<DiscordWebhookBuilder> builders;
+    private final String baseUrl;
+    private final DiscordRateLimiter rateLimiter;
+    private final int maxRateLimitRetries;
+    private final DiscordRetryPolicy retryPolicy;
+    private final Map<String, DiscordCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final DiscordWebhookMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutionMode executionMode;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Map<String, Semaphore> hostPermits;
+    private final int maxRequestsPerHost;
+    private volatile long lastCallEnd = System.nanoTime();
+
+    private DiscordWebhookClient(Builder builder) {
+        if (builder.transport != null) {
+            this.transport = builder.transport;
+        } else if (builder.transportType == TransportType.JDK) {
+            this.transport = new JdkWebhookTransport(builder);
+        } else {
+            this.transport = new OkHttpWebhookTransport(builder);
+        }
+        this.serializationMode = builder.serializationMode;
+        this.customMapper = builder.mapper;
+        this.builders = builder.builderPooling ? new ThreadLocal<>() : null;
+        this.baseUrl = builder.baseUrl;
+        this.rateLimiter = new DiscordRateLimiter();
+        this.maxRateLimitRetries = builder.maxRateLimitRetries;
+        this.retryPolicy = builder.retryPolicy;
+        this.metrics = builder.metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DiscordWebhookClient-Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.executionMode = builder.executionMode;
+        this.maxRequestsPerHost = builder.maxRequestsPerHost;
+        if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+            this.executor = newVirtualThreadExecutor(builder.maxRequests);
+            this.permits = new Semaphore(builder.maxRequests);
+            this.hostPermits = new ConcurrentHashMap<>();
+        } else {
+            this.executor = null;
+            this.permits = null;
+            this.hostPermits = null;
+        }
+
+        if (builder.keepWarm != null) {
+            long interval = builder.keepWarm.toNanos();
+            scheduler.scheduleWithFixedDelay(() -> {
+                // Only ping if no request kept the connection busy since the last run
+                if (System.nanoTime() - lastCallEnd >= interval) warmUp(1);
+            }, interval, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task. Virtual threads are only available on Java 21
+     * and newer, so the factory method is looked up reflectively. On older runtimes this falls back to a pool of
+     * at most <code>maxRequests</code> daemon threads, as more could only block on the permits.
+     * @param maxRequests the maximum amount of concurrent requests
+     * @return the executor
+     */
+    private static ExecutorService newVirtualThreadExecutor(int maxRequests) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | SecurityException ex) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxRequests, maxRequests, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "DiscordWebhookClient-Worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Returns the default client. It is created with default settings on first use and is shared by all webhooks
+     * that were created through the {@link DiscordWebhook} constructors.
+     * @return the default client
+     */
+    public static DiscordWebhookClient getDefault() {
+        DiscordWebhookClient client = defaultClient;
+        if (client == null) {
+            synchronized (DEFAULT_LOCK) {
+                client = defaultClient;
+                if (client == null) {
+                    client = builder().build();
+                    defaultClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Returns a new builder that can be used to configure a client.
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a new Discord webhook object with the given URL, bound to this client.
+     * @param url the webhook url
+     * @return the webhook
+     * @throws IllegalArgumentException if the url does not match a valid Discord webhook url
+     */
+    public DiscordWebhook webhook(String url) throws IllegalArgumentException {
+        return new DiscordWebhook(this, url);
+    }
+
+    /**
+     * Creates a new Discord webhook object with the given ID and token, bound to this client.
+     * @param id the ID
+     * @param token the token
+     * @return the webhook
+     */
+    public DiscordWebhook webhook(long id, String token) {
+        return new DiscordWebhook(this, id, token);
+    }
+
+    /**
+     * Sends the same message to several webhooks in parallel. The message is serialized once and its bytes are
+     * shared by all requests. Each webhook still respects its own rate limit, and a failure of one webhook does not
+     * affect the others.
+     * @param message the message, e.g. created with {@link DiscordWebhookBuilder#freeze()}
+     * @param webhooks the webhooks, webhooks with the same ID and token are only sent to once (the first one is
+     *                 reported in the result)
+     * @return a future that completes once every webhook has either succeeded or failed
+     */
+    public CompletableFuture<DiscordBroadcastResult> broadcast(DiscordMessage message, Collection<DiscordWebhook> webhooks) {
+        if (message == null || webhooks == null) throw new NullPointerException();
+        Map<String, DiscordWebhook> routes = new LinkedHashMap<>();
+        for (DiscordWebhook webhook : webhooks) {
+            routes.putIfAbsent(webhook.getRoute(), webhook);
+        }
+        Collection<DiscordWebhook> targets = routes.values();
+        long start = System.nanoTime();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<DiscordResponse>[] futures = new CompletableFuture[targets.size()];
+        int i = 0;
+        for (DiscordWebhook webhook : targets) {
+            futures[i++] = webhook.executeAsync(message);
+        }
+
+        return CompletableFuture.allOf(futures).handle((ignored, ignoredEx) -> {
+            Map<DiscordWebhook, DiscordResponse> responses = new LinkedHashMap<>();
+            Map<DiscordWebhook, Throwable> failures = new LinkedHashMap<>();
+            int index = 0;
+            for (DiscordWebhook webhook : targets) {
+                try {
+                    responses.put(webhook, futures[index++].join());
+                } catch (CompletionException ex) {
+                    failures.put(webhook, ex.getCause());
+                } catch (CancellationException ex) {
+                    failures.put(webhook, ex);
+                }
+            }
+            return new DiscordBroadcastResult(responses, failures, System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Opens a connection to the Discord API ahead of time, so that the next request does not have to wait for
+     * DNS, TCP and TLS. With HTTP/2, a single connection is shared by all concurrent requests.
+     * @return a future that completes once the connection has been established
+     * @see Builder#withKeepWarm(Duration)
+     */
+    public CompletableFuture<Void> warmUp() {
+        return warmUp(1);
+    }
+
+    /**
+     * Opens connections to the Discord API ahead of time, so that the next requests do not have to wait for
+     * DNS, TCP and TLS. Opening more than one connection only makes sense without HTTP/2; at most
+     * {@link Builder#withMaxIdleConnections(int) maxIdleConnections} are kept.
+     * @param connections the amount of concurrent connections to open
+     * @return a future that completes once the connections have been established
+     * @throws IllegalArgumentException if <code>connections</code> is less than 1
+     */
+    public CompletableFuture<Void> warmUp(int connections) throws IllegalArgumentException {
+        if (connections < 1) throw new IllegalArgumentException("connections must be at least 1");
+        // A cheap, unauthenticated endpoint that does not count towards any webhook's rate limit
+        WebhookRequest request = new WebhookRequest("HEAD", baseUrl + "/gateway", null);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<Void>[] futures = new CompletableFuture[connections];
+        for (int i = 0; i < connections; i++) {
+            futures[i] = transport.executeAsync(request).handle((response, ex) -> {
+                lastCallEnd = System.nanoTime();
+                if (ex != null) throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Returns statistics about the connections opened and reused by this client.
+     * @return the connection stats, or <code>null</code> if the transport is not {@link TransportType#OKHTTP}
+     */
+    public DiscordConnectionStats getConnectionStats() {
+        if (!(transport instanceof OkHttpWebhookTransport)) return null;
+        return ((OkHttpWebhookTransport) transport).getConnectionStats();
+    }
+
+    /**
+     * Returns the base URL of the Discord API, without a trailing slash.
+     * @return the base URL
+     */
+    public String getBaseURL() {
+        return baseUrl;
+    }
+
+    /**
+     * Returns the transport that sends the requests of this client.
+     * @return the transport
+     */
+    public WebhookTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the underlying HTTP client.
+     * @return the HTTP client, or <code>null</code> if the transport is not {@link TransportType#OKHTTP}
+     */
+    public OkHttpClient getHttpClient() {
+        if (!(transport instanceof OkHttpWebhookTransport)) return null;
+        return ((OkHttpWebhookTransport) transport).getClient();
+    }
+
+    /**
+     * Returns the JSON mapper used to serialize payloads. Unless a mapper has been
+     * {@link Builder#withMapper(ObjectMapper) set}, it is created on first use, so clients in
+     * {@link SerializationMode#BUILT_IN} mode never load Jackson databind unless this method is called.
+     * @return the mapper
+     */
+    public ObjectMapper getMapper() {
+        ObjectMapper mapper = this.mapper;
+        if (mapper == null) {
+            synchronized (this) {
+                mapper = this.mapper;
+                if (mapper == null) {
+                    mapper = customMapper != null ? customMapper : new ObjectMapper();
+                    this.mapper = mapper;
+                }
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * Returns how payloads are serialized.
+     * @return the serialization mode
+     */
+    public SerializationMode getSerializationMode() {
+        return serializationMode;
+    }
+
+    /**
+     * Returns whether {@link DiscordWebhook#builder()} returns the same builder on the same thread.
+     * @return is builder pooling enabled
+     * @see Builder#withBuilderPooling(boolean)
+     */
+    public boolean isBuilderPooling() {
+        return builders != null;
+    }
+
+    /**
+     * Returns a builder for the given webhook. If builder pooling is enabled, this is the builder of the
+     * current thread, {@link DiscordWebhookBuilder#reset() reset} and bound to the webhook.
+     * @param webhook the webhook
+     * @return the builder
+     */
+    DiscordWebhookBuilder newBuilder(DiscordWebhook webhook) {
+        if (builders == null) return new DiscordWebhookBuilder(webhook);
+        DiscordWebhookBuilder builder = builders.get();
+        if (builder == null) {
+            builder = new DiscordWebhookBuilder(webhook);
+            builders.set(builder);
+            return builder;
+        }
+        return builder.reset(webhook);
+    }
+
+    /**
+     * Returns the metrics listener that webhooks created through this client use by default.
+     * @return the metrics listener
+     */
+    public DiscordWebhookMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the policy used to retry failed requests.
+     * @return the retry policy
+     */
+    public DiscordRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Returns how asynchronous requests are executed.
+     * @return the execution mode
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Returns the scheduler used for delayed work, such as requests that wait for a rate limit to reset.
+     * It runs on a single daemon thread, so tasks must not block.
+     * @return the scheduler
+     */
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sends a request on behalf of the given webhook, blocking the calling thread.
+     * Waits for the rate limit of the webhook if required, retries requests rejected with
+     * <code>429 Too Many Requests</code> and retries failed requests according to the {@link DiscordRetryPolicy}.
+     * @param webhook the webhook
+     * @param request the request
+     * @param expectedCode the expected status code
+     * @return the response
+     * @throws IOException if an I/O error occurs, Discord responds with an unexpected status code,
+     * or the circuit breaker of the webhook is open
+     */
+    DiscordResponse execute(DiscordWebhook webhook, WebhookRequest request, int expectedCode) throws IOException {
+        DiscordWebhookMetrics metrics = webhook.getMetrics();
+        DiscordCircuitBreaker breaker = webhook.getCircuitBreaker();
+        Attempts attempts = new Attempts();
+        while (true) {
+            try {
+                breaker.acquire();
+            } catch (DiscordCircuitOpenException ex) {
+                throw attempts.last != null ? attempts.last : ex;
+            }
+
+            Semaphore hostPermit;
+            try {
+                long delay = rateLimiter.reserve(webhook.getRateLimit());
+                if (delay > 0) {
+                    metrics.onRateLimitWait(webhook, delay);
+                    sleep(delay, "Interrupted while waiting for rate limit");
+                }
+                hostPermit = acquire(request);
+            } catch (InterruptedIOException ex) {
+                breaker.release();
+                throw ex;
+            }
+
+            long start = System.nanoTime();
+            DiscordResponse result;
+            try {
+                result = transport.execute(request);
+            } catch (IOException ex) {
+                lastCallEnd = System.nanoTime();
+                metrics.onFailure(webhook, System.nanoTime() - start);
+                long retry = onFailure(webhook, request, ex, Thread.currentThread().isInterrupted(), attempts);
+                if (retry < 0) throw ex;
+                sleep(retry, "Interrupted while waiting to retry");
+                continue;
+            } catch (RuntimeException ex) {
+                // A broken transport says nothing about the webhook, but must not keep a probe slot
+                lastCallEnd = System.nanoTime();
+                breaker.release();
+                throw ex;
+            } finally {
+                release(hostPermit);
+            }
+            lastCallEnd = System.nanoTime();
+            metrics.onResponse(webhook, result.getCode(), System.nanoTime() - start, request.getBytesWritten());
+
+            long retry = onResponse(webhook, request, result, expectedCode, attempts);
+            if (retry >= 0) {
+                sleep(retry, "Interrupted while waiting to retry");
+                continue;
+            }
+            if (result.getCode() != expectedCode) {
+                throw new DiscordWebhookException(result);
+            }
+            return result;
+        }
+    }
+
+    private static void sleep(long nanos, String message) throws InterruptedIOException {
+        if (nanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(message);
+        }
+    }
+
+    /**
+     * Sends a request on behalf of the given webhook without blocking the calling thread.
+     * Requests that have to wait for a rate limit are scheduled for the moment a slot becomes available.
+     * Requests rejected with <code>429 Too Many Requests</code> are rescheduled, and failed requests are
+     * rescheduled according to the {@link DiscordRetryPolicy}.
+     * @param webhook the webhook
+     * @param request the request
+     * @param expectedCode the expected status code
+     * @return a future that completes with the response
+     */
+    CompletableFuture<DiscordResponse> executeAsync(DiscordWebhook webhook, WebhookRequest request, int expectedCode) {
+        CompletableFuture<DiscordResponse> future = new CompletableFuture<>();
+        if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+            submit(webhook, request, expectedCode, future);
+        } else {
+            schedule(webhook, request, expectedCode, future, new Attempts());
+        }
+        return future;
+    }
+
+    private void submit(DiscordWebhook webhook, WebhookRequest request, int expectedCode, CompletableFuture<DiscordResponse> future) {
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (future.isDone()) return;
+                try {
+                    future.complete(execute(webhook, request, expectedCode));
+                } catch (IOException | RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+            return;
+        }
+        future.whenComplete((response, ex) -> {
+            if (future.isCancelled()) task.cancel(true);
+        });
+    }
+
+    /**
+     * Acquires a global and a per-host permit if running in {@link ExecutionMode#VIRTUAL_THREADS} mode.
+     * @param request the request
+     * @return the per-host permit to release, or <code>null</code> if no permits are used
+     * @throws InterruptedIOException if the current thread is interrupted while waiting
+     */
+    private Semaphore acquire(WebhookRequest request) throws InterruptedIOException {
+        if (permits == null) return null;
+        Semaphore hostPermit = hostPermits.computeIfAbsent(request.getHost(), host -> new Semaphore(maxRequestsPerHost));
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free request slot");
+        }
+        try {
+            hostPermit.acquire();
+        } catch (InterruptedException ex) {
+            permits.release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free request slot");
+        }
+        return hostPermit;
+    }
+
+    private void release(Semaphore hostPermit) {
+        if (hostPermit == null) return;
+        hostPermit.release();
+        permits.release();
+    }
+
+    private void schedule(DiscordWebhook webhook, WebhookRequest request, int expectedCode, CompletableFuture<DiscordResponse> future, Attempts attempts) {
+        if (future.isDone()) return;
+        DiscordCircuitBreaker breaker = webhook.getCircuitBreaker();
+        try {
+            breaker.acquire();
+        } catch (DiscordCircuitOpenException ex) {
+            future.completeExceptionally(attempts.last != null ? attempts.last : ex);
+            return;
+        }
+
+        long delay = rateLimiter.reserve(webhook.getRateLimit());
+        if (delay > 0) {
+            webhook.getMetrics().onRateLimitWait(webhook, delay);
+            scheduler.schedule(() -> enqueue(webhook, request, expectedCode, future, attempts), delay, TimeUnit.NANOSECONDS);
+        } else {
+            enqueue(webhook, request, expectedCode, future, attempts);
+        }
+    }
+
+    private void reschedule(DiscordWebhook webhook, WebhookRequest request, int expectedCode, CompletableFuture<DiscordResponse> future, Attempts attempts, long delay) {
+        if (delay > 0) {
+            scheduler.schedule(() -> schedule(webhook, request, expectedCode, future, attempts), delay, TimeUnit.NANOSECONDS);
+        } else {
+            schedule(webhook, request, expectedCode, future, attempts);
+        }
+    }
+
+    private void enqueue(DiscordWebhook webhook, WebhookRequest request, int expectedCode, CompletableFuture<DiscordResponse> future, Attempts attempts) {
+        DiscordCircuitBreaker breaker = webhook.getCircuitBreaker();
+        if (future.isDone()) {
+            breaker.release();
+            return;
+        }
+        DiscordWebhookMetrics metrics = webhook.getMetrics();
+        long start = System.nanoTime();
+        CompletableFuture<DiscordResponse> call;
+        try {
+            call = transport.executeAsync(request);
+        } catch (RuntimeException ex) {
+            breaker.release();
+            future.completeExceptionally(ex);
+            return;
+        }
+        future.whenComplete((response, ex) -> {
+            if (future.isCancelled()) call.cancel(true);
+        });
+        call.whenComplete((result, ex) -> {
+            lastCallEnd = System.nanoTime();
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (!(cause instanceof IOException)) {
+                    // A broken transport says nothing about the webhook, but must not keep a probe slot
+                    breaker.release();
+                    future.completeExceptionally(cause);
+                    return;
+                }
+                IOException failure = (IOException) cause;
+                metrics.onFailure(webhook, System.nanoTime() - start);
+                long retry = onFailure(webhook, request, failure, future.isCancelled(), attempts);
+                if (retry >= 0) {
+                    reschedule(webhook, request, expectedCode, future, attempts, retry);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+                return;
+            }
+            metrics.onResponse(webhook, result.getCode(), System.nanoTime() - start, request.getBytesWritten());
+
+            long retry = onResponse(webhook, request, result, expectedCode, attempts);
+            if (retry >= 0) {
+                reschedule(webhook, request, expectedCode, future, attempts, retry);
+            } else if (result.getCode() != expectedCode) {
+                future.completeExceptionally(new DiscordWebhookException(result));
+            } else {
+                future.complete(result);
+            }
+        });
+    }
+
+    /**
+     * Updates the rate limiter and circuit breaker with a response, and decides whether to retry the request.
+     * @return the delay before the request is retried in nanoseconds, or <code>-1</code> if the response is final
+     */
+    private long onResponse(DiscordWebhook webhook, WebhookRequest request, DiscordResponse result, int expectedCode, Attempts attempts) {
+        DiscordWebhookMetrics metrics = webhook.getMetrics();
+        DiscordCircuitBreaker breaker = webhook.getCircuitBreaker();
+
+        long retryAfter = rateLimiter.update(webhook.getRateLimit(), result);
+        if (retryAfter >= 0) {
+            // Discord is reachable, it just wants us to slow down
+            breaker.onSuccess();
+            metrics.onRateLimited(webhook, retryAfter);
+            if (attempts.rateLimited < maxRateLimitRetries && !request.isOneShot()) {
+                attempts.rateLimited++;
+                attempts.last = new DiscordWebhookException(result);
+                metrics.onRetry(webhook, attempts.rateLimited + attempts.failed);
+                // The rate limiter schedules the next attempt
+                return 0L;
+            }
+            return -1L;
+        }
+
+        if (result.getCode() == expectedCode) {
+            breaker.onSuccess();
+            return -1L;
+        }
+        int errorCode = result.getCode() == 404 ? errorCode(result) : -1;
+        if (errorCode == UNKNOWN_WEBHOOK) {
+            breaker.onDeleted();
+            return -1L;
+        }
+        boolean retryable = retryPolicy.isRetryable(result.getCode());
+        if (retryable || (result.getCode() == 404 && errorCode < 0)) {
+            // A 404 without a Discord error did not come from Discord, e.g. the error page of a proxy or a wrong
+            // base URL. Other Discord errors, such as 10008 "Unknown Message", mean that the webhook is available
+            breaker.onFailure();
+            if (!retryable) return -1L;
+            attempts.last = new DiscordWebhookException(result);
+            return retryDelay(webhook, request, attempts);
+        }
+        // Any other response means that the webhook is available, but did not like the request
+        breaker.onSuccess();
+        return -1L;
+    }
+
+    /**
+     * Updates the circuit breaker with a network error, and decides whether to retry the request.
+     * @return the delay before the request is retried in nanoseconds, or <code>-1</code> if the error is final
+     */
+    private long onFailure(DiscordWebhook webhook, WebhookRequest request, IOException ex, boolean cancelled, Attempts attempts) {
+        DiscordCircuitBreaker breaker = webhook.getCircuitBreaker();
+        if (cancelled) {
+            // Cancelled by the caller, which says nothing about the webhook
+            breaker.release();
+            return -1L;
+        }
+        breaker.onFailure();
+        if (!retryPolicy.isRetryable(request.getMethod(), ex)) return -1L;
+        attempts.last = ex;
+        return retryDelay(webhook, request, attempts);
+    }
+
+    private long retryDelay(DiscordWebhook webhook, WebhookRequest request, Attempts attempts) {
+        if (attempts.failed + 1 >= retryPolicy.getMaxAttempts() || request.isOneShot()) return -1L;
+        attempts.failed++;
+        webhook.getMetrics().onRetry(webhook, attempts.rateLimited + attempts.failed);
+        return retryPolicy.backoff(attempts.failed);
+    }
+
+    /**
+     * Returns the JSON error code of a Discord error response.
+     * @return the error code, or <code>-1</code> if the body is not a Discord error
+     */
+    private static int errorCode(DiscordResponse response) {
+        Map<String, String> body = JsonFields.parse(response.getBody());
+        if (body == null || body.get("code") == null) return -1;
+        try {
+            return Integer.parseInt(body.get("code"));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the circuit breaker of the given route.
+     * @param route the route key
+     * @return the circuit breaker
+     */
+    DiscordCircuitBreaker getCircuitBreaker(String route) {
+        DiscordCircuitBreaker breaker = circuitBreakers.get(route);
+        if (breaker == null) {
+            breaker = circuitBreakers.computeIfAbsent(route, key -> retryPolicy.newCircuitBreaker());
+        }
+        return breaker;
+    }
+
+    /**
+     * Returns the rate limit state of the given route.
+     * @param route the route key
+     * @return the route state
+     */
+    DiscordRateLimiter.Route getRateLimit(String route) {
+        return rateLimiter.route(route);
+    }
+
+    /**
+     * Forgets the circuit breaker and rate limit state of the given route, e.g. once a
+     * {@link DiscordWebhookRegistry registry} evicted its webhook. Webhook objects that already used them keep them.
+     * @param route the route key
+     */
+    void release(String route) {
+        circuitBreakers.remove(route);
+        rateLimiter.release(route);
+    }
+
+    /**
+     * Closes the transport, which shuts down its threads and closes all idle connections.
+     * Webhooks created through this client can no longer be executed afterwards.
+     * @throws IllegalStateException if this is the {@link #getDefault() default client}
+     */
+    @Override
+    public void close() throws IllegalStateException {
+        if (this == defaultClient) {
+            throw new IllegalStateException("The default client cannot be closed.");
+        }
+        scheduler.shutdown();
+        if (executor != null) executor.shutdownNow();
+        transport.close();
+    }
+
+
+
+    private static class Attempts {
+
+        private int rateLimited = 0;
+        private int failed = 0;
+        private IOException last = null;
+
+    }
+
+
+
+    /**
+     * Defines how requests are executed.
+     */
+    public enum ExecutionMode {
+
+        /**
+         * Asynchronous requests are handed to the transport, which limits concurrency according to
+         * {@link Builder#withMaxRequests(int)} and {@link Builder#withMaxRequestsPerHost(int)}. Requests that wait
+         * for a rate limit do not occupy a thread.
+         */
+        DISPATCHER,
+
+        /**
+         * Every asynchronous request blocks its own virtual thread, so tens of thousands of requests can be in
+         * flight at once on a handful of carrier threads. The limits of {@link Builder#withMaxRequests(int)} and
+         * {@link Builder#withMaxRequestsPerHost(int)} are enforced with semaphores and also apply to synchronous
+         * requests. On runtimes older than Java 21, a pool of at most <code>maxRequests</code> platform threads is
+         * used instead, and further requests wait in its queue without occupying a thread.
+         */
+        VIRTUAL_THREADS
+
+    }
+
+
+
+    /**
+     * Defines which HTTP client sends the requests.
+     */
+    public enum TransportType {
+
+        /**
+         * Requests are sent with OkHttp. Payloads are streamed straight into the connection, and
+         * {@link DiscordWebhookClient#getConnectionStats() connection stats} are collected.
+         */
+        OKHTTP,
+
+        /**
+         * Requests are sent with <code>java.net.http.HttpClient</code>, which supports HTTP/2 and asynchronous
+         * requests without any dependency outside the JDK. OkHttp (and Kotlin) may be excluded from the classpath.
+         * Payloads are buffered before they are sent. The JDK client only has a single timeout per request: the
+         * {@link Builder#withCallTimeout(Duration) call timeout} if set, otherwise the sum of the read and write
+         * timeouts. The amount of idle connections and the keep-alive duration cannot be configured.
+         */
+        JDK
+
+    }
+
+
+
+    /**
+     * Defines how payloads are serialized.
+     */
+    public enum SerializationMode {
+
+        /**
+         * Payloads are serialized by the {@link DiscordWebhookClient#getMapper() Jackson mapper} of the client.
+         * A custom mapper can change the output, e.g. to omit <code>null</code> values.
+         */
+        JACKSON,
+
+        /**
+         * Payloads are serialized by a built-in writer, which is specific to the payload model and does not use
+         * reflection. Its output is byte-identical to a default Jackson mapper, but it has no cold-start cost and does
+         * not need Jackson databind on the classpath (Jackson core and annotations are still required).
+         * Only {@link DiscordWebhookBuilder#getPrettyJSON()} still uses a mapper.
+         */
+        BUILT_IN
+
+    }
+
+
+
+    /**
+     * This class is responsible for configuring a {@link DiscordWebhookClient}.
+     */
+    public static class Builder {
+
+        // Transport settings are read by the transports
+        OkHttpClient client = null;
+        int maxIdleConnections = 5;
+        Duration keepAlive = Duration.ofMinutes(5);
+        int maxRequests = 64;
+        int maxRequestsPerHost = 5;
+        boolean http2 = true;
+        Duration connectTimeout = Duration.ofSeconds(10);
+        Duration readTimeout = Duration.ofSeconds(10);
+        Duration writeTimeout = Duration.ofSeconds(10);
+        Duration callTimeout = Duration.ZERO;
+        Duration keepWarm = null;
+
+        private ObjectMapper mapper = null;
+        private String baseUrl = DEFAULT_BASE_URL;
+        private int maxRateLimitRetries = 3;
+        private DiscordWebhookMetrics metrics = DiscordWebhookMetrics.NOOP;
+        private ExecutionMode executionMode = ExecutionMode.DISPATCHER;
+        private SerializationMode serializationMode = SerializationMode.JACKSON;
+        private DiscordRetryPolicy retryPolicy = DiscordRetryPolicy.DEFAULT;
+        private TransportType transportType = TransportType.OKHTTP;
+        private WebhookTransport transport = null;
+        private boolean builderPooling = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets which HTTP client sends the requests. Defaults to {@link TransportType#OKHTTP}.
+         * @param transportType the transport type
+         * @return <code>this</code>
+         */
+        public Builder withTransport(TransportType transportType) {
+            if (transportType == null) throw new NullPointerException();
+            this.transportType = transportType;
+            this.transport = null;
+            return this;
+        }
+
+        /**
+         * Sends the requests through the given transport, such as an {@link InMemoryWebhookTransport}.
+         * The transport is closed together with the client. Connection and timeout settings of this builder do not
+         * apply to it.
+         * @param transport the transport
+         * @return <code>this</code>
+         */
+        public Builder withTransport(WebhookTransport transport) {
+            if (transport == null) throw new NullPointerException();
+            this.transport = transport;
+            return this;
+        }
+
+        /**
+         * Uses the given HTTP client as a template for the {@link TransportType#OKHTTP OkHttp transport}.
+         * The client is copied, so its connection pool, dispatcher and event listener are replaced with the ones
+         * configured by this builder.
+         * @param client the template client
+         * @return <code>this</code>
+         */
+        public Builder withHttpClient(OkHttpClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * Sets the JSON mapper used to serialize payloads in {@link SerializationMode#JACKSON} mode.
+         * @param mapper the mapper
+         * @return <code>this</code>
+         */
+        public Builder withMapper(ObjectMapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        /**
+         * Sets the base URL of the Discord API, e.g. to point webhooks at a local stand-in server.
+         * @param baseUrl the base URL, such as <code>https://discord.com/api/v10</code>
+         * @return <code>this</code>
+         */
+        public Builder withBaseURL(String baseUrl) {
+            if (baseUrl == null) throw new NullPointerException();
+            while (baseUrl.endsWith("/")) {
+                baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+            }
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of idle connections kept in the pool.
+         * @param maxIdleConnections the maximum amount of idle connections
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>maxIdleConnections</code> is negative
+         */
+        public Builder withMaxIdleConnections(int maxIdleConnections) throws IllegalArgumentException {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections cannot be negative");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * Sets how long idle connections are kept alive.
+         * @param keepAlive the keep-alive duration
+         * @return <code>this</code>
+         */
+        public Builder withKeepAlive(Duration keepAlive) {
+            if (keepAlive == null) throw new NullPointerException();
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of concurrent asynchronous requests.
+         * In {@link ExecutionMode#VIRTUAL_THREADS} mode this also limits synchronous requests.
+         * @param maxRequests the maximum amount of requests
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>maxRequests</code> is less than 1
+         */
+        public Builder withMaxRequests(int maxRequests) throws IllegalArgumentException {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests must be at least 1");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Sets the maximum amount of concurrent asynchronous requests per host.
+         * In {@link ExecutionMode#VIRTUAL_THREADS} mode this also limits synchronous requests.
+         * @param maxRequestsPerHost the maximum amount of requests per host
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>maxRequestsPerHost</code> is less than 1
+         */
+        public Builder withMaxRequestsPerHost(int maxRequestsPerHost) throws IllegalArgumentException {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be at least 1");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Keeps a connection to the Discord API open, so that the first request after a quiet period does not have
+         * to wait for DNS, TCP and TLS. If no request has been sent for the given interval, a cheap request is sent
+         * to keep the connection alive; with HTTP/2, the connection is pinged as well. The interval should be
+         * shorter than the {@link #withKeepAlive(Duration) keep-alive} duration. Disabled by default.
+         * @param interval the interval, or <code>null</code> to disable
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>interval</code> is not positive
+         * @see DiscordWebhookClient#warmUp()
+         */
+        public Builder withKeepWarm(Duration interval) throws IllegalArgumentException {
+            if (interval != null && (interval.isNegative() || interval.isZero())) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+            this.keepWarm = interval;
+            return this;
+        }
+
+        /**
+         * Sets whether HTTP/2 should be negotiated. If enabled, concurrent requests share a single connection.
+         * @param http2 use HTTP/2
+         * @return <code>this</code>
+         */
+        public Builder withHTTP2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout.
+         * @param connectTimeout the timeout, or {@link Duration#ZERO} for none
+         * @return <code>this</code>
+         */
+        public Builder withConnectTimeout(Duration connectTimeout) {
+            if (connectTimeout == null) throw new NullPointerException();
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the read timeout.
+         * @param readTimeout the timeout, or {@link Duration#ZERO} for none
+         * @return <code>this</code>
+         */
+        public Builder withReadTimeout(Duration readTimeout) {
+            if (readTimeout == null) throw new NullPointerException();
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the write timeout.
+         * @param writeTimeout the timeout, or {@link Duration#ZERO} for none
+         * @return <code>this</code>
+         */
+        public Builder withWriteTimeout(Duration writeTimeout) {
+            if (writeTimeout == null) throw new NullPointerException();
+            this.writeTimeout = writeTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the timeout for a complete call, including connecting, writing and reading.
+         * @param callTimeout the timeout, or {@link Duration#ZERO} for none
+         * @return <code>this</code>
+         */
+        public Builder withCallTimeout(Duration callTimeout) {
+            if (callTimeout == null) throw new NullPointerException();
+            this.callTimeout = callTimeout;
+            return this;
+        }
+
+        /**
+         * Sets how often a request rejected with <code>429 Too Many Requests</code> is retried after waiting
+         * for the rate limit to reset. Requests are scheduled ahead of time according to the rate limit headers,
+         * so this only matters if the limits are shared with other applications.
+         * @param maxRateLimitRetries the maximum amount of retries
+         * @return <code>this</code>
+         * @throws IllegalArgumentException if <code>maxRateLimitRetries</code> is negative
+         */
+        public Builder withMaxRateLimitRetries(int maxRateLimitRetries) throws IllegalArgumentException {
+            if (maxRateLimitRetries < 0) {
+                throw new IllegalArgumentException("maxRateLimitRetries cannot be negative");
+            }
+            this.maxRateLimitRetries = maxRateLimitRetries;
+            return this;
+        }
+
+        /**
+         * Sets how failed requests are retried, and when webhooks are considered down.
+         * Defaults to {@link DiscordRetryPolicy#DEFAULT}.
+         * @param retryPolicy the retry policy
+         * @return <code>this</code>
+         */
+        public Builder withRetryPolicy(DiscordRetryPolicy retryPolicy) {
+            if (retryPolicy == null) throw new NullPointerException();
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the metrics listener that webhooks created through this client use by default.
+         * @param metrics the metrics listener
+         * @return <code>this</code>
+         * @see DiscordWebhook#setMetrics(DiscordWebhookMetrics)
+         */
+        public Builder withMetrics(DiscordWebhookMetrics metrics) {
+            if (metrics == null) throw new NullPointerException();
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Sets how requests are executed. Defaults to {@link ExecutionMode#DISPATCHER}.
+         * Applications that send to a very large amount of webhooks at once should use
+         * {@link ExecutionMode#VIRTUAL_THREADS} and raise the request limits accordingly.
+         * @param executionMode the execution mode
+         * @return <code>this</code>
+         */
+        public Builder withExecutionMode(ExecutionMode executionMode) {
+            if (executionMode == null) throw new NullPointerException();
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        /**
+         * Sets how payloads are serialized. Defaults to {@link SerializationMode#JACKSON}.
+         * @param serializationMode the serialization mode
+         * @return <code>this</code>
+         */
+        public Builder withSerializationMode(SerializationMode serializationMode) {
+            if (serializationMode == null) throw new NullPointerException();
+            this.serializationMode = serializationMode;
+            return this;
+        }
+
+        /**
+         * Sets whether {@link DiscordWebhook#builder()} reuses one builder per thread instead of creating a new one.
+         * Together with {@link DiscordWebhookBuilder#embed()}, building and sending a message then allocates
+         * little more than the serialized payload once the builder has been warmed up.
+         * <p>
+         * A pooled builder is {@link DiscordWebhookBuilder#reset() reset} by the next call to
+         * {@link DiscordWebhook#builder()} on the same thread, so it must be executed (or frozen) before that and
+         * must not be kept or handed to another thread, e.g. through a {@link DiscordCoalescingQueue}.
+         * Disabled by default.
+         * </p>
+         * @param builderPooling reuse builders
+         * @return <code>this</code>
+         */
+        public Builder withBuilderPooling(boolean builderPooling) {
+            this.builderPooling = builderPooling;
+            return this;
+        }
+
+        /**
+         * Builds the client.
+         * @return the client
+         */
+        public DiscordWebhookClient build() {
+            return new DiscordWebhookClient(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+
+/**
+ * Thrown if Discord responds to a webhook request with an unexpected status code.
+ */
+public class DiscordWebhookException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final DiscordResponse response;
+
+    /**
+     * Creates a new exception for the given response.
+     * @param response the response
+     */
+    public DiscordWebhookException(DiscordResponse response) {
+        super(createMessage(response));
+        this.response = response;
+    }
+
+    /**
+     * Returns the response that caused this exception.
+     * @return the response
+     */
+    public DiscordResponse getResponse() {
+        return response;
+    }
+
+    private static String createMessage(DiscordResponse response) {
+        if (response.getBody() != null) {
+            return "Unexpected response: " + response.getCode() + "\n\n" + response.getBody();
+        } else {
+            return "Unexpected response: " + response.getCode();
+        }
+    }
+
+}
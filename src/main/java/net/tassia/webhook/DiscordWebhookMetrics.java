@@ -0,0 +1,80 @@
+package net.tassia.webhook;
+
+/**
+ * Receives measurements from the send path of a webhook.
+ * <p>
+ * Callbacks are invoked on the threads that send requests (including dispatcher threads), so implementations
+ * must be thread-safe, fast and must not block. All methods do nothing by default.
+ * </p>
+ * @see InMemoryWebhookMetrics
+ */
+public interface DiscordWebhookMetrics {
+
+    /**
+     * A listener that ignores all measurements.
+     */
+    DiscordWebhookMetrics NOOP = new DiscordWebhookMetrics() {
+    };
+
+    /**
+     * Called after a message has been serialized. Messages that are serialized straight into the request body
+     * are reported once the body has been written, so the time includes writing to the connection, and they are
+     * reported again if the request is retried.
+     * @param webhook the webhook
+     * @param nanos how long serialization took
+     * @param bytes the size of the serialized payload
+     */
+    default void onSerialized(DiscordWebhook webhook, long nanos, long bytes) {
+    }
+
+    /**
+     * Called when Discord responded to a request, regardless of the status code.
+     * @param webhook the webhook
+     * @param status the status code
+     * @param nanos how long the request took, from sending it until the response was read
+     * @param bytes the size of the request body, or <code>-1</code> if unknown
+     */
+    default void onResponse(DiscordWebhook webhook, int status, long nanos, long bytes) {
+    }
+
+    /**
+     * Called when a request failed without a response, e.g. because of a network error or timeout.
+     * @param webhook the webhook
+     * @param nanos how long the request took until it failed
+     */
+    default void onFailure(DiscordWebhook webhook, long nanos) {
+    }
+
+    /**
+     * Called when a request has to wait for a rate limit before it can be sent.
+     * @param webhook the webhook
+     * @param nanos how long the request waits
+     */
+    default void onRateLimitWait(DiscordWebhook webhook, long nanos) {
+    }
+
+    /**
+     * Called when Discord rejected a request with <code>429 Too Many Requests</code>.
+     * @param webhook the webhook
+     * @param retryAfterNanos how long Discord asked to wait
+     */
+    default void onRateLimited(DiscordWebhook webhook, long retryAfterNanos) {
+    }
+
+    /**
+     * Called when a request is about to be retried.
+     * @param webhook the webhook
+     * @param attempt the number of the upcoming attempt, starting at 1 for the first retry
+     */
+    default void onRetry(DiscordWebhook webhook, int attempt) {
+    }
+
+    /**
+     * Called when the amount of messages queued for a webhook changes, e.g. in a {@link DiscordOutbox}.
+     * @param webhook the webhook
+     * @param depth the amount of queued messages
+     */
+    default void onQueueDepth(DiscordWebhook webhook, int depth) {
+    }
+
+}
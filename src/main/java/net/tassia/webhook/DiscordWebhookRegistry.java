@@ -0,0 +1,185 @@
+package net.tassia.webhook;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+
+/**
+ * Resolves webhook URLs to shared {@link DiscordWebhook} objects, for applications that look up webhooks per
+ * request, such as from the configuration of many tenants.
+ * <p>
+ * Every webhook is interned by its ID: all URLs of the same webhook (on any Discord host, with or without an API
+ * version) resolve to the same object, which keeps its circuit breaker and rate limit state. Looking up a URL that
+ * has been resolved before takes a single hash lookup and no lock. If a webhook is looked up with a new token,
+ * because its token was regenerated, the old object is replaced.
+ * </p>
+ * <p>
+ * The registry holds at most <code>maxSize</code> webhooks. Once it is full, the least recently used webhooks are
+ * evicted in small batches, together with their circuit breaker and rate limit state in the client. Objects that
+ * were handed out before keep working, but are no longer shared with later lookups.
+ * </p>
+ */
+public class DiscordWebhookRegistry {
+
+    private final DiscordWebhookClient client;
+    private final int maxSize;
+    private final Map<String, Entry> byUrl = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Advanced on every insertion; entries remember the value of their last use
+    private volatile long clock = 0L;
+
+    /**
+     * Creates a new registry.
+     * @param client the client the webhooks are bound to
+     * @param maxSize the maximum amount of webhooks
+     * @throws IllegalArgumentException if <code>maxSize</code> is less than 1
+     */
+    public DiscordWebhookRegistry(DiscordWebhookClient client, int maxSize) throws IllegalArgumentException {
+        if (client == null) throw new NullPointerException();
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be at least 1");
+        this.client = client;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the webhook with the given URL.
+     * @param url the webhook url
+     * @return the webhook
+     * @throws IllegalArgumentException if the url does not match a valid Discord webhook url
+     */
+    public DiscordWebhook get(String url) throws IllegalArgumentException {
+        Entry entry = byUrl.get(url);
+        if (entry != null && !entry.removed) {
+            touch(entry);
+            return entry.webhook;
+        }
+        Matcher matcher = DiscordWebhook.parse(url);
+        return intern(DiscordWebhook.parseID(matcher.group(1)), matcher.group(2), url);
+    }
+
+    /**
+     * Returns the webhook with the given ID and token.
+     * @param id the ID
+     * @param token the token
+     * @return the webhook
+     */
+    public DiscordWebhook get(long id, String token) {
+        if (token == null) throw new NullPointerException();
+        Entry entry = byId.get(id);
+        if (entry != null && !entry.removed && entry.webhook.getToken().equals(token)) {
+            touch(entry);
+            return entry.webhook;
+        }
+        return intern(id, token, null);
+    }
+
+    /**
+     * Removes the webhook with the given ID, e.g. once it has been deleted.
+     * @param id the ID
+     * @return <code>true</code> if the webhook was registered
+     */
+    public synchronized boolean remove(long id) {
+        Entry entry = byId.get(id);
+        if (entry == null) return false;
+        remove(entry);
+        return true;
+    }
+
+    /**
+     * Returns the amount of registered webhooks.
+     * @return the size
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Returns the maximum amount of registered webhooks.
+     * @return the maximum size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the amount of webhooks evicted because the registry was full.
+     * @return the amount of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void touch(Entry entry) {
+        // Only written once per insertion in between, so hits on hot webhooks do not contend on a cache line
+        long clock = this.clock;
+        if (entry.lastUsed != clock) entry.lastUsed = clock;
+    }
+
+    private synchronized DiscordWebhook intern(long id, String token, String url) {
+        Entry entry = byId.get(id);
+        if (entry != null && !entry.webhook.getToken().equals(token)) {
+            // The token has been regenerated, the old one is no longer valid
+            remove(entry);
+            entry = null;
+        }
+        if (entry == null) {
+            entry = new Entry(new DiscordWebhook(client, id, token));
+            entry.lastUsed = ++clock;
+            byId.put(id, entry);
+            if (byId.size() > maxSize) evict();
+        }
+        if (url != null && entry.urls.size() < Entry.MAX_URLS && !entry.urls.contains(url)) {
+            entry.urls.add(url);
+            byUrl.put(url, entry);
+        }
+        touch(entry);
+        return entry.webhook;
+    }
+
+    /**
+     * Evicts the least recently used entries, so the next evictions are some insertions away.
+     */
+    private void evict() {
+        int target = Math.max(maxSize - maxSize / 16, maxSize - 1024);
+        List<Entry> entries = new ArrayList<>(byId.values());
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        for (int i = 0; i < entries.size() && byId.size() > target; i++) {
+            remove(entries.get(i));
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Entry entry) {
+        entry.removed = true;
+        byId.remove(entry.webhook.getID(), entry);
+        for (String url : entry.urls) {
+            byUrl.remove(url, entry);
+        }
+        client.release(entry.webhook.getRoute());
+    }
+
+
+
+    private static class Entry {
+
+        // Distinct spellings of the same webhook URL that are remembered, further ones are parsed on every lookup
+        private static final int MAX_URLS = 8;
+
+        private final DiscordWebhook webhook;
+        private final List<String> urls = new ArrayList<>(1);
+        private volatile long lastUsed = 0L;
+        private volatile boolean removed = false;
+
+        private Entry(DiscordWebhook webhook) {
+            this.webhook = webhook;
+        }
+
+    }
+
+}
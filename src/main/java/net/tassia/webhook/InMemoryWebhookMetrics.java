@@ -0,0 +1,262 @@
+package net.tassia.webhook;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps all measurements in memory. Recording a measurement never allocates.
+ * <p>
+ * Durations are recorded in log-linear histograms (similar to HdrHistogram): every power of two is split into
+ * 32 linear sub-buckets, so percentiles are accurate to about 3%. Install one instance per webhook to get
+ * per-webhook figures, or share one instance to get aggregated figures.
+ * </p>
+ */
+public class InMemoryWebhookMetrics implements DiscordWebhookMetrics {
+
+    private final Histogram latency = new Histogram();
+    private final Histogram serialization = new Histogram();
+    private final Histogram rateLimitWait = new Histogram();
+    private final AtomicLongArray statusCodes = new AtomicLongArray(600);
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder payloadBytes = new LongAdder();
+    private volatile int queueDepth = 0;
+
+    @Override
+    public void onSerialized(DiscordWebhook webhook, long nanos, long bytes) {
+        serialization.record(nanos);
+    }
+
+    @Override
+    public void onResponse(DiscordWebhook webhook, int status, long nanos, long bytes) {
+        latency.record(nanos);
+        if (status >= 0 && status < statusCodes.length()) {
+            statusCodes.incrementAndGet(status);
+        }
+        if (bytes > 0) {
+            payloadBytes.add(bytes);
+        }
+    }
+
+    @Override
+    public void onFailure(DiscordWebhook webhook, long nanos) {
+        latency.record(nanos);
+        failures.increment();
+    }
+
+    @Override
+    public void onRateLimitWait(DiscordWebhook webhook, long nanos) {
+        rateLimitWait.record(nanos);
+    }
+
+    @Override
+    public void onRateLimited(DiscordWebhook webhook, long retryAfterNanos) {
+        rateLimited.increment();
+    }
+
+    @Override
+    public void onRetry(DiscordWebhook webhook, int attempt) {
+        retries.increment();
+    }
+
+    @Override
+    public void onQueueDepth(DiscordWebhook webhook, int depth) {
+        queueDepth = depth;
+    }
+
+    /**
+     * Returns the request latency histogram, including failed requests.
+     * @return the histogram
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the serialization time histogram.
+     * @return the histogram
+     */
+    public Histogram getSerialization() {
+        return serialization;
+    }
+
+    /**
+     * Returns the histogram of how long requests waited for rate limits.
+     * @return the histogram
+     */
+    public Histogram getRateLimitWait() {
+        return rateLimitWait;
+    }
+
+    /**
+     * Returns how many responses had the given status code.
+     * @param status the status code
+     * @return the amount of responses
+     */
+    public long getStatusCount(int status) {
+        if (status < 0 || status >= statusCodes.length()) return 0L;
+        return statusCodes.get(status);
+    }
+
+    /**
+     * Returns the amount of requests that received a response.
+     * @return the amount of responses
+     */
+    public long getResponseCount() {
+        long count = 0L;
+        for (int i = 0; i < statusCodes.length(); i++) {
+            count += statusCodes.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the amount of requests that failed without a response.
+     * @return the amount of failures
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the amount of <code>429 Too Many Requests</code> responses.
+     * @return the amount of rate limited requests
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * Returns the amount of retried requests.
+     * @return the amount of retries
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Returns the total size of all request bodies with a known size.
+     * @return the amount of bytes
+     */
+    public long getPayloadBytes() {
+        return payloadBytes.sum();
+    }
+
+    /**
+     * Returns the last reported queue depth.
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryWebhookMetrics{"
+            + "responses=" + getResponseCount()
+            + ", failures=" + getFailureCount()
+            + ", rateLimited=" + getRateLimitedCount()
+            + ", retries=" + getRetryCount()
+            + ", latency=" + latency
+            + ", queueDepth=" + queueDepth
+            + "}";
+    }
+
+
+
+    /**
+     * A lock-free, log-linear histogram of durations in nanoseconds.
+     */
+    public static class Histogram {
+
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        /**
+         * Records a value.
+         * @param nanos the value, negative values are recorded as 0
+         */
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts.incrementAndGet(index(nanos));
+            count.increment();
+            sum.add(nanos);
+        }
+
+        /**
+         * Returns the amount of recorded values.
+         * @return the count
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the mean of all recorded values.
+         * @param unit the unit of the result
+         * @return the mean
+         */
+        public double getMean(TimeUnit unit) {
+            long count = getCount();
+            if (count == 0) return 0.0;
+            return (double) sum.sum() / count / unit.toNanos(1);
+        }
+
+        /**
+         * Returns the value below which the given percentage of recorded values fall.
+         * @param percentile the percentile, between 0 and 100
+         * @param unit the unit of the result
+         * @return the value, or 0 if nothing has been recorded
+         */
+        public double getPercentile(double percentile, TimeUnit unit) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) return 0.0;
+
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return (double) highestEquivalent(i) / unit.toNanos(1);
+                }
+            }
+            return (double) highestEquivalent(BUCKETS - 1) / unit.toNanos(1);
+        }
+
+        static int index(long value) {
+            if (value < SUB_COUNT) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        static long highestEquivalent(int index) {
+            if (index < SUB_COUNT) return index;
+            int exponent = index / SUB_COUNT + SUB_BITS - 1;
+            long lowest = (long) (SUB_COUNT + index % SUB_COUNT) << (exponent - SUB_BITS);
+            return lowest + (1L << (exponent - SUB_BITS)) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + getCount()
+                + ", p50=" + getPercentile(50, TimeUnit.MILLISECONDS) + "ms"
+                + ", p99=" + getPercentile(99, TimeUnit.MILLISECONDS) + "ms"
+                + ", max=" + getPercentile(100, TimeUnit.MILLISECONDS) + "ms}";
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Records all requests in memory instead of sending them, for tests of code that sends webhooks.
+ * <p>
+ * By default, every request succeeds the way Discord would answer it, without any rate limit: executions are answered with
+ * <code>204 No Content</code>, or with a message containing a new ID if they wait for the message, edits with the
+ * message, and deletions with <code>204 No Content</code>. Other responses, such as errors or rate limits, can be
+ * simulated with {@link #respondWith(Function)}.
+ * </p>
+ * <pre>
+ * InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+ * DiscordWebhookClient client = DiscordWebhookClient.builder().withTransport(transport).build();
+ * </pre>
+ */
+public class InMemoryWebhookTransport implements WebhookTransport {
+
+    // Reported with every default response, so the client never waits for a rate limit
+    private static final Map<String, List<String>> HEADERS = Map.of(
+        "x-ratelimit-limit", List.of(Integer.toString(Integer.MAX_VALUE)),
+        "x-ratelimit-remaining", List.of(Integer.toString(Integer.MAX_VALUE)),
+        "x-ratelimit-reset-after", List.of("1")
+    );
+
+    private final List<RecordedRequest> requests = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong messageIds = new AtomicLong(1000000000000000000L);
+    private volatile Function<RecordedRequest, DiscordResponse> responder = this::respond;
+
+    /**
+     * Sets the function that answers recorded requests. Throwing an {@link UncheckedIOException} from it
+     * simulates a network error.
+     * @param responder the responder
+     * @return <code>this</code>
+     */
+    public InMemoryWebhookTransport respondWith(Function<RecordedRequest, DiscordResponse> responder) {
+        if (responder == null) throw new NullPointerException();
+        this.responder = responder;
+        return this;
+    }
+
+    @Override
+    public DiscordResponse execute(WebhookRequest request) throws IOException {
+        String contentType = request.getPayload() != null ? request.getPayload().getContentType() : null;
+        RecordedRequest recorded = new RecordedRequest(request.getMethod(), request.getURL(), contentType, request.toByteArray());
+        requests.add(recorded);
+        try {
+            return responder.apply(recorded);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    @Override
+    public CompletableFuture<DiscordResponse> executeAsync(WebhookRequest request) {
+        try {
+            return CompletableFuture.completedFuture(execute(request));
+        } catch (IOException | RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private DiscordResponse respond(RecordedRequest request) {
+        String url = request.getURL();
+        int messages = url.indexOf("/messages/");
+        switch (request.getMethod()) {
+            case "POST":
+                if (url.contains("wait=true")) return message(Long.toString(messageIds.incrementAndGet()));
+                return new DiscordResponse(204, HEADERS, null);
+            case "PATCH":
+                if (messages >= 0) return message(url.substring(messages + 10));
+                return new DiscordResponse(200, HEADERS, request.getBodyAsString());
+            case "DELETE":
+                return new DiscordResponse(204, HEADERS, null);
+            default:
+                return new DiscordResponse(200, HEADERS, null);
+        }
+    }
+
+    private static DiscordResponse message(String id) {
+        return new DiscordResponse(200, HEADERS, "{\"id\":\"" + id + "\"}");
+    }
+
+    /**
+     * Returns all recorded requests, in the order they were sent.
+     * @return the requests
+     */
+    public List<RecordedRequest> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    /**
+     * Returns the amount of recorded requests.
+     * @return the amount of requests
+     */
+    public int getRequestCount() {
+        return requests.size();
+    }
+
+    /**
+     * Removes all recorded requests.
+     */
+    public void clear() {
+        requests.clear();
+    }
+
+
+
+    /**
+     * Represents a request that has been recorded by an {@link InMemoryWebhookTransport}.
+     */
+    public static final class RecordedRequest {
+
+        private final String method;
+        private final String url;
+        private final String contentType;
+        private final byte[] body;
+
+        private RecordedRequest(String method, String url, String contentType, byte[] body) {
+            this.method = method;
+            this.url = url;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        /**
+         * Returns the HTTP method.
+         * @return the method
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Returns the absolute URL.
+         * @return the URL
+         */
+        public String getURL() {
+            return url;
+        }
+
+        /**
+         * Returns the content type of the body.
+         * @return the content type, or <code>null</code> if the request had no body
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Returns the body.
+         * @return the body, empty if the request had none
+         */
+        public byte[] getBody() {
+            return body.clone();
+        }
+
+        /**
+         * Returns the body as UTF-8 text, such as the JSON payload.
+         * @return the body
+         */
+        public String getBodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + url;
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A JSON payload that is serialized straight into the request stream every time it is written,
+ * without building an intermediate string or byte array.
+ */
+class JacksonPayload implements DiscordPayload {
+
+    static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final DiscordWebhook webhook;
+    private final ObjectMapper mapper;
+    private final Object value;
+
+    JacksonPayload(DiscordWebhook webhook, Object value) {
+        this.webhook = webhook;
+        this.mapper = webhook.getClient().getMapper();
+        this.value = value;
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1L;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream counter = new CountingOutputStream(out);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(counter, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            mapper.writeValue(generator, value);
+        }
+        webhook.getMetrics().onSerialized(webhook, System.nanoTime() - start, counter.count);
+    }
+
+
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count = 0L;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // The generator buffers its output, so this is called once per buffer
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+}
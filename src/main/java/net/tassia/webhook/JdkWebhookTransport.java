@@ -0,0 +1,207 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sends requests with <code>java.net.http.HttpClient</code>, without any dependency outside the JDK.
+ * <p>
+ * The JDK client pulls request bodies instead of letting them be written, so payloads are written into a byte
+ * array before they are sent. This is bounded by Discord's upload limit. Asynchronous requests wait in a queue
+ * until they fit into the request limits, like they would in OkHttp's dispatcher.
+ * </p>
+ */
+class JdkWebhookTransport implements WebhookTransport {
+
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final Duration timeout;
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    private final Deque<Pending> ready = new ArrayDeque<>();
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    private int running = 0;
+
+    JdkWebhookTransport(DiscordWebhookClient.Builder builder) {
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "DiscordWebhookClient-Http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpClient.Builder http = HttpClient.newBuilder()
+            .executor(executor)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .version(builder.http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+        if (!builder.connectTimeout.isZero()) http.connectTimeout(builder.connectTimeout);
+        this.client = http.build();
+
+        // The JDK client only knows a single timeout, which ends once the response headers have been received
+        if (!builder.callTimeout.isZero()) {
+            this.timeout = builder.callTimeout;
+        } else if (!builder.readTimeout.isZero()) {
+            this.timeout = builder.readTimeout.plus(builder.writeTimeout);
+        } else {
+            this.timeout = null;
+        }
+        this.maxRequests = builder.maxRequests;
+        this.maxRequestsPerHost = builder.maxRequestsPerHost;
+    }
+
+    @Override
+    public DiscordResponse execute(WebhookRequest request) throws IOException {
+        try {
+            return read(client.send(toRequest(request), HttpResponse.BodyHandlers.ofString()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+    }
+
+    @Override
+    public CompletableFuture<DiscordResponse> executeAsync(WebhookRequest request) {
+        Pending pending = new Pending(request);
+        synchronized (this) {
+            ready.add(pending);
+        }
+        promote();
+        return pending.future;
+    }
+
+    /**
+     * Starts as many waiting requests as the request limits allow.
+     */
+    private void promote() {
+        List<Pending> start = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Pending> iterator = ready.iterator();
+            while (iterator.hasNext() && running < maxRequests) {
+                Pending pending = iterator.next();
+                if (pending.future.isDone()) {
+                    iterator.remove();
+                    continue;
+                }
+                int host = runningPerHost.getOrDefault(pending.host, 0);
+                if (host >= maxRequestsPerHost) continue;
+                iterator.remove();
+                running++;
+                runningPerHost.put(pending.host, host + 1);
+                start.add(pending);
+            }
+        }
+        for (Pending pending : start) {
+            try {
+                // Writing the payload may read files, so it does not happen on the caller's thread
+                executor.execute(() -> send(pending));
+            } catch (RejectedExecutionException ex) {
+                finish(pending);
+                pending.future.completeExceptionally(new IOException("Transport has been closed", ex));
+            }
+        }
+    }
+
+    private void send(Pending pending) {
+        CompletableFuture<HttpResponse<String>> call;
+        try {
+            call = client.sendAsync(toRequest(pending.request), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException | RuntimeException ex) {
+            finish(pending);
+            pending.future.completeExceptionally(ex);
+            return;
+        }
+        pending.future.whenComplete((response, ex) -> {
+            if (pending.future.isCancelled()) call.cancel(true);
+        });
+        call.whenComplete((response, ex) -> {
+            finish(pending);
+            if (ex != null) {
+                pending.future.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            } else {
+                pending.future.complete(read(response));
+            }
+        });
+    }
+
+    private void finish(Pending pending) {
+        synchronized (this) {
+            running--;
+            int host = runningPerHost.get(pending.host) - 1;
+            if (host == 0) {
+                runningPerHost.remove(pending.host);
+            } else {
+                runningPerHost.put(pending.host, host);
+            }
+        }
+        promote();
+    }
+
+    private HttpRequest toRequest(WebhookRequest request) throws IOException {
+        HttpRequest.Builder http = HttpRequest.newBuilder(URI.create(request.getURL()));
+        if (timeout != null) http.timeout(timeout);
+        DiscordPayload payload = request.getPayload();
+        if (payload == null) {
+            http.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            http.header("Content-Type", payload.getContentType());
+            http.method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(request.toByteArray()));
+        }
+        return http.build();
+    }
+
+    private static DiscordResponse read(HttpResponse<String> response) {
+        Map<String, List<String>> headers = new HashMap<>();
+        response.headers().map().forEach((name, values) -> headers.put(name.toLowerCase(Locale.ROOT), values));
+        String body = response.body();
+        if (body != null && body.isEmpty()) body = null;
+        return new DiscordResponse(response.statusCode(), headers, body);
+    }
+
+    /**
+     * Cancels all waiting requests and shuts down the threads of the HTTP client.
+     */
+    @Override
+    public void close() {
+        List<Pending> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<>(ready);
+            ready.clear();
+        }
+        for (Pending pending : cancelled) {
+            pending.future.completeExceptionally(new IOException("Transport has been closed"));
+        }
+        executor.shutdownNow();
+    }
+
+
+
+    private static class Pending {
+
+        private final WebhookRequest request;
+        private final String host;
+        private final CompletableFuture<DiscordResponse> future = new CompletableFuture<>();
+
+        private Pending(WebhookRequest request) {
+            this.request = request;
+            this.host = request.getHost();
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+package net.tassia.webhook;
+
+/**
+ * Escapes strings for JSON and encodes them as UTF-8 in a single pass, the same way Jackson does when writing
+ * bytes: quotes, backslashes, control characters and surrogates are escaped, everything else is written as-is.
+ */
+final class JsonEscape {
+
+    private static final byte[] HEX = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+    private JsonEscape() {
+    }
+
+    /**
+     * Returns the amount of bytes the escaped, UTF-8 encoded value occupies (without quotes).
+     * @param value the value
+     * @return the length in bytes
+     */
+    static int length(String value) {
+        int length = 0;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20) {
+                    length += shortEscape(c) != 0 ? 2 : 6;
+                } else if (c == '"' || c == '\\') {
+                    length += 2;
+                } else {
+                    length += 1;
+                }
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                length += 6;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the escaped, UTF-8 encoded value (without quotes).
+     * The array must have at least {@link #length(String)} bytes left.
+     * @param value the value
+     * @param dest the array
+     * @param offset where to start writing
+     * @return the offset after the last written byte
+     */
+    static int write(String value, byte[] dest, int offset) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20) {
+                    byte escape = shortEscape(c);
+                    dest[offset++] = '\\';
+                    if (escape != 0) {
+                        dest[offset++] = escape;
+                    } else {
+                        dest[offset++] = 'u';
+                        dest[offset++] = '0';
+                        dest[offset++] = '0';
+                        dest[offset++] = HEX[c >> 4];
+                        dest[offset++] = HEX[c & 0xF];
+                    }
+                } else if (c == '"' || c == '\\') {
+                    dest[offset++] = '\\';
+                    dest[offset++] = (byte) c;
+                } else {
+                    dest[offset++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                dest[offset++] = (byte) (0xC0 | (c >> 6));
+                dest[offset++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Characters outside the BMP are written as a pair of escaped surrogates
+                dest[offset++] = '\\';
+                dest[offset++] = 'u';
+                dest[offset++] = HEX[c >> 12];
+                dest[offset++] = HEX[(c >> 8) & 0xF];
+                dest[offset++] = HEX[(c >> 4) & 0xF];
+                dest[offset++] = HEX[c & 0xF];
+            } else {
+                dest[offset++] = (byte) (0xE0 | (c >> 12));
+                dest[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dest[offset++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return offset;
+    }
+
+    private static byte shortEscape(char c) {
+        switch (c) {
+            case '\b': return 'b';
+            case '\t': return 't';
+            case '\n': return 'n';
+            case '\f': return 'f';
+            case '\r': return 'r';
+            default: return 0;
+        }
+    }
+
+}
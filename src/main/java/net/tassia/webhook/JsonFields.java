@@ -0,0 +1,139 @@
+package net.tassia.webhook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the top-level fields of the small JSON objects Discord responds with, such as error codes, message IDs and
+ * <code>retry_after</code> values, without Jackson databind.
+ */
+final class JsonFields {
+
+    private final String json;
+    private int position = 0;
+
+    private JsonFields(String json) {
+        this.json = json;
+    }
+
+    /**
+     * Parses the top-level scalar fields of a JSON object. Strings are unescaped, numbers and booleans are returned
+     * as written and <code>null</code> values are mapped to <code>null</code>. Nested objects and arrays are skipped.
+     * @param json the JSON object
+     * @return the fields, or <code>null</code> if the input is not a JSON object
+     */
+    static Map<String, String> parse(String json) {
+        if (json == null) return null;
+        try {
+            JsonFields reader = new JsonFields(json);
+            Map<String, String> fields = reader.object();
+            reader.whitespace();
+            return reader.position == json.length() ? fields : null;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            return null;
+        }
+    }
+
+    private Map<String, String> object() {
+        Map<String, String> fields = new HashMap<>();
+        expect('{');
+        whitespace();
+        if (peek() == '}') {
+            position++;
+            return fields;
+        }
+        while (true) {
+            whitespace();
+            String name = string();
+            whitespace();
+            expect(':');
+            whitespace();
+            char c = peek();
+            if (c == '{' || c == '[') {
+                skip();
+            } else {
+                fields.put(name, scalar());
+            }
+            whitespace();
+            if (peek() == ',') {
+                position++;
+                continue;
+            }
+            expect('}');
+            return fields;
+        }
+    }
+
+    private String scalar() {
+        char c = peek();
+        if (c == '"') return string();
+        int start = position;
+        while (position < json.length() && "{}[],: \t\r\n\"".indexOf(json.charAt(position)) < 0) {
+            position++;
+        }
+        String literal = json.substring(start, position);
+        if (literal.isEmpty()) throw new IllegalArgumentException("Expected a value at " + start);
+        return literal.equals("null") ? null : literal;
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder builder = null;
+        int start = position;
+        while (true) {
+            char c = json.charAt(position++);
+            if (c == '"') {
+                if (builder == null) return json.substring(start, position - 1);
+                return builder.toString();
+            }
+            if (c != '\\') {
+                if (builder != null) builder.append(c);
+                continue;
+            }
+            if (builder == null) builder = new StringBuilder(json.substring(start, position - 1));
+            char escape = json.charAt(position++);
+            switch (escape) {
+                case 'b': builder.append('\b'); break;
+                case 't': builder.append('\t'); break;
+                case 'n': builder.append('\n'); break;
+                case 'f': builder.append('\f'); break;
+                case 'r': builder.append('\r'); break;
+                case 'u':
+                    builder.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default: builder.append(escape);
+            }
+        }
+    }
+
+    private void skip() {
+        int depth = 0;
+        do {
+            char c = peek();
+            if (c == '"') {
+                string();
+                continue;
+            }
+            if (c == '{' || c == '[') depth++;
+            if (c == '}' || c == ']') depth--;
+            position++;
+        } while (depth > 0);
+    }
+
+    private void whitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        return json.charAt(position);
+    }
+
+    private void expect(char c) {
+        if (json.charAt(position) != c) throw new IllegalArgumentException("Expected '" + c + "' at " + position);
+        position++;
+    }
+
+}
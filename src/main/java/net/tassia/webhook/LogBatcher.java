@@ -0,0 +1,292 @@
+package net.tassia.webhook;
+
+import java.awt.Color;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Collects the embeds of log events and sends them in batches, shared by {@link DiscordLogHandler} and
+ * {@link DiscordLogbackAppender}.
+ * <p>
+ * Logging threads only put the rendered embed into a lock-free ring buffer. If it is full, the event is dropped
+ * and counted, and the next batch reports how many events were lost. Batches are assembled on the scheduler of the
+ * client, once the linger time has passed or enough embeds for a full message are queued, and only one batch is
+ * in flight at a time, so events are delivered in order.
+ * </p>
+ */
+final class LogBatcher implements DiscordConstants {
+
+    private static final long MAX_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Color DROPPED_COLOR = new Color(0x95A5A6);
+
+    // Loggers of this library and its HTTP client, whose events could otherwise feed back into the batcher
+    private static final String[] IGNORED_LOGGERS = { "net.tassia.webhook.", "okhttp3." };
+
+    private final DiscordWebhook webhook;
+    private final RingBuffer<DiscordEmbed> queue;
+    private final long linger;
+    private final String username;
+    private final Consumer<Throwable> onFailure;
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong unreported = new AtomicLong();
+    private volatile ScheduledFuture<?> timer = null;
+    private volatile boolean closed = false;
+
+    // Only accessed by the thread that holds the busy flag
+    private DiscordEmbed carry = null;
+
+    /**
+     * Creates a new batcher.
+     * @param webhook the webhook
+     * @param capacity the maximum amount of queued events
+     * @param linger how long an event may wait for other events to be batched with
+     * @param username the username override of the messages, or <code>null</code>
+     * @param onFailure called with the cause if a batch could not be sent
+     * @throws IllegalArgumentException if <code>capacity</code> is less than 1
+     */
+    LogBatcher(DiscordWebhook webhook, int capacity, Duration linger, String username, Consumer<Throwable> onFailure) throws IllegalArgumentException {
+        if (webhook == null || linger == null || onFailure == null) throw new NullPointerException();
+        if (linger.isNegative()) throw new IllegalArgumentException("linger cannot be negative");
+        this.webhook = webhook;
+        this.queue = new RingBuffer<>(capacity);
+        this.linger = linger.toNanos();
+        this.username = username;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Returns whether events of the given logger must not be sent.
+     * @param logger the logger name, or <code>null</code>
+     * @return is ignored
+     */
+    static boolean isIgnored(String logger) {
+        if (logger == null) return false;
+        for (String prefix : IGNORED_LOGGERS) {
+            if (logger.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Renders a log event into an embed that is within all limits of Discord.
+     * @param level the level name
+     * @param color the level color
+     * @param logger the logger name, or <code>null</code>
+     * @param message the formatted message, or <code>null</code>
+     * @param thread the thread name, or <code>null</code>
+     * @param millis the time of the event
+     * @param stackTrace the stack trace, or <code>null</code>
+     * @return the embed
+     */
+    static DiscordEmbed render(String level, Color color, String logger, String message, String thread, long millis, String stackTrace) {
+        DiscordEmbed embed = new DiscordEmbed()
+            .setTitle(truncate(logger != null ? level + " in " + logger : level, LIMIT_EMBED_TITLE))
+            .setColor(color)
+            .setTimestamp(millis);
+        if (message != null && !message.isEmpty()) {
+            embed.setDescription(truncate(message, LIMIT_EMBED_DESCRIPTION));
+        }
+        if (thread != null) {
+            embed.addField("Thread", truncate(thread, LIMIT_FIELD_VALUE), true);
+        }
+        if (stackTrace != null && !stackTrace.isEmpty()) {
+            embed.addField("Stack trace", codeBlock(stackTrace, LIMIT_FIELD_VALUE));
+        }
+        return embed;
+    }
+
+    /**
+     * Cuts a string to the given length, marking the cut with three dots.
+     */
+    private static String truncate(String string, int max) {
+        if (string.length() <= max) return string;
+        int end = max - 3;
+        if (Character.isHighSurrogate(string.charAt(end - 1))) end--;
+        return string.substring(0, end) + "...";
+    }
+
+    /**
+     * Wraps a stack trace into a code block, keeping as many complete lines as fit.
+     */
+    private static String codeBlock(String stackTrace, int max) {
+        String trace = stackTrace.replace("```", "'''").trim();
+        int budget = max - 8;
+        if (trace.length() > budget) {
+            int end = trace.lastIndexOf('\n', budget - 4);
+            if (end <= 0) end = budget - 4;
+            if (Character.isHighSurrogate(trace.charAt(end - 1))) end--;
+            trace = trace.substring(0, end) + "\n...";
+        }
+        return "```\n" + trace + "\n```";
+    }
+
+    /**
+     * Queues an embed without blocking.
+     * @param embed the embed
+     * @return <code>true</code> if it was queued, <code>false</code> if it was dropped
+     */
+    boolean offer(DiscordEmbed embed) {
+        if (closed || !queue.offer(embed)) {
+            dropped.incrementAndGet();
+            unreported.incrementAndGet();
+            return false;
+        }
+        if (busy.compareAndSet(false, true)) schedule();
+        return true;
+    }
+
+    /**
+     * Sends the queued embeds without waiting for the linger time to pass.
+     */
+    void flush() {
+        ScheduledFuture<?> timer = this.timer;
+        if (timer != null && timer.cancel(false)) {
+            drain();
+        } else if (busy.compareAndSet(false, true)) {
+            drain();
+        }
+    }
+
+    /**
+     * Stops accepting events and waits until all queued events have been sent.
+     * @param timeout the maximum time to wait
+     * @return <code>true</code> if all events have been sent, <code>false</code> if the timeout expired
+     */
+    boolean close(Duration timeout) {
+        closed = true;
+        flush();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!queue.isEmpty() || busy.get()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) return false;
+            LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK));
+        }
+        return true;
+    }
+
+    /**
+     * Returns the amount of events dropped because the queue was full or the batcher was closed.
+     * @return the amount of dropped events
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the amount of queued events.
+     * @return the queue depth
+     */
+    int getDepth() {
+        return queue.size();
+    }
+
+    private void schedule() {
+        try {
+            timer = webhook.getClient().getScheduler().schedule(this::drain, linger, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            // The client has been closed, nothing can be sent anymore
+            discard();
+        }
+    }
+
+    private void drain() {
+        if (webhook.getClient().getScheduler().isShutdown()) {
+            // The client has been closed, nothing can be sent anymore
+            discard();
+            return;
+        }
+        DiscordWebhookBuilder message;
+        try {
+            message = batch();
+        } catch (RuntimeException ex) {
+            onFailure.accept(ex);
+            next();
+            return;
+        }
+        if (message == null) {
+            release();
+            return;
+        }
+        try {
+            message.executeAsync().whenCompleteAsync((response, ex) -> {
+                if (ex != null) onFailure.accept(ex);
+                next();
+            }, webhook.getClient().getScheduler());
+        } catch (RejectedExecutionException ex) {
+            discard();
+        }
+    }
+
+    private void next() {
+        if (carry == null && queue.isEmpty()) {
+            release();
+        } else if (closed || carry != null || queue.size() >= LIMIT_EMBEDS) {
+            drain();
+        } else {
+            schedule();
+        }
+    }
+
+    private void release() {
+        busy.set(false);
+        // An embed may have been offered after the last poll, but before we released the flag
+        if (!queue.isEmpty() && busy.compareAndSet(false, true)) schedule();
+    }
+
+    private void discard() {
+        carry = null;
+        while (queue.poll() != null) {
+            dropped.incrementAndGet();
+        }
+        busy.set(false);
+    }
+
+    private DiscordWebhookBuilder newMessage() {
+        // Not taken from the pool, flush() may run on a thread that is building a message of its own
+        return new DiscordWebhookBuilder(webhook).withUsername(username);
+    }
+
+    /**
+     * Takes as many embeds from the queue as fit into a single message.
+     * @return the message, or <code>null</code> if there is nothing to send
+     */
+    private DiscordWebhookBuilder batch() {
+        DiscordWebhookBuilder message = null;
+        int count = 0;
+        int length = 0;
+
+        // Dropped events are reported first, at the point where they are missing
+        long lost = unreported.getAndSet(0L);
+        if (lost > 0) {
+            message = newMessage().withEmbed(new DiscordEmbed()
+                .setDescription(lost == 1 ? "1 log event was dropped." : lost + " log events were dropped.")
+                .setColor(DROPPED_COLOR));
+            count = 1;
+            length = message.length();
+        }
+
+        while (count < LIMIT_EMBEDS) {
+            DiscordEmbed embed = carry != null ? carry : queue.poll();
+            carry = null;
+            if (embed == null) break;
+            if (count > 0 && length + embed.length() > LIMIT_TOTAL) {
+                carry = embed;
+                break;
+            }
+            if (message == null) message = newMessage();
+            message.withEmbed(embed);
+            count++;
+            length += embed.length();
+        }
+        return message;
+    }
+
+}
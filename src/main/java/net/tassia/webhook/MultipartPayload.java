@@ -0,0 +1,84 @@
+package net.tassia.webhook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A <code>multipart/form-data</code> payload consisting of a <code>payload_json</code> part followed by
+ * one part per attachment. Its length is known in advance, so the request is not chunked.
+ */
+class MultipartPayload implements DiscordPayload {
+
+    private static final byte[] CRLF = { '\r', '\n' };
+
+    private final String boundary;
+    private final byte[] json;
+    private final List<DiscordAttachment> attachments;
+    private final byte[][] headers;
+    private final byte[] end;
+    private final long length;
+
+    MultipartPayload(byte[] json, List<DiscordAttachment> attachments) {
+        this.boundary = UUID.randomUUID().toString();
+        this.json = json;
+        this.attachments = attachments;
+        this.headers = new byte[attachments.size() + 1][];
+        this.end = ascii("--" + boundary + "--\r\n");
+
+        headers[0] = ascii("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"payload_json\"\r\n"
+            + "Content-Type: " + JacksonPayload.CONTENT_TYPE + "\r\n\r\n");
+        long length = headers[0].length + json.length + CRLF.length;
+        for (int i = 0; i < attachments.size(); i++) {
+            DiscordAttachment attachment = attachments.get(i);
+            headers[i + 1] = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"files[" + i + "]\"; filename=\"" + escape(attachment.getName()) + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+            length += headers[i + 1].length + attachment.getSize() + CRLF.length;
+        }
+        this.length = length + end.length;
+    }
+
+    @Override
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public boolean isOneShot() {
+        for (DiscordAttachment attachment : attachments) {
+            if (attachment.isOneShot()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(headers[0]);
+        out.write(json);
+        out.write(CRLF);
+        for (int i = 0; i < attachments.size(); i++) {
+            out.write(headers[i + 1]);
+            attachments.get(i).writeTo(out);
+            out.write(CRLF);
+        }
+        out.write(end);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String escape(String name) {
+        return name.replace("\r", "").replace("\n", "").replace("\"", "%22");
+    }
+
+}
@@ -0,0 +1,124 @@
+package net.tassia.webhook;
+
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests with OkHttp. Payloads are streamed straight into the connection and asynchronous requests are
+ * handed to OkHttp's dispatcher, which limits how many of them run at once.
+ */
+class OkHttpWebhookTransport implements WebhookTransport {
+
+    private final OkHttpClient client;
+    private final DiscordConnectionStats connectionStats;
+
+    OkHttpWebhookTransport(DiscordWebhookClient.Builder builder) {
+        OkHttpClient.Builder http = builder.client != null ? builder.client.newBuilder() : new OkHttpClient.Builder();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(builder.maxRequests);
+        dispatcher.setMaxRequestsPerHost(builder.maxRequestsPerHost);
+
+        ConnectionPool pool = new ConnectionPool(builder.maxIdleConnections, builder.keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        this.connectionStats = new DiscordConnectionStats(pool);
+        http.dispatcher(dispatcher);
+        http.connectionPool(pool);
+        http.eventListenerFactory(connectionStats.factory());
+        http.connectTimeout(builder.connectTimeout);
+        http.readTimeout(builder.readTimeout);
+        http.writeTimeout(builder.writeTimeout);
+        http.callTimeout(builder.callTimeout);
+        if (builder.http2) {
+            http.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+            if (builder.keepWarm != null) http.pingInterval(builder.keepWarm);
+        } else {
+            http.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        this.client = http.build();
+    }
+
+    /**
+     * Returns the underlying HTTP client.
+     * @return the HTTP client
+     */
+    OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Returns statistics about the connections opened and reused by this transport.
+     * @return the connection stats
+     */
+    DiscordConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    @Override
+    public DiscordResponse execute(WebhookRequest request) throws IOException {
+        try (Response response = client.newCall(toRequest(request)).execute()) {
+            return read(response);
+        }
+    }
+
+    @Override
+    public CompletableFuture<DiscordResponse> executeAsync(WebhookRequest request) {
+        CompletableFuture<DiscordResponse> future = new CompletableFuture<>();
+        Call call = client.newCall(toRequest(request));
+        future.whenComplete((response, ex) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException ex) {
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                try (response) {
+                    future.complete(read(response));
+                } catch (IOException ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+        return future;
+    }
+
+    private static Request toRequest(WebhookRequest request) {
+        RequestBody body = request.getPayload() != null ? new PayloadRequestBody(request) : null;
+        return new Request.Builder().url(request.getURL()).method(request.getMethod(), body).build();
+    }
+
+    /**
+     * Reads the given response. The response itself is not closed by this method.
+     * @param response the response
+     * @return the response object
+     * @throws IOException if an I/O error occurs while reading the body
+     */
+    private static DiscordResponse read(Response response) throws IOException {
+        ResponseBody responseBody = response.body();
+        String body = null;
+        if (responseBody != null && responseBody.contentLength() != 0) {
+            body = responseBody.string();
+            if (body.isEmpty()) body = null;
+        }
+        return new DiscordResponse(response.code(), response.headers().toMultimap(), body);
+    }
+
+    /**
+     * Shuts down the dispatcher threads and closes all idle connections.
+     */
+    @Override
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+}
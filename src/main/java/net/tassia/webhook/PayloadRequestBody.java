@@ -0,0 +1,47 @@
+package net.tassia.webhook;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Adapts the {@link DiscordPayload} of a request to OkHttp, writing it straight into the connection's sink.
+ */
+class PayloadRequestBody extends RequestBody {
+
+    private final WebhookRequest request;
+    private final DiscordPayload payload;
+    private final MediaType contentType;
+
+    PayloadRequestBody(WebhookRequest request) {
+        this.request = request;
+        this.payload = request.getPayload();
+        this.contentType = MediaType.get(payload.getContentType());
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return payload.getContentLength();
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return payload.isOneShot();
+    }
+
+    @Override
+    public void writeTo(@NotNull BufferedSink sink) throws IOException {
+        SinkOutputStream out = new SinkOutputStream(sink);
+        payload.writeTo(out);
+        request.setBytesWritten(out.getCount());
+    }
+
+}
@@ -0,0 +1,104 @@
+package net.tassia.webhook;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free FIFO queue that is safe for multiple producers and consumers.
+ * Based on Dmitry Vyukov's bounded MPMC queue: every slot carries a sequence number that tells producers
+ * and consumers whether it is their turn, so each operation needs a single CAS in the common case.
+ * @param <E> the element type
+ */
+class RingBuffer<E> {
+
+    private final int capacity;
+    // The sequence numbers cannot tell a full single slot from an empty one, so there are always at least two
+    private final int slots;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    RingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.capacity = capacity;
+        this.slots = Math.max(2, capacity);
+        this.elements = new AtomicReferenceArray<>(slots);
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Inserts an element at the tail.
+     * @param element the element
+     * @return <code>true</code> if it was inserted, <code>false</code> if the buffer is full
+     */
+    boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position % slots);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (slots != capacity && position - head.get() >= capacity) return false;
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the element at the head.
+     * @return the element, or <code>null</code> if the buffer is empty
+     */
+    E poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position % slots);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.set(index, null);
+                    sequences.set(index, position + slots);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of elements. The value is only a snapshot while other threads modify the buffer.
+     * @return the size
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) return 0;
+        return (int) Math.min(size, capacity);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+}
@@ -0,0 +1,64 @@
+package net.tassia.webhook;
+
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Exposes an Okio sink as both a stream and a channel, so payloads can hand file channels and buffers
+ * to the sink without copying them through an intermediate array. Closing this stream does not close the sink.
+ */
+class SinkOutputStream extends OutputStream implements WritableByteChannel {
+
+    private final BufferedSink sink;
+    private long count = 0L;
+
+    SinkOutputStream(BufferedSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        sink.writeByte(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        sink.write(b, off, len);
+        count += len;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int written = sink.write(src);
+        count += written;
+        return written;
+    }
+
+    /**
+     * Returns the amount of bytes written to this stream.
+     * @return the amount of bytes
+     */
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        sink.emit();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return sink.isOpen();
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,89 @@
+package net.tassia.webhook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits long text, such as logs or stack traces, into as few chunks as possible.
+ * Chunks are cut at line breaks if possible, then at whitespace, and only then in the middle of a word.
+ * Code blocks (<code>```</code>) that span a cut are closed at the end of the chunk and reopened, with the same
+ * language, at the start of the next one, so every chunk renders on its own.
+ */
+final class TextSplitter {
+
+    private static final String FENCE = "```";
+
+    private TextSplitter() {
+    }
+
+    /**
+     * Splits the given text into chunks of at most <code>limit</code> characters.
+     * @param text the text
+     * @param limit the maximum length of a chunk
+     * @return the chunks, in order
+     */
+    static List<String> split(String text, int limit) {
+        if (text.length() <= limit) return Collections.singletonList(text);
+        List<String> chunks = new ArrayList<>();
+        String fence = null;
+        int start = 0;
+        while (start < text.length()) {
+            String prefix = fence != null ? fence + "\n" : "";
+            if (prefix.length() + text.length() - start <= limit) {
+                chunks.add(prefix + text.substring(start));
+                break;
+            }
+
+            int end = cut(text, start, start + limit - prefix.length());
+            String open = fence(text, start, end, fence);
+            if (open != null) {
+                // The chunk has to close the code block, so make room for the closing fence
+                end = cut(text, start, start + limit - prefix.length() - FENCE.length() - 1);
+                open = fence(text, start, end, fence);
+            }
+
+            StringBuilder chunk = new StringBuilder(limit).append(prefix).append(text, start, end);
+            if (open != null) {
+                if (chunk.charAt(chunk.length() - 1) != '\n') chunk.append('\n');
+                chunk.append(FENCE);
+            }
+            chunks.add(chunk.toString());
+
+            fence = open;
+            start = end;
+            if (start < text.length() && text.charAt(start) == '\n') start++;
+        }
+        return chunks;
+    }
+
+    private static int cut(String text, int start, int max) {
+        if (max <= start) throw new IllegalArgumentException("Limit is too small to split the text");
+        int newline = text.lastIndexOf('\n', max);
+        if (newline > start) return newline;
+        for (int i = max; i > start; i--) {
+            if (Character.isWhitespace(text.charAt(i - 1))) return i;
+        }
+        // Never separate a surrogate pair
+        return Character.isHighSurrogate(text.charAt(max - 1)) ? max - 1 : max;
+    }
+
+    /**
+     * Returns the opening line of the code block that is still open at <code>end</code>, or <code>null</code>.
+     */
+    private static String fence(String text, int start, int end, String fence) {
+        int line = start;
+        while (line < end) {
+            int next = text.indexOf('\n', line);
+            if (next < 0 || next > end) next = end;
+            String trimmed = text.substring(line, next).trim();
+            if (trimmed.startsWith(FENCE)) {
+                boolean inline = trimmed.length() > FENCE.length() && trimmed.endsWith(FENCE);
+                if (!inline) fence = fence == null ? trimmed : null;
+            }
+            line = next + 1;
+        }
+        return fence;
+    }
+
+}
@@ -0,0 +1,110 @@
+package net.tassia.webhook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Represents a request to the Discord API, independent of the HTTP client that sends it.
+ * Requests are created by {@link DiscordWebhook} and sent through a {@link WebhookTransport}.
+ */
+public final class WebhookRequest {
+
+    private final String method;
+    private final String url;
+    private final DiscordPayload payload;
+    private volatile String host = null;
+    private volatile long bytesWritten = -1L;
+
+    /**
+     * Creates a new request.
+     * @param method the HTTP method, such as <code>POST</code>
+     * @param url the absolute URL
+     * @param payload the body, or <code>null</code> if the request has none
+     */
+    public WebhookRequest(String method, String url, DiscordPayload payload) {
+        if (method == null || url == null) throw new NullPointerException();
+        this.method = method;
+        this.url = url;
+        this.payload = payload;
+    }
+
+    /**
+     * Returns the HTTP method.
+     * @return the method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the absolute URL.
+     * @return the URL
+     */
+    public String getURL() {
+        return url;
+    }
+
+    /**
+     * Returns the body of this request.
+     * @return the body, or <code>null</code> if the request has none
+     */
+    public DiscordPayload getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns whether the body can only be written once. Such requests are never retried.
+     * @return is one-shot
+     */
+    public boolean isOneShot() {
+        return payload != null && payload.isOneShot();
+    }
+
+    /**
+     * Returns the host of the URL, used to limit concurrent requests per host.
+     * @return the host
+     */
+    String getHost() {
+        String host = this.host;
+        if (host == null) {
+            host = URI.create(url).getHost();
+            this.host = host;
+        }
+        return host;
+    }
+
+    /**
+     * Writes the body into a byte array, for transports that cannot stream it.
+     * @return the body, or an empty array if the request has none
+     * @throws IOException if an I/O error occurs
+     */
+    byte[] toByteArray() throws IOException {
+        if (payload == null) return new byte[0];
+        long length = payload.getContentLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 && length <= Integer.MAX_VALUE ? (int) length : 256);
+        payload.writeTo(out);
+        bytesWritten = out.size();
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns how many bytes of the body were written the last time this request was sent.
+     * @return the amount of bytes, or the content length if the transport did not report it
+     */
+    long getBytesWritten() {
+        long bytesWritten = this.bytesWritten;
+        if (bytesWritten >= 0) return bytesWritten;
+        return payload != null ? payload.getContentLength() : 0L;
+    }
+
+    void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
+    @Override
+    public String toString() {
+        return "WebhookRequest{" + method + " " + url + "}";
+    }
+
+}
@@ -0,0 +1,43 @@
+package net.tassia.webhook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends requests to the Discord API. Rate limiting, retries and circuit breaking are handled by the
+ * {@link DiscordWebhookClient}, a transport only performs a single HTTP exchange per call.
+ * <p>
+ * The client ships with transports based on OkHttp and on <code>java.net.http.HttpClient</code>, see
+ * {@link DiscordWebhookClient.TransportType}. Custom transports, such as {@link InMemoryWebhookTransport},
+ * can be installed with {@link DiscordWebhookClient.Builder#withTransport(WebhookTransport)}.
+ * </p>
+ */
+public interface WebhookTransport extends Closeable {
+
+    /**
+     * Sends a request, blocking the calling thread until the response has been read.
+     * @param request the request
+     * @return the response, whatever its status code
+     * @throws IOException if an I/O error occurs, or the calling thread is interrupted
+     * (as an {@link java.io.InterruptedIOException})
+     */
+    DiscordResponse execute(WebhookRequest request) throws IOException;
+
+    /**
+     * Sends a request without blocking the calling thread. Cancelling the returned future should cancel
+     * the exchange.
+     * @param request the request
+     * @return a future that completes with the response, whatever its status code, or completes exceptionally
+     * with an {@link IOException}
+     */
+    CompletableFuture<DiscordResponse> executeAsync(WebhookRequest request);
+
+    /**
+     * Releases the threads and connections held by this transport. Called when the client is closed.
+     */
+    @Override
+    default void close() {
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordBroadcastTest {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordMessage message = DiscordMessage.of("{\"content\":\"test\"}");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    @Test
+    public void sendsToEveryWebhook() {
+        DiscordWebhook first = client.webhook(1L, "a");
+        DiscordWebhook second = client.webhook(2L, "b");
+
+        DiscordBroadcastResult result = client.broadcast(message, List.of(first, second)).join();
+        assertTrue(result.isSuccessful());
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(2, transport.getRequestCount());
+    }
+
+    @Test
+    public void sendsToEqualWebhooksOnce() {
+        DiscordWebhook first = client.webhook(1L, "a");
+        DiscordWebhook copy = client.webhook(1L, "a");
+        DiscordWebhook regenerated = client.webhook(1L, "b");
+
+        DiscordBroadcastResult result = client.broadcast(message, List.of(first, copy, first, regenerated)).join();
+        assertEquals(2, result.getSuccessCount());
+        assertTrue(result.getResponses().containsKey(first));
+        assertFalse(result.getResponses().containsKey(copy));
+        assertEquals(2, transport.getRequestCount());
+    }
+
+}
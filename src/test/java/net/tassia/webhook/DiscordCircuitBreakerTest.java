@@ -0,0 +1,136 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordCircuitBreakerTest {
+
+    private static final Map<String, List<String>> HEADERS = Map.of();
+
+    private final AtomicReference<DiscordResponse> next = new AtomicReference<>();
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport().respondWith(request -> {
+        DiscordResponse response = next.get();
+        if (response == null) throw new IllegalStateException("broken transport");
+        return response;
+    });
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .withRetryPolicy(DiscordRetryPolicy.builder()
+            .withMaxAttempts(1)
+            .withCircuitBreaker(2, Duration.ofMillis(50))
+            .build())
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private void send() throws IOException {
+        webhook.execute("{\"content\":\"test\"}");
+    }
+
+    private void open() {
+        next.set(new DiscordResponse(502, HEADERS, null));
+        assertThrows(DiscordWebhookException.class, this::send);
+        assertThrows(DiscordWebhookException.class, this::send);
+        assertEquals(DiscordCircuitBreaker.State.OPEN, webhook.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        open();
+        assertThrows(DiscordCircuitOpenException.class, this::send);
+        assertEquals(2, transport.getRequestCount());
+    }
+
+    @Test
+    public void closesAfterSuccessfulProbe() throws Exception {
+        open();
+        Thread.sleep(60);
+        next.set(new DiscordResponse(204, HEADERS, null));
+        send();
+        assertEquals(DiscordCircuitBreaker.State.CLOSED, webhook.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void reopensAfterFailedProbe() throws Exception {
+        open();
+        Thread.sleep(60);
+        assertThrows(DiscordWebhookException.class, this::send);
+        assertEquals(DiscordCircuitBreaker.State.OPEN, webhook.getCircuitBreaker().getState());
+        assertThrows(DiscordCircuitOpenException.class, this::send);
+    }
+
+    @Test
+    public void releasesProbeWhenTransportThrows() throws Exception {
+        open();
+        Thread.sleep(60);
+        next.set(null);
+        assertThrows(IllegalStateException.class, this::send);
+        next.set(new DiscordResponse(204, HEADERS, null));
+        send();
+        assertEquals(DiscordCircuitBreaker.State.CLOSED, webhook.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void releasesProbeWhenAsyncTransportThrows() throws Exception {
+        open();
+        Thread.sleep(60);
+        next.set(null);
+        CompletionException ex = assertThrows(CompletionException.class,
+            () -> webhook.executeAsync("{\"content\":\"test\"}").join());
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        next.set(new DiscordResponse(204, HEADERS, null));
+        webhook.executeAsync("{\"content\":\"test\"}").join();
+        assertEquals(DiscordCircuitBreaker.State.CLOSED, webhook.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void staysDeletedForUnknownWebhook() {
+        next.set(new DiscordResponse(404, HEADERS, "{\"message\": \"Unknown Webhook\", \"code\": 10015}"));
+        assertThrows(DiscordWebhookException.class, this::send);
+        assertEquals(DiscordCircuitBreaker.State.DELETED, webhook.getCircuitBreaker().getState());
+
+        DiscordCircuitOpenException ex = assertThrows(DiscordCircuitOpenException.class, this::send);
+        assertTrue(ex.isPermanent());
+        webhook.getCircuitBreaker().reset();
+        assertEquals(DiscordCircuitBreaker.State.CLOSED, webhook.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void treatsOther404AsFailure() {
+        next.set(new DiscordResponse(404, HEADERS, "<html>Not Found</html>"));
+        assertThrows(DiscordWebhookException.class, this::send);
+        assertEquals(DiscordCircuitBreaker.State.CLOSED, webhook.getCircuitBreaker().getState());
+
+        assertThrows(DiscordWebhookException.class, this::send);
+        assertEquals(DiscordCircuitBreaker.State.OPEN, webhook.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void unknownMessageDoesNotOpen() throws Exception {
+        next.set(new DiscordResponse(404, HEADERS, "{\"message\": \"Unknown Message\", \"code\": 10008}"));
+        for (int i = 0; i < 5; i++) {
+            DiscordMessageHandle handle = new DiscordMessageHandle(webhook, Integer.toString(i));
+            DiscordWebhookException ex = assertThrows(DiscordWebhookException.class, handle::delete);
+            assertEquals(404, ex.getResponse().getCode());
+        }
+        assertEquals(DiscordCircuitBreaker.State.CLOSED, webhook.getCircuitBreaker().getState());
+
+        next.set(new DiscordResponse(204, HEADERS, null));
+        send();
+        assertEquals(6, transport.getRequestCount());
+    }
+
+}
@@ -0,0 +1,82 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordCoalescingQueueTest {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder().withTransport(transport).build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+    private final DiscordCoalescingQueue queue = new DiscordCoalescingQueue(webhook, Duration.ofMinutes(1));
+
+    @AfterEach
+    public void close() {
+        queue.close();
+        client.close();
+    }
+
+    @Test
+    public void mergesMessagesWithTheSameOverrides() {
+        CompletableFuture<DiscordResponse> first = queue.submit(webhook.builder().withContent("first"));
+        CompletableFuture<DiscordResponse> second = queue.submit(webhook.builder().withContent("second")
+            .withEmbed(new DiscordEmbed().setTitle("embed")));
+        CompletableFuture<DiscordResponse> other = queue.submit(webhook.builder().withContent("other").withUsername("bot"));
+        assertEquals(3, queue.getPendingCount());
+        assertEquals(0, transport.getRequestCount());
+
+        queue.flush();
+        first.join();
+        second.join();
+        other.join();
+        List<InMemoryWebhookTransport.RecordedRequest> requests = transport.getRequests();
+        assertEquals(2, requests.size());
+        String merged = requests.stream().map(InMemoryWebhookTransport.RecordedRequest::getBodyAsString)
+            .filter(body -> body.contains("first")).findFirst().orElseThrow();
+        assertTrue(merged.contains("\"content\":\"first\\nsecond\""));
+        assertTrue(merged.contains("\"title\":\"embed\""));
+    }
+
+    @Test
+    public void sendsFullBatchesImmediately() {
+        for (int i = 0; i < DiscordConstants.LIMIT_EMBEDS; i++) {
+            queue.submit(webhook.builder().withEmbed(new DiscordEmbed().setTitle("embed " + i)));
+        }
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(1, transport.getRequestCount());
+    }
+
+    @Test
+    public void sendsMessagesWithFilesOnTheirOwn() {
+        DiscordWebhookBuilder withFile = webhook.builder()
+            .withContent("report")
+            .withFile("report.txt", ByteBuffer.wrap("file contents".getBytes(StandardCharsets.UTF_8)));
+        queue.submit(webhook.builder().withContent("before"));
+        CompletableFuture<DiscordResponse> future = queue.submit(withFile);
+        future.join();
+        assertEquals(1, queue.getPendingCount());
+
+        InMemoryWebhookTransport.RecordedRequest request = transport.getRequests().get(0);
+        assertTrue(request.getContentType().startsWith("multipart/form-data"));
+        assertTrue(request.getBodyAsString().contains("file contents"));
+        assertTrue(request.getBodyAsString().contains("report.txt"));
+        assertFalse(request.getBodyAsString().contains("before"));
+    }
+
+    @Test
+    public void rejectsMessagesOnceClosed() {
+        queue.submit(webhook.builder().withContent("pending"));
+        queue.close();
+        assertEquals(1, transport.getRequestCount());
+        assertThrows(IllegalStateException.class, () -> queue.submit(webhook.builder().withContent("late")));
+    }
+
+}
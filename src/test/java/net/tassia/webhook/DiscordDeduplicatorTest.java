@@ -0,0 +1,93 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordDeduplicatorTest {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder().withTransport(transport).build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+    private final DiscordDeduplicator deduplicator = new DiscordDeduplicator(webhook, Duration.ofMinutes(1), 2);
+
+    @AfterEach
+    public void close() {
+        deduplicator.close();
+        client.close();
+    }
+
+    @Test
+    public void suppressesDuplicatesAndSendsSummary() {
+        deduplicator.submit(webhook.builder().withContent("database down")).join();
+        deduplicator.submit(webhook.builder().withContent("database down")).join();
+        deduplicator.submit(webhook.builder().withContent("database down")).join();
+        assertEquals(1, transport.getRequestCount());
+        assertEquals(2, deduplicator.getSuppressedCount());
+
+        deduplicator.flush();
+        assertEquals(2, transport.getRequestCount());
+        assertTrue(transport.getRequests().get(1).getBodyAsString().contains("Repeated 2 more times"));
+        assertEquals(0, deduplicator.getWindowCount());
+    }
+
+    @Test
+    public void sendsNoSummaryWithoutDuplicates() {
+        deduplicator.submit(webhook.builder().withContent("once")).join();
+        deduplicator.flush();
+        assertEquals(1, transport.getRequestCount());
+    }
+
+    @Test
+    public void comparesKeysInsteadOfPayloads() {
+        deduplicator.submit("db", webhook.builder().withContent("database down at 12:00")).join();
+        deduplicator.submit("db", webhook.builder().withContent("database down at 12:01")).join();
+        deduplicator.submit("cache", webhook.builder().withContent("cache down")).join();
+        assertEquals(2, transport.getRequestCount());
+        assertEquals(1, deduplicator.getSuppressedCount());
+    }
+
+    @Test
+    public void closesOldestWindowWhenFull() {
+        deduplicator.submit("a", DiscordMessage.of("{\"content\":\"a\"}"));
+        deduplicator.submit("a", DiscordMessage.of("{\"content\":\"a\"}"));
+        deduplicator.submit("b", DiscordMessage.of("{\"content\":\"b\"}"));
+        deduplicator.submit("c", DiscordMessage.of("{\"content\":\"c\"}"));
+        assertEquals(2, deduplicator.getWindowCount());
+        // a, its summary, b and c
+        assertEquals(4, transport.getRequestCount());
+    }
+
+    @Test
+    public void failsInvalidMessagesWithoutThrowing() {
+        CompletableFuture<DiscordResponse> empty = deduplicator.submit(webhook.builder());
+        CompletionException ex = assertThrows(CompletionException.class, empty::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+
+        CompletableFuture<DiscordResponse> keyed = deduplicator.submit("key", webhook.builder());
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, keyed::join).getCause());
+        assertEquals(0, transport.getRequestCount());
+    }
+
+    @Test
+    public void rejectsMessagesOnceClosed() {
+        deduplicator.close();
+        assertThrows(IllegalStateException.class, () -> deduplicator.submit(webhook.builder().withContent("late")));
+    }
+
+    @Test
+    public void hashesEqualPayloadsEqually() {
+        byte[] a = "{\"content\":\"the same message\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "{\"content\":\"the same message\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] c = "{\"content\":\"the same messagE\"}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(DiscordDeduplicator.hash(a), DiscordDeduplicator.hash(b));
+        assertNotEquals(DiscordDeduplicator.hash(a), DiscordDeduplicator.hash(c));
+    }
+
+}
@@ -0,0 +1,137 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordDeliveryLogTest {
+
+    // state (1) + length (4) + sequence (8) + crc (4)
+    private static final int HEADER_SIZE = 17;
+
+    @TempDir
+    Path directory;
+
+    private static byte[] payload(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> replay(DiscordDeliveryLog log) {
+        List<String> payloads = new ArrayList<>();
+        log.replay(record -> payloads.add(new String(record.getPayload(), StandardCharsets.UTF_8)));
+        return payloads;
+    }
+
+    private Path firstSegment() {
+        return directory.resolve(String.format("%020d.log", 0));
+    }
+
+    private void overwrite(long position, ByteBuffer data) throws IOException {
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.WRITE)) {
+            channel.write(data, position);
+        }
+    }
+
+    @Test
+    public void replaysUnacknowledgedRecordsAfterReopening() throws IOException {
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 4096)) {
+            long first = log.append(payload("first"));
+            log.append(payload("second"));
+            log.append(payload("third"));
+            log.ack(first);
+            assertEquals(2, log.getPendingCount());
+        }
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 4096)) {
+            assertEquals(List.of("second", "third"), replay(log));
+            assertEquals(3L, log.append(payload("fourth")));
+        }
+    }
+
+    @Test
+    public void stopsAtTornRecord() throws IOException {
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 4096)) {
+            log.append(payload("first"));
+            log.append(payload("second"));
+        }
+        // Flip a byte of the second payload, as if the append had been interrupted
+        overwrite(HEADER_SIZE + 5 + HEADER_SIZE, ByteBuffer.wrap(new byte[] { 'X' }));
+
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 4096)) {
+            assertEquals(List.of("first"), replay(log));
+            // The torn record is overwritten by the next append
+            log.append(payload("third"));
+        }
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 4096)) {
+            assertEquals(List.of("first", "third"), replay(log));
+        }
+    }
+
+    @Test
+    public void opensWithCorruptedLength() throws IOException {
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 4096)) {
+            log.append(payload("first"));
+            log.append(payload("second"));
+        }
+        overwrite(HEADER_SIZE + 5 + 1, ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 8));
+
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 4096)) {
+            assertEquals(List.of("first"), replay(log));
+        }
+    }
+
+    @Test
+    public void rejectsPayloadsLargerThanASegment() throws IOException {
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 64)) {
+            assertThrows(IllegalArgumentException.class, () -> log.append(new byte[64]));
+            log.append(new byte[64 - HEADER_SIZE]);
+        }
+    }
+
+    @Test
+    public void deletesAcknowledgedSegments() throws IOException {
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 256)) {
+            List<Long> sequences = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                sequences.add(log.append(new byte[50]));
+            }
+            assertTrue(log.getSegmentCount() > 10);
+            for (long sequence : sequences) {
+                log.ack(sequence);
+            }
+            assertEquals(1, log.getSegmentCount());
+        }
+    }
+
+    @Test
+    public void compactsWhenStartingASegment() throws IOException {
+        // Three records fit into a segment
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory, 3 * (HEADER_SIZE + 50) + 10)) {
+            for (int i = 0; i < 300; i++) {
+                long sequence = log.append(new byte[50]);
+                // Every tenth record is never acknowledged
+                if (i % 10 != 0) log.ack(sequence);
+            }
+            assertEquals(30, log.getPendingCount());
+            assertTrue(log.getSegmentCount() <= 20, "segments: " + log.getSegmentCount());
+        }
+        try (DiscordDeliveryLog log = DiscordDeliveryLog.open(directory)) {
+            List<Long> sequences = new ArrayList<>();
+            log.replay(record -> sequences.add(record.getSequence()));
+            assertEquals(30, sequences.size());
+            for (int i = 0; i < 30; i++) {
+                assertEquals(i * 10L, sequences.get(i));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordEmbedTest implements DiscordConstants {
+
+    private static int count(DiscordEmbed embed) {
+        int length = 0;
+        if (embed.getTitle() != null) length += embed.getTitle().length();
+        if (embed.getDescription() != null) length += embed.getDescription().length();
+        if (embed.getFooter() != null) length += embed.getFooter().getText().length();
+        if (embed.getAuthor() != null) length += embed.getAuthor().getName().length();
+        for (DiscordEmbed.Field field : embed.getFields()) {
+            length += field.getName().length() + field.getValue().length();
+        }
+        return length;
+    }
+
+    @Test
+    public void tracksLengthOfEveryChange() {
+        DiscordEmbed embed = new DiscordEmbed().setTitle("title").setDescription("description");
+        embed.setFooter("footer").setAuthor("author").addField("name", "value");
+        assertEquals(count(embed), embed.length());
+
+        embed.getFooter().setText("a longer footer");
+        embed.getAuthor().setName("a");
+        embed.setTitle("t");
+        ((List<DiscordEmbed.Field>) embed.getFields()).get(0).setValue("another value");
+        assertEquals(count(embed), embed.length());
+
+        ((List<DiscordEmbed.Field>) embed.getFields()).remove(0);
+        embed.setFooter((DiscordEmbed.Footer) null);
+        assertEquals(count(embed), embed.length());
+
+        embed.reset();
+        assertEquals(0, embed.length());
+    }
+
+    @Test
+    public void countsSharedPartsInEveryEmbed() {
+        DiscordEmbed.Field field = new DiscordEmbed.Field("name", "value");
+        DiscordEmbed first = new DiscordEmbed().addField(field);
+        DiscordEmbed second = new DiscordEmbed().setTitle("title").addField(field);
+
+        field.setValue("a much longer value");
+        assertEquals(count(first), first.length());
+        assertEquals(count(second), second.length());
+    }
+
+    @Test
+    public void rejectsTooLongEmbedsUnlessSplitting() {
+        DiscordEmbed embed = new DiscordEmbed();
+        for (int i = 0; i < 5; i++) embed.addField("field", "x".repeat(LIMIT_FIELD_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> embed.addField("field", "x".repeat(LIMIT_FIELD_VALUE)));
+
+        embed.setSplitting(true).addField("field", "x".repeat(LIMIT_FIELD_VALUE));
+        assertFalse(embed.isValid());
+    }
+
+    @Test
+    public void splitsIntoValidEmbeds() {
+        DiscordEmbed embed = new DiscordEmbed().setSplitting(true).setTitle("title").setFooter("footer");
+        embed.setDescription("line\n".repeat(1000));
+        for (int i = 0; i < 40; i++) embed.addField("field " + i, "x".repeat(500));
+
+        List<DiscordEmbed> parts = embed.split();
+        assertTrue(parts.size() > 1);
+        assertEquals("title", parts.get(0).getTitle());
+        assertEquals("footer", parts.get(parts.size() - 1).getFooter().getText());
+
+        int fields = 0;
+        for (DiscordEmbed part : parts) {
+            assertTrue(part.isValid());
+            assertEquals(count(part), part.length());
+            for (DiscordEmbed.Field field : part.getFields()) {
+                assertEquals("field " + fields++, field.getName());
+            }
+        }
+        assertEquals(40, fields);
+    }
+
+    @Test
+    public void keepsValidEmbed() {
+        DiscordEmbed embed = new DiscordEmbed().setTitle("title");
+        assertSame(embed, embed.split().get(0));
+    }
+
+    @Test
+    public void resetReusesOwnParts() {
+        DiscordEmbed embed = new DiscordEmbed().setFooter("footer").addField("name", "value");
+        DiscordEmbed.Footer footer = embed.getFooter();
+        DiscordEmbed.Field field = ((List<DiscordEmbed.Field>) embed.getFields()).get(0);
+
+        embed.reset().setFooter("new footer").addField("new name", "new value");
+        assertSame(footer, embed.getFooter());
+        assertSame(field, ((List<DiscordEmbed.Field>) embed.getFields()).get(0));
+        assertEquals("new name", field.getName());
+        assertEquals(count(embed), embed.length());
+    }
+
+    @Test
+    public void resetDoesNotReusePartsOfOtherEmbeds() {
+        DiscordEmbed embed = new DiscordEmbed().addField("name", "value");
+        DiscordEmbed.Field field = ((List<DiscordEmbed.Field>) embed.getFields()).get(0);
+        DiscordEmbed other = new DiscordEmbed().addField(field);
+
+        embed.reset().addField("new name", "new value");
+        assertNotSame(field, ((List<DiscordEmbed.Field>) embed.getFields()).get(0));
+        assertEquals("name", field.getName());
+        assertEquals(count(other), other.length());
+    }
+
+    @Test
+    public void doesNotReuseReplacedParts() {
+        DiscordEmbed embed = new DiscordEmbed().setFooter("footer").setAuthor("author").addField("name", "value");
+        DiscordEmbed.Footer footer = embed.getFooter();
+        DiscordEmbed.Author author = embed.getAuthor();
+        DiscordEmbed.Field field = ((List<DiscordEmbed.Field>) embed.getFields()).get(0);
+
+        embed.setFooter(new DiscordEmbed.Footer("other")).setFooter("new footer");
+        embed.setAuthor((DiscordEmbed.Author) null).setAuthor("new author");
+        embed.getFields().clear();
+        embed.addField("new name", "new value");
+
+        assertEquals("footer", footer.getText());
+        assertEquals("author", author.getName());
+        assertEquals("name", field.getName());
+        assertNotSame(footer, embed.getFooter());
+        assertEquals(count(embed), embed.length());
+    }
+
+}
@@ -0,0 +1,123 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordJsonWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(new InMemoryWebhookTransport())
+        .withSerializationMode(DiscordWebhookClient.SerializationMode.BUILT_IN)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private void assertSameAsJackson(DiscordWebhookBuilder builder) throws JsonProcessingException {
+        byte[] expected = mapper.writeValueAsBytes(builder);
+        byte[] actual = DiscordJsonWriter.write(builder);
+        assertEquals(new String(expected, StandardCharsets.UTF_8), new String(actual, StandardCharsets.UTF_8));
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void writesContentOnly() throws JsonProcessingException {
+        assertSameAsJackson(webhook.builder().withContent("test"));
+        assertSameAsJackson(webhook.builder().withContent("test").withUsername("bot").withAvatarURL("https://example.com/a.png").withTTS(true));
+    }
+
+    @Test
+    public void writesEveryEmbedPart() throws JsonProcessingException {
+        DiscordWebhookBuilder builder = webhook.builder();
+        builder.embed()
+            .setTitle("title")
+            .setDescription("description")
+            .setUrl("https://example.com")
+            .setTimestamp(1_600_000_000_123L)
+            .setColor(new Color(0x12, 0x34, 0x56))
+            .setFooter("footer", "https://example.com/footer.png")
+            .setImage("https://example.com/image.png")
+            .setThumbnail("https://example.com/thumbnail.png")
+            .setAuthor("author", "https://example.com/author", "https://example.com/author.png")
+            .addField("name", "value")
+            .addField("inline", "value", true);
+        builder.embed().setDescription("second");
+        builder.withEmbed(new DiscordEmbed().setFields(Collections.emptyList()).setTitle("empty fields"));
+        assertSameAsJackson(builder);
+    }
+
+    @Test
+    public void writesTimestampsAndColors() throws JsonProcessingException {
+        long[] timestamps = { 0L, 1L, 999L, 951_782_400_000L, -1_000L, -62_135_596_800_000L, 253_402_300_799_999L, 253_402_300_800_000L };
+        for (long timestamp : timestamps) {
+            DiscordWebhookBuilder builder = webhook.builder();
+            builder.embed().setTitle("t").setTimestamp(timestamp);
+            assertSameAsJackson(builder);
+        }
+        Color[] colors = { Color.BLACK, Color.WHITE, new Color(1, 2, 3, 4), new Color(0xFFFFFF) };
+        for (Color color : colors) {
+            DiscordWebhookBuilder builder = webhook.builder();
+            builder.embed().setTitle("t").setColor(color);
+            assertSameAsJackson(builder);
+        }
+    }
+
+    @Test
+    public void escapesStrings() throws JsonProcessingException {
+        StringBuilder control = new StringBuilder();
+        for (char c = 0; c < 0x20; c++) control.append(c);
+        String[] values = {
+            "\"quoted\" \\ / slash",
+            control.toString() + "\u007f",
+            "\u00E4\u00F6\u00FC \u00DF \u20AC \u2028\u2029",
+            "emoji \uD83D\uDE00 and \uD834\uDD1E",
+            "<html> & 'apostrophes'"
+        };
+        for (String value : values) {
+            DiscordWebhookBuilder builder = webhook.builder().withContent(value).withUsername(value);
+            builder.embed().setTitle(value).addField(value, value).setFooter(value);
+            assertSameAsJackson(builder);
+        }
+    }
+
+    @Test
+    public void writesLargePayloads() throws JsonProcessingException {
+        DiscordWebhookBuilder builder = webhook.builder().withSplitting(true).withContent("\u00E4".repeat(100_000));
+        assertSameAsJackson(builder);
+        // The thread's buffer is reset after a large payload
+        assertSameAsJackson(webhook.builder().withContent("small"));
+    }
+
+    @Test
+    public void writesSingleProperty() throws JsonProcessingException {
+        assertArrayEquals(mapper.writeValueAsBytes(Collections.singletonMap("name", "v\u00E4lue \"x\"")), DiscordJsonWriter.write("name", "v\u00E4lue \"x\""));
+        assertArrayEquals(mapper.writeValueAsBytes(Collections.singletonMap("name", null)), DiscordJsonWriter.write("name", null));
+    }
+
+    @Test
+    public void isUsedByBuiltInClients() throws JsonProcessingException {
+        DiscordWebhookBuilder builder = webhook.builder().withContent("test");
+        assertArrayEquals(DiscordJsonWriter.write(builder), builder.freeze().toByteArray());
+        assertEquals(new String(DiscordJsonWriter.write(builder), StandardCharsets.UTF_8), builder.getJSON());
+    }
+
+    @Test
+    public void rendersTemplatesLikeWriter() throws JsonProcessingException {
+        DiscordTemplate template = webhook.builder().withContent("{{text}}").compile();
+        String text = "\"quoted\" \u00E4\u00F6\u00FC \uD83D\uDE00\u0000";
+        assertEquals(webhook.builder().withContent(text).getJSON(), template.render(text).getJSON());
+    }
+
+}
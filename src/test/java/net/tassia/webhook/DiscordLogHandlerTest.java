@@ -0,0 +1,106 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordLogHandlerTest implements DiscordConstants {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private DiscordLogHandler handler(int capacity) {
+        return new DiscordLogHandler(webhook, capacity, Duration.ofMinutes(1), "Logs");
+    }
+
+    private static LogRecord record(Level level, String message) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName("com.example.App");
+        return record;
+    }
+
+    private JsonNode message(int index) throws IOException {
+        return client.getMapper().readTree(transport.getRequests().get(index).getBodyAsString());
+    }
+
+    @Test
+    public void batchesRecordsIntoOneMessage() throws IOException {
+        DiscordLogHandler handler = handler(100);
+        for (int i = 0; i < 3; i++) handler.publish(record(Level.SEVERE, "failure " + i));
+        assertEquals(3, handler.getDepth());
+        assertEquals(0, transport.getRequestCount());
+
+        handler.close();
+        assertEquals(1, transport.getRequestCount());
+        JsonNode embeds = message(0).get("embeds");
+        assertEquals(3, embeds.size());
+        assertEquals("failure 0", embeds.get(0).get("description").asText());
+        assertEquals("SEVERE in com.example.App", embeds.get(0).get("title").asText());
+        assertEquals("Logs", message(0).get("username").asText());
+    }
+
+    @Test
+    public void splitsBatchesAtEmbedLimit() throws IOException {
+        DiscordLogHandler handler = handler(100);
+        for (int i = 0; i < LIMIT_EMBEDS + 2; i++) handler.publish(record(Level.SEVERE, "failure " + i));
+
+        handler.close();
+        assertEquals(2, transport.getRequestCount());
+        assertEquals(LIMIT_EMBEDS, message(0).get("embeds").size());
+        assertEquals(2, message(1).get("embeds").size());
+        assertEquals("failure " + LIMIT_EMBEDS, message(1).get("embeds").get(0).get("description").asText());
+    }
+
+    @Test
+    public void reportsDroppedRecordsInNextBatch() throws IOException {
+        DiscordLogHandler handler = handler(1);
+        for (int i = 0; i < 3; i++) handler.publish(record(Level.SEVERE, "failure " + i));
+        assertEquals(1, handler.getDepth());
+        assertEquals(2, handler.getDroppedCount());
+
+        handler.close();
+        JsonNode embeds = message(0).get("embeds");
+        assertEquals(2, embeds.size());
+        assertEquals("2 log events were dropped.", embeds.get(0).get("description").asText());
+        assertEquals("failure 0", embeds.get(1).get("description").asText());
+    }
+
+    @Test
+    public void skipsUnloggableAndOwnRecords() {
+        DiscordLogHandler handler = handler(100);
+        handler.publish(record(Level.INFO, "info"));
+        LogRecord own = record(Level.SEVERE, "own");
+        own.setLoggerName("net.tassia.webhook.DiscordWebhook");
+        handler.publish(own);
+        assertEquals(0, handler.getDepth());
+
+        handler.close();
+        assertEquals(0, transport.getRequestCount());
+        assertEquals(0, handler.getDroppedCount());
+    }
+
+    @Test
+    public void dropsRecordsAfterClose() {
+        DiscordLogHandler handler = handler(100);
+        handler.close();
+        handler.publish(record(Level.SEVERE, "late"));
+        assertEquals(1, handler.getDroppedCount());
+        assertEquals(0, transport.getRequestCount());
+    }
+
+}
@@ -0,0 +1,90 @@
+package net.tassia.webhook;
+
+import net.tassia.webhook.stub.DiscordStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordMessageHandleTest {
+
+    private final DiscordStubServer server;
+    private final DiscordWebhookClient client;
+    private final DiscordWebhook webhook;
+
+    public DiscordMessageHandleTest() throws Exception {
+        this.server = DiscordStubServer.builder().withRateLimit(50, Duration.ofSeconds(1)).start();
+        this.client = DiscordWebhookClient.builder().withBaseURL(server.getBaseURL()).build();
+        this.webhook = client.webhook(1L, "token");
+    }
+
+    @AfterEach
+    public void close() {
+        client.close();
+        server.close();
+    }
+
+    private List<DiscordStubServer.Request> requests(String method) {
+        return server.getRequests().stream().filter(request -> request.getMethod().equals(method)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void editsAndDeletesCreatedMessage() throws Exception {
+        DiscordMessageHandle handle = webhook.builder().withContent("created").executeAndWait();
+        assertNotNull(handle.getId());
+        assertEquals("wait=true", server.getRequests().get(0).getQuery());
+
+        DiscordResponse edited = handle.edit(webhook.builder().withContent("edited"));
+        assertTrue(edited.getBody().contains("\"edited\""));
+        assertTrue(requests("PATCH").get(0).getPath().endsWith("/messages/" + handle.getId()));
+
+        handle.delete();
+        DiscordWebhookException ex = assertThrows(DiscordWebhookException.class, () -> handle.edit(webhook.builder().withContent("again")));
+        assertEquals(404, ex.getResponse().getCode());
+    }
+
+    @Test
+    public void editAsyncFailsWithInvalidMessage() throws Exception {
+        DiscordMessageHandle handle = webhook.executeAndWaitAsync(DiscordMessage.of("{\"content\":\"created\"}")).get(10, TimeUnit.SECONDS);
+        assertThrows(Exception.class, () -> handle.editAsync(webhook.builder()).join());
+        assertTrue(requests("PATCH").isEmpty());
+    }
+
+    @Test
+    public void liveMessageCoalescesUpdates() throws Exception {
+        DiscordLiveMessage live = new DiscordLiveMessage(webhook, Duration.ofMillis(200));
+        for (int i = 0; i <= 20; i++) {
+            live.update(webhook.builder().withContent("progress " + i));
+        }
+        live.flush().get(10, TimeUnit.SECONDS);
+        live.close();
+
+        assertEquals(2, live.getSentCount());
+        assertEquals(19, live.getCoalescedCount());
+        assertEquals(1, requests("POST").size());
+        List<DiscordStubServer.Request> edits = requests("PATCH");
+        assertEquals(1, edits.size());
+        assertTrue(edits.get(0).getBodyAsString().contains("progress 20"));
+        assertThrows(IllegalStateException.class, () -> live.update(webhook.builder().withContent("closed")));
+    }
+
+    @Test
+    public void liveMessageRecreatesDeletedMessage() throws Exception {
+        DiscordMessageHandle handle = webhook.builder().withContent("created").executeAndWait();
+        DiscordLiveMessage live = new DiscordLiveMessage(handle, Duration.ZERO);
+        handle.delete();
+
+        live.update(webhook.builder().withContent("recreated"));
+        live.flush().get(10, TimeUnit.SECONDS);
+
+        assertInstanceOf(DiscordWebhookException.class, live.getLastFailure());
+        assertNotEquals(handle.getId(), live.getHandle().getId());
+        assertEquals(2, requests("POST").size());
+    }
+
+}
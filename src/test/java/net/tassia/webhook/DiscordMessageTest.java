@@ -0,0 +1,75 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordMessageTest implements DiscordConstants {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    @Test
+    public void isUnaffectedByLaterChanges() throws JsonProcessingException {
+        DiscordWebhookBuilder builder = webhook.builder().withContent("first");
+        DiscordMessage message = builder.freeze();
+        String json = builder.getJSON();
+        builder.withContent("second");
+
+        assertEquals(json, message.getJSON());
+    }
+
+    @Test
+    public void isUnaffectedByModifiedArrays() {
+        DiscordMessage message = DiscordMessage.of("{\"content\":\"test\"}");
+        message.toByteArray()[0] = 'x';
+
+        assertEquals("{\"content\":\"test\"}", message.getJSON());
+        assertEquals(message.getJSON().length(), message.getContentLength());
+    }
+
+    @Test
+    public void writesSameBytesEveryTime() throws IOException {
+        DiscordMessage message = DiscordMessage.of("{\"content\":\"\u00E4\"}");
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        message.writeTo(first);
+        message.writeTo(second);
+
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+        assertArrayEquals("{\"content\":\"\u00E4\"}".getBytes(StandardCharsets.UTF_8), first.toByteArray());
+    }
+
+    @Test
+    public void canBeSentRepeatedly() throws IOException {
+        DiscordMessage message = webhook.builder().withContent("test").freeze();
+        webhook.execute(message);
+        webhook.executeAsync(message).join();
+
+        assertEquals(2, transport.getRequestCount());
+        assertEquals(message.getJSON(), transport.getRequests().get(1).getBodyAsString());
+    }
+
+    @Test
+    public void rejectsInvalidMessages() {
+        assertThrows(IllegalStateException.class, () -> webhook.builder().freeze());
+        assertThrows(IllegalStateException.class, () -> webhook.builder().withSplitting(true).withContent("x".repeat(LIMIT_CONTENT + 1)).freeze());
+        assertThrows(IllegalStateException.class, () -> webhook.builder().withContent("test").withFile("a.txt", ByteBuffer.allocate(1)).freeze());
+    }
+
+}
@@ -0,0 +1,168 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordOutboxTest {
+
+    private final HeldTransport transport = new HeldTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private static String message(int i) {
+        return "{\"content\":\"" + i + "\"}";
+    }
+
+    @Test
+    public void sendsInSubmissionOrder() throws Exception {
+        DiscordOutbox outbox = new DiscordOutbox(webhook, 4, DiscordOutbox.OverflowPolicy.REJECT);
+        for (int i = 0; i < 3; i++) outbox.submit(message(i));
+        assertEquals(1, transport.bodies.size());
+        assertEquals(2, outbox.getDepth());
+
+        transport.release();
+        assertTrue(outbox.shutdown(Duration.ofSeconds(1)));
+        assertEquals(List.of(message(0), message(1), message(2)), transport.bodies);
+    }
+
+    @Test
+    public void dropNewestCancelsSubmittedMessage() {
+        DiscordOutbox outbox = new DiscordOutbox(webhook, 2, DiscordOutbox.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 3; i++) outbox.submit(message(i));
+        CompletableFuture<DiscordResponse> dropped = outbox.submit(message(3));
+
+        assertTrue(dropped.isCancelled());
+        assertEquals(1, outbox.getDroppedCount());
+        transport.release();
+        assertEquals(List.of(message(0), message(1), message(2)), transport.bodies);
+    }
+
+    @Test
+    public void dropOldestCancelsQueuedMessage() {
+        DiscordOutbox outbox = new DiscordOutbox(webhook, 2, DiscordOutbox.OverflowPolicy.DROP_OLDEST);
+        outbox.submit(message(0));
+        CompletableFuture<DiscordResponse> oldest = outbox.submit(message(1));
+        outbox.submit(message(2));
+        CompletableFuture<DiscordResponse> newest = outbox.submit(message(3));
+
+        assertTrue(oldest.isCancelled());
+        assertEquals(1, outbox.getDroppedCount());
+        transport.release();
+        assertTrue(newest.join().isSuccessful());
+        assertEquals(List.of(message(0), message(2), message(3)), transport.bodies);
+    }
+
+    @Test
+    public void rejectThrowsWhenFull() {
+        DiscordOutbox outbox = new DiscordOutbox(webhook, 1, DiscordOutbox.OverflowPolicy.REJECT);
+        outbox.submit(message(0));
+        outbox.submit(message(1));
+        assertThrows(RejectedExecutionException.class, () -> outbox.submit(message(2)));
+    }
+
+    @Test
+    public void blockTimesOut() {
+        DiscordOutbox outbox = new DiscordOutbox(webhook, 1, DiscordOutbox.OverflowPolicy.BLOCK, Duration.ofMillis(20));
+        outbox.submit(message(0));
+        outbox.submit(message(1));
+        assertThrows(RejectedExecutionException.class, () -> outbox.submit(message(2)));
+    }
+
+    @Test
+    public void rejectsAfterShutdown() throws Exception {
+        DiscordOutbox outbox = new DiscordOutbox(webhook, 1, DiscordOutbox.OverflowPolicy.REJECT);
+        assertTrue(outbox.shutdown(Duration.ZERO));
+        assertThrows(RejectedExecutionException.class, () -> outbox.submit(message(0)));
+    }
+
+    @Test
+    public void recoversUndeliveredMessages() throws Exception {
+        InMemoryWebhookTransport failing = new InMemoryWebhookTransport().respondWith(request -> {
+            throw new UncheckedIOException(new IOException("connection reset"));
+        });
+        try (DiscordWebhookClient offline = DiscordWebhookClient.builder()
+                .withTransport(failing)
+                .withRetryPolicy(DiscordRetryPolicy.builder().withMaxAttempts(1).build())
+                .build();
+             DiscordDeliveryLog log = DiscordDeliveryLog.open(directory)) {
+            DiscordOutbox outbox = new DiscordOutbox(offline.webhook(1L, "token"), 4, DiscordOutbox.OverflowPolicy.REJECT, null, log);
+            assertThrows(Exception.class, () -> outbox.submit(message(0)).join());
+            assertThrows(Exception.class, () -> outbox.submit(message(1)).join());
+        }
+
+        InMemoryWebhookTransport online = new InMemoryWebhookTransport();
+        try (DiscordWebhookClient restarted = DiscordWebhookClient.builder().withTransport(online).build();
+             DiscordDeliveryLog log = DiscordDeliveryLog.open(directory)) {
+            DiscordOutbox outbox = new DiscordOutbox(restarted.webhook(1L, "token"), 4, DiscordOutbox.OverflowPolicy.REJECT, null, log);
+            assertEquals(2, outbox.recover());
+            assertTrue(outbox.shutdown(Duration.ofSeconds(1)));
+
+            assertEquals(2, online.getRequestCount());
+            assertEquals(message(0), online.getRequests().get(0).getBodyAsString());
+            assertEquals(0, log.getPendingCount());
+        }
+    }
+
+
+
+    private static class HeldTransport implements WebhookTransport {
+
+        private final List<String> bodies = new CopyOnWriteArrayList<>();
+        private final Queue<CompletableFuture<DiscordResponse>> pending = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public DiscordResponse execute(WebhookRequest request) {
+            return executeAsync(request).join();
+        }
+
+        @Override
+        public CompletableFuture<DiscordResponse> executeAsync(WebhookRequest request) {
+            try {
+                bodies.add(new String(request.toByteArray(), StandardCharsets.UTF_8));
+            } catch (IOException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+            CompletableFuture<DiscordResponse> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        }
+
+        /**
+         * Answers every request, including the ones sent while answering.
+         */
+        private void release() {
+            CompletableFuture<DiscordResponse> future;
+            while ((future = pending.poll()) != null) {
+                future.complete(new DiscordResponse(204, Map.of(), null));
+            }
+        }
+
+    }
+
+}
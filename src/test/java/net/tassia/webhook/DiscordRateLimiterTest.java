@@ -0,0 +1,114 @@
+package net.tassia.webhook;
+
+import net.tassia.webhook.stub.DiscordStubServer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final DiscordRateLimiter limiter = new DiscordRateLimiter();
+
+    private static DiscordResponse response(int code, String body, String... headers) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2) {
+            map.put(headers[i].toLowerCase(), List.of(headers[i + 1]));
+        }
+        return new DiscordResponse(code, map, body);
+    }
+
+    @Test
+    public void firstRequestsAreNotDelayed() {
+        DiscordRateLimiter.Route route = limiter.route("1/token");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0L, limiter.reserve(route));
+        }
+        long delay = limiter.reserve(route);
+        assertTrue(delay > 0 && delay <= 2 * SECOND, "delay was " + delay);
+    }
+
+    @Test
+    public void rebasesOnReportedLimit() {
+        DiscordRateLimiter.Route route = limiter.route("1/token");
+        assertEquals(0L, limiter.reserve(route));
+        limiter.update(route, response(204, null,
+            "X-RateLimit-Limit", "2", "X-RateLimit-Remaining", "1", "X-RateLimit-Reset-After", "2"));
+
+        assertEquals(0L, limiter.reserve(route));
+        assertTrue(limiter.reserve(route) > 0);
+    }
+
+    @Test
+    public void tooManyRequestsExhaustsBucket() {
+        DiscordRateLimiter.Route route = limiter.route("1/token");
+        limiter.reserve(route);
+        long retryAfter = limiter.update(route, response(429, "{\"retry_after\": 1.5, \"global\": false}"));
+
+        assertEquals(SECOND + SECOND / 2, retryAfter);
+        long delay = limiter.reserve(route);
+        assertTrue(delay > SECOND && delay <= retryAfter, "delay was " + delay);
+        assertEquals(0L, limiter.reserve(limiter.route("2/token")));
+    }
+
+    @Test
+    public void globalTooManyRequestsDelaysEveryRoute() {
+        DiscordRateLimiter.Route route = limiter.route("1/token");
+        limiter.reserve(route);
+        limiter.update(route, response(429, "{\"retry_after\": 1, \"global\": true}"));
+
+        assertTrue(limiter.reserve(limiter.route("2/token")) > SECOND / 2);
+    }
+
+    @Test
+    public void routesWithSameBucketShareLimit() {
+        DiscordRateLimiter.Route first = limiter.route("1/token");
+        DiscordRateLimiter.Route second = limiter.route("2/token");
+        limiter.reserve(first);
+        limiter.update(first, response(204, null, "X-RateLimit-Bucket", "abc",
+            "X-RateLimit-Limit", "2", "X-RateLimit-Remaining", "1", "X-RateLimit-Reset-After", "2"));
+        limiter.reserve(second);
+        limiter.update(second, response(204, null, "X-RateLimit-Bucket", "abc",
+            "X-RateLimit-Limit", "2", "X-RateLimit-Remaining", "0", "X-RateLimit-Reset-After", "2"));
+
+        assertTrue(limiter.reserve(first) > 0);
+    }
+
+    @Test
+    public void releaseForgetsRoute() {
+        DiscordRateLimiter.Route route = limiter.route("1/token");
+        for (int i = 0; i < 5; i++) limiter.reserve(route);
+        limiter.release("1/token");
+
+        assertEquals(0L, limiter.reserve(limiter.route("1/token")));
+    }
+
+    @Test
+    public void staysWithinStubServerLimit() throws Exception {
+        try (DiscordStubServer server = DiscordStubServer.builder()
+                .withRateLimit(5, Duration.ofMillis(500))
+                .start();
+             DiscordWebhookClient client = DiscordWebhookClient.builder()
+                .withBaseURL(server.getBaseURL())
+                .build()) {
+            DiscordWebhook webhook = client.webhook(1L, "token");
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[12];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = webhook.executeAsync("{\"content\":\"" + i + "\"}");
+            }
+            CompletableFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+
+            assertEquals(12, server.getAcceptedCount());
+            assertEquals(0, server.getRateLimitedCount());
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordResponseTest {
+
+    @Test
+    public void looksUpHeadersIndependentOfLocale() {
+        DiscordResponse response = new DiscordResponse(204, Map.of("x-request-id", List.of("abc")), null);
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals("abc", response.getHeader("X-Request-ID"));
+            assertNull(response.getHeader("X-Other"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+}
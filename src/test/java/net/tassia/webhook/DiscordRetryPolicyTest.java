@@ -0,0 +1,93 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordRetryPolicyTest {
+
+    private static final DiscordRetryPolicy FAST = DiscordRetryPolicy.builder()
+        .withBackoff(Duration.ofMillis(1), Duration.ofMillis(5))
+        .build();
+
+    @Test
+    public void retriesErrorsBeforeTheRequestWasSent() {
+        assertTrue(DiscordRetryPolicy.DEFAULT.isRetryable("POST", new ConnectException()));
+        assertTrue(DiscordRetryPolicy.DEFAULT.isRetryable("POST", new HttpConnectTimeoutException("connect timed out")));
+        assertFalse(DiscordRetryPolicy.DEFAULT.isRetryable("POST", new InterruptedIOException()));
+        assertFalse(DiscordRetryPolicy.DEFAULT.isRetryable("POST", new DiscordCircuitOpenException("open", false)));
+    }
+
+    @Test
+    public void retriesTimeoutsOnlyIfIdempotentOrEnabled() {
+        assertFalse(DiscordRetryPolicy.DEFAULT.isRetryable("POST", new SocketTimeoutException()));
+        assertFalse(DiscordRetryPolicy.DEFAULT.isRetryable("POST", new HttpTimeoutException("timed out")));
+        assertTrue(DiscordRetryPolicy.DEFAULT.isRetryable("PATCH", new SocketTimeoutException()));
+        assertTrue(DiscordRetryPolicy.DEFAULT.isRetryable("DELETE", new SocketTimeoutException()));
+
+        DiscordRetryPolicy policy = DiscordRetryPolicy.builder().withRetryOnTimeouts(true).build();
+        assertTrue(policy.isRetryable("POST", new SocketTimeoutException()));
+        assertFalse(DiscordRetryPolicy.builder().withRetryOnNetworkErrors(false).build()
+            .isRetryable("PATCH", new ConnectException()));
+    }
+
+    @Test
+    public void retriesStatusCodes() {
+        assertTrue(DiscordRetryPolicy.DEFAULT.isRetryable(502));
+        assertFalse(DiscordRetryPolicy.DEFAULT.isRetryable(400));
+        DiscordRetryPolicy policy = DiscordRetryPolicy.builder().withRetryableStatusCodes(503).build();
+        assertTrue(policy.isRetryable(503));
+        assertFalse(policy.isRetryable(502));
+        assertThrows(IllegalArgumentException.class, () -> DiscordRetryPolicy.builder().withRetryableStatusCodes(600));
+    }
+
+    @Test
+    public void backoffIsCappedAndJittered() {
+        DiscordRetryPolicy policy = DiscordRetryPolicy.builder()
+            .withBackoff(Duration.ofMillis(100), Duration.ofMillis(250))
+            .build();
+        for (int i = 0; i < 1000; i++) {
+            long first = policy.backoff(1);
+            assertTrue(first >= 0 && first <= Duration.ofMillis(100).toNanos());
+            long late = policy.backoff(40);
+            assertTrue(late >= 0 && late <= Duration.ofMillis(250).toNanos());
+        }
+    }
+
+    @Test
+    public void sendsTimedOutMessagesOnce() {
+        InMemoryWebhookTransport transport = new InMemoryWebhookTransport().respondWith(request -> {
+            throw new UncheckedIOException(new SocketTimeoutException("timeout"));
+        });
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder().withTransport(transport).withRetryPolicy(FAST).build()) {
+            assertThrows(SocketTimeoutException.class, () -> client.webhook(1L, "token").execute("{\"content\":\"test\"}"));
+            assertEquals(1, transport.getRequestCount());
+        }
+    }
+
+    @Test
+    public void retriesServerErrors() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        InMemoryWebhookTransport transport = new InMemoryWebhookTransport().respondWith(request -> {
+            if (calls.incrementAndGet() < 3) return new DiscordResponse(503, Map.of(), null);
+            return new DiscordResponse(204, Map.<String, List<String>>of(), null);
+        });
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder().withTransport(transport).withRetryPolicy(FAST).build()) {
+            client.webhook(1L, "token").execute("{\"content\":\"test\"}");
+            assertEquals(3, transport.getRequestCount());
+        }
+    }
+
+}
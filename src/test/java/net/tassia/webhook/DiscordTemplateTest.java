@@ -0,0 +1,71 @@
+package net.tassia.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordTemplateTest {
+
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(new InMemoryWebhookTransport())
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private DiscordWebhookBuilder message(String host, String error) {
+        DiscordWebhookBuilder builder = webhook.builder().withContent("Alert on " + host).withUsername("monitor");
+        builder.embed().setTitle(error).addField("Host", host).setFooter("Sent by " + host);
+        return builder;
+    }
+
+    @Test
+    public void rendersSameJsonAsBuilder() throws JsonProcessingException {
+        DiscordTemplate template = message("{{host}}", "{{error}}").compile();
+        assertEquals(List.of("host", "error"), template.getPlaceholders());
+
+        String[][] values = {
+            { "db-1", "Disk full" },
+            { "\"quoted\"\\", "line\nbreak\ttab\u0001" },
+            { "\u00E4\u00F6\u00FC \u20AC", "emoji \uD83D\uDE00" },
+            { "", "" }
+        };
+        for (String[] value : values) {
+            // Compared as bytes, Jackson escapes surrogates when writing bytes, but not when writing strings
+            assertArrayEquals(client.getMapper().writeValueAsBytes(message(value[0], value[1])), template.render(value).toByteArray());
+        }
+    }
+
+    @Test
+    public void rendersByName() throws JsonProcessingException {
+        DiscordTemplate template = message("{{host}}", "{{error}}").compile();
+        DiscordMessage rendered = template.render(Map.of("error", "Disk full", "host", "db-1"));
+        assertEquals(message("db-1", "Disk full").getJSON(), rendered.getJSON());
+    }
+
+    @Test
+    public void rejectsMissingValues() throws JsonProcessingException {
+        DiscordTemplate template = message("{{host}}", "{{error}}").compile();
+        assertThrows(IllegalArgumentException.class, () -> template.render("db-1"));
+        assertThrows(IllegalArgumentException.class, () -> template.render("db-1", null));
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("host", "db-1")));
+    }
+
+    @Test
+    public void keepsStaticMessages() throws JsonProcessingException {
+        DiscordWebhookBuilder builder = webhook.builder().withContent("No {placeholders} here");
+        DiscordTemplate template = builder.compile();
+
+        assertTrue(template.getPlaceholders().isEmpty());
+        assertEquals(builder.getJSON(), template.render().getJSON());
+    }
+
+}
@@ -0,0 +1,98 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordVirtualThreadsTest {
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport().respondWith(request -> {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        active.decrementAndGet();
+        return new DiscordResponse(204, Map.of(), null);
+    });
+
+    private DiscordWebhookClient client(int maxRequests, int maxRequestsPerHost) {
+        return DiscordWebhookClient.builder()
+            .withTransport(transport)
+            .withExecutionMode(DiscordWebhookClient.ExecutionMode.VIRTUAL_THREADS)
+            .withMaxRequests(maxRequests)
+            .withMaxRequestsPerHost(maxRequestsPerHost)
+            .build();
+    }
+
+    private void sendToMany(DiscordWebhookClient client, int webhooks) throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[webhooks];
+        for (int i = 0; i < webhooks; i++) {
+            futures[i] = client.webhook(i, "token").executeAsync("{\"content\":\"test\"}");
+        }
+        CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void limitsConcurrentRequests() throws Exception {
+        try (DiscordWebhookClient client = client(3, 10)) {
+            sendToMany(client, 12);
+        }
+        assertEquals(12, transport.getRequestCount());
+        assertTrue(maxActive.get() <= 3, "max. " + maxActive.get() + " concurrent requests");
+    }
+
+    @Test
+    public void limitsConcurrentRequestsPerHost() throws Exception {
+        try (DiscordWebhookClient client = client(10, 2)) {
+            sendToMany(client, 8);
+        }
+        assertEquals(8, transport.getRequestCount());
+        assertTrue(maxActive.get() <= 2, "max. " + maxActive.get() + " concurrent requests");
+    }
+
+    @Test
+    public void runsRequestsConcurrently() throws Exception {
+        try (DiscordWebhookClient client = client(8, 8)) {
+            sendToMany(client, 8);
+        }
+        assertTrue(maxActive.get() > 1);
+    }
+
+    @Test
+    public void boundsWorkerThreads() throws Exception {
+        try (DiscordWebhookClient client = client(4, 4)) {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[100];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = client.webhook(i, "token").executeAsync("{\"content\":\"test\"}");
+            }
+            // Virtual threads are not listed, so this only counts the platform threads of older runtimes
+            long workers = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("DiscordWebhookClient-Worker"))
+                .count();
+            assertTrue(workers <= 4, workers + " worker threads");
+            CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(100, transport.getRequestCount());
+    }
+
+    @Test
+    public void limitsSynchronousRequests() throws Exception {
+        try (DiscordWebhookClient client = client(1, 1)) {
+            DiscordWebhook webhook = client.webhook(1L, "token");
+            CompletableFuture<DiscordResponse> async = client.webhook(2L, "token").executeAsync("{\"content\":\"test\"}");
+            webhook.execute("{\"content\":\"test\"}");
+            async.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(1, maxActive.get());
+    }
+
+}
@@ -0,0 +1,68 @@
+package net.tassia.webhook;
+
+import net.tassia.webhook.stub.DiscordStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordWarmUpTest {
+
+    private final DiscordStubServer server;
+
+    public DiscordWarmUpTest() throws Exception {
+        this.server = DiscordStubServer.builder().start();
+    }
+
+    @AfterEach
+    public void close() {
+        server.close();
+    }
+
+    private long heads() {
+        return server.getRequests().stream().filter(request -> request.getMethod().equals("HEAD")).count();
+    }
+
+    @Test
+    public void reusesWarmedUpConnection() throws Exception {
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder().withBaseURL(server.getBaseURL()).build()) {
+            client.warmUp().get(10, TimeUnit.SECONDS);
+            assertEquals(1, client.getConnectionStats().getConnectionsOpened());
+
+            client.webhook(1L, "token").execute("{\"content\":\"test\"}");
+            DiscordConnectionStats stats = client.getConnectionStats();
+            assertEquals(1, stats.getConnectionsOpened());
+            assertTrue(stats.getConnectionsReused() >= 1, stats.toString());
+            assertEquals(1, heads());
+        }
+    }
+
+    @Test
+    public void keepsConnectionWarm() throws Exception {
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder()
+                .withBaseURL(server.getBaseURL())
+                .withKeepWarm(Duration.ofMillis(50))
+                .build()) {
+            Thread.sleep(300);
+            assertTrue(heads() >= 2, heads() + " pings");
+        }
+    }
+
+    @Test
+    public void rejectsInvalidConnections() {
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder().withBaseURL(server.getBaseURL()).build()) {
+            assertThrows(IllegalArgumentException.class, () -> client.warmUp(0));
+        }
+    }
+
+    @Test
+    public void hasNoStatsWithoutOkHttp() {
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder().withTransport(new InMemoryWebhookTransport()).build()) {
+            assertNull(client.getConnectionStats());
+        }
+    }
+
+}
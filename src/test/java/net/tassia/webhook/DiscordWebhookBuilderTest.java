@@ -0,0 +1,141 @@
+package net.tassia.webhook;
+
+import net.tassia.webhook.stub.DiscordStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordWebhookBuilderTest implements DiscordConstants {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private DiscordWebhookBuilder oversized(DiscordWebhook webhook) {
+        DiscordWebhookBuilder builder = webhook.builder()
+            .withSplitting(true)
+            .withUsername("bot")
+            .withTTS(true)
+            .withContent("log line\n".repeat(1000));
+        for (int i = 0; i < 12; i++) {
+            builder.embed().setTitle("embed " + i).setDescription("x".repeat(1500));
+        }
+        return builder;
+    }
+
+    @Test
+    public void rejectsOversizedContentUnlessSplitting() {
+        assertThrows(IllegalArgumentException.class, () -> webhook.builder().withContent("x".repeat(LIMIT_CONTENT + 1)));
+        assertFalse(webhook.builder().withSplitting(true).withContent("x".repeat(LIMIT_CONTENT + 1)).isValid());
+    }
+
+    @Test
+    public void splitsIntoValidMessages() {
+        DiscordWebhookBuilder builder = oversized(webhook).withFile("a.txt", ByteBuffer.allocate(1));
+        List<DiscordWebhookBuilder> parts = builder.split();
+
+        assertTrue(parts.size() > 3);
+        for (int i = 0; i < parts.size(); i++) {
+            DiscordWebhookBuilder part = parts.get(i);
+            assertTrue(part.isValid());
+            assertEquals("bot", part.getUsername());
+            assertEquals(i == 0, part.isTTS());
+            assertEquals(i == parts.size() - 1, !part.getFiles().isEmpty());
+        }
+        assertEquals(12, parts.stream().mapToInt(part -> part.getEmbeds().size()).sum());
+    }
+
+    @Test
+    public void keepsValidMessage() {
+        DiscordWebhookBuilder builder = webhook.builder().withContent("test");
+        assertEquals(List.of(builder), builder.split());
+    }
+
+    @Test
+    public void executesSplitMessagesInOrder() throws IOException {
+        DiscordWebhookBuilder builder = oversized(webhook);
+        int parts = builder.split().size();
+        builder.execute();
+
+        assertEquals(parts, transport.getRequestCount());
+        assertTrue(transport.getRequests().get(0).getBodyAsString().contains("\"tts\":true"));
+        assertTrue(transport.getRequests().get(parts - 1).getBodyAsString().contains("embed 11"));
+    }
+
+    @Test
+    public void splitMessagesPassValidation() throws Exception {
+        try (DiscordStubServer server = DiscordStubServer.builder().start();
+             DiscordWebhookClient client = DiscordWebhookClient.builder().withBaseURL(server.getBaseURL()).build()) {
+            DiscordWebhookBuilder builder = oversized(client.webhook(1L, "token"));
+            int parts = builder.split().size();
+            builder.executeAsync().join();
+
+            assertEquals(parts, server.getAcceptedCount());
+            assertEquals(0, server.getRejectedCount());
+        }
+    }
+
+    @Test
+    public void resetBuilderWritesSameJsonAsNewOne() throws Exception {
+        DiscordWebhookBuilder builder = oversized(webhook).withFile("a.txt", ByteBuffer.allocate(1));
+        builder.reset().withContent("test");
+        builder.embed().setTitle("title").addField("name", "value");
+
+        DiscordWebhookBuilder fresh = webhook.builder().withContent("test");
+        fresh.embed().setTitle("title").addField("name", "value");
+        assertEquals(fresh.getJSON(), builder.getJSON());
+        assertTrue(builder.getFiles().isEmpty());
+        assertFalse(builder.isSplitting());
+    }
+
+    @Test
+    public void resetReusesOwnEmbeds() {
+        DiscordWebhookBuilder builder = webhook.builder();
+        DiscordEmbed own = builder.embed().setTitle("title");
+        DiscordEmbed added = new DiscordEmbed().setTitle("added");
+        builder.withEmbed(added).reset();
+
+        assertSame(own, builder.embed());
+        assertNull(own.getTitle());
+        assertEquals(0, own.length());
+        assertEquals("added", added.getTitle());
+    }
+
+    @Test
+    public void poolsBuildersPerThread() throws Exception {
+        try (DiscordWebhookClient pooled = DiscordWebhookClient.builder()
+                .withTransport(transport)
+                .withBuilderPooling(true)
+                .build()) {
+            DiscordWebhook first = pooled.webhook(1L, "token");
+            DiscordWebhook second = pooled.webhook(2L, "token");
+            DiscordWebhookBuilder builder = first.builder().withContent("first");
+            builder.executeAsync().join();
+
+            assertSame(builder, second.builder());
+            assertNull(builder.getContent());
+            builder.withContent("second").execute();
+            assertTrue(transport.getRequests().get(1).getURL().contains("/webhooks/2/"));
+
+            DiscordWebhookBuilder[] other = new DiscordWebhookBuilder[1];
+            Thread thread = new Thread(() -> other[0] = first.builder());
+            thread.start();
+            thread.join();
+            assertNotSame(builder, other[0]);
+        }
+        assertNotSame(webhook.builder(), webhook.builder());
+    }
+
+}
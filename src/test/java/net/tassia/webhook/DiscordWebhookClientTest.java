@@ -0,0 +1,52 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordWebhookClientTest {
+
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(new InMemoryWebhookTransport())
+        .withBaseURL("http://localhost:8080/api/")
+        .build();
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    @Test
+    public void defaultClientIsSharedAndCannotBeClosed() {
+        DiscordWebhook webhook = new DiscordWebhook(1L, "token");
+        assertSame(DiscordWebhookClient.getDefault(), webhook.getClient());
+        assertSame(webhook.getClient(), new DiscordWebhook(2L, "token").getClient());
+        assertThrows(IllegalStateException.class, () -> DiscordWebhookClient.getDefault().close());
+    }
+
+    @Test
+    public void webhooksUseBaseURL() {
+        assertEquals("http://localhost:8080/api/webhooks/1/token", client.webhook(1L, "token").getURL());
+        assertEquals("http://localhost:8080/api/webhooks/1/token", client.webhook("https://discord.com/api/webhooks/1/token").getURL());
+    }
+
+    @Test
+    public void webhooksOfSameClientShareState() {
+        DiscordWebhook first = client.webhook(1L, "token");
+        DiscordWebhook second = client.webhook(1L, "token");
+        assertSame(first.getCircuitBreaker(), second.getCircuitBreaker());
+        assertSame(first.getRateLimit(), second.getRateLimit());
+        assertNotSame(first.getCircuitBreaker(), client.webhook(2L, "token").getCircuitBreaker());
+    }
+
+    @Test
+    public void builderRejectsInvalidLimits() {
+        DiscordWebhookClient.Builder builder = DiscordWebhookClient.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.withMaxIdleConnections(-1));
+        assertThrows(IllegalArgumentException.class, () -> builder.withMaxRequests(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.withMaxRequestsPerHost(0));
+        assertThrows(NullPointerException.class, () -> builder.withBaseURL(null));
+    }
+
+}
@@ -0,0 +1,95 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordWebhookMetricsTest {
+
+    private static class SerializedBytes implements DiscordWebhookMetrics {
+
+        private final List<Long> bytes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onSerialized(DiscordWebhook webhook, long nanos, long bytes) {
+            assertTrue(nanos >= 0);
+            this.bytes.add(bytes);
+        }
+
+    }
+
+    private static void reportsSerialization(DiscordWebhookClient.SerializationMode mode) throws IOException {
+        InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+        SerializedBytes metrics = new SerializedBytes();
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder()
+            .withTransport(transport)
+            .withSerializationMode(mode)
+            .withMetrics(metrics)
+            .build()) {
+            DiscordWebhook webhook = client.webhook(1L, "token");
+
+            webhook.builder().withContent("execute").execute();
+            assertEquals(List.of((long) transport.getRequests().get(0).getBody().length), metrics.bytes);
+
+            webhook.builder().withContent("async").executeAsync().join();
+            assertEquals(transport.getRequests().get(1).getBody().length, metrics.bytes.get(1));
+
+            webhook.builder().withContent("file").withFile("a.txt", ByteBuffer.wrap(new byte[16])).execute();
+            assertEquals(3, metrics.bytes.size());
+            assertTrue(metrics.bytes.get(2) > 0);
+        }
+    }
+
+    @Test
+    public void reportsSerializationWithJackson() throws IOException {
+        reportsSerialization(DiscordWebhookClient.SerializationMode.JACKSON);
+    }
+
+    @Test
+    public void reportsSerializationWithBuiltInWriter() throws IOException {
+        reportsSerialization(DiscordWebhookClient.SerializationMode.BUILT_IN);
+    }
+
+    @Test
+    public void recordsResponsesAndRetries() throws IOException {
+        int[] calls = { 0 };
+        InMemoryWebhookTransport transport = new InMemoryWebhookTransport().respondWith(request ->
+            new DiscordResponse(calls[0]++ == 0 ? 503 : 204, Map.of(), null));
+        InMemoryWebhookMetrics metrics = new InMemoryWebhookMetrics();
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder()
+            .withTransport(transport)
+            .withMetrics(metrics)
+            .withRetryPolicy(DiscordRetryPolicy.builder().withBackoff(Duration.ZERO, Duration.ZERO).build())
+            .build()) {
+            client.webhook(1L, "token").builder().withContent("test").execute();
+        }
+        assertEquals(1, metrics.getStatusCount(503));
+        assertEquals(1, metrics.getStatusCount(204));
+        assertEquals(2, metrics.getResponseCount());
+        assertEquals(1, metrics.getRetryCount());
+        assertEquals(2, metrics.getSerialization().getCount());
+        assertTrue(metrics.getPayloadBytes() > 0);
+        assertTrue(metrics.getLatency().getPercentile(99, TimeUnit.NANOSECONDS) >= 0);
+    }
+
+    @Test
+    public void histogramPercentilesAreAccurate() {
+        InMemoryWebhookMetrics.Histogram histogram = new InMemoryWebhookMetrics.Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getPercentile(50, TimeUnit.MICROSECONDS), 500 * 0.04);
+        assertEquals(990, histogram.getPercentile(99, TimeUnit.MICROSECONDS), 990 * 0.04);
+        assertEquals(500.5, histogram.getMean(TimeUnit.MICROSECONDS), 500.5 * 0.04);
+    }
+
+}
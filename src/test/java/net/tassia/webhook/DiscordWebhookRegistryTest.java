@@ -0,0 +1,83 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordWebhookRegistryTest {
+
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(new InMemoryWebhookTransport())
+        .build();
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    @Test
+    public void internsAllUrlsOfWebhook() {
+        DiscordWebhookRegistry registry = new DiscordWebhookRegistry(client, 16);
+        DiscordWebhook webhook = registry.get("https://discord.com/api/webhooks/1/token");
+
+        assertSame(webhook, registry.get("https://discord.com/api/webhooks/1/token"));
+        assertSame(webhook, registry.get("https://canary.discord.com/api/v10/webhooks/1/token"));
+        assertSame(webhook, registry.get("https://discordapp.com/api/webhooks/1/token/"));
+        assertSame(webhook, registry.get(1L, "token"));
+        assertSame(client, webhook.getClient());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void replacesWebhookWithRegeneratedToken() {
+        DiscordWebhookRegistry registry = new DiscordWebhookRegistry(client, 16);
+        DiscordWebhook old = registry.get("https://discord.com/api/webhooks/1/old");
+        DiscordWebhook regenerated = registry.get(1L, "new");
+
+        assertNotSame(old, regenerated);
+        assertEquals("new", regenerated.getToken());
+        assertSame(regenerated, registry.get("https://discord.com/api/webhooks/1/new"));
+        assertNotSame(old, registry.get("https://discord.com/api/webhooks/1/old"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWebhooks() {
+        DiscordWebhookRegistry registry = new DiscordWebhookRegistry(client, 4);
+        DiscordWebhook first = registry.get(1L, "token");
+        DiscordWebhook second = registry.get(2L, "token");
+        registry.get(3L, "token");
+        registry.get(4L, "token");
+        registry.get(1L, "token");
+        registry.get(5L, "token");
+
+        assertEquals(4, registry.size());
+        assertEquals(1, registry.getEvictionCount());
+        assertSame(first, registry.get(1L, "token"));
+        assertNotSame(second, registry.get(2L, "token"));
+    }
+
+    @Test
+    public void removesWebhook() {
+        DiscordWebhookRegistry registry = new DiscordWebhookRegistry(client, 16);
+        DiscordWebhook webhook = registry.get("https://discord.com/api/webhooks/1/token");
+
+        assertTrue(registry.remove(1L));
+        assertFalse(registry.remove(1L));
+        assertEquals(0, registry.size());
+        assertNotSame(webhook, registry.get("https://discord.com/api/webhooks/1/token"));
+    }
+
+    @Test
+    public void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new DiscordWebhookRegistry(client, 0));
+        assertThrows(NullPointerException.class, () -> new DiscordWebhookRegistry(null, 16));
+
+        DiscordWebhookRegistry registry = new DiscordWebhookRegistry(client, 16);
+        assertThrows(IllegalArgumentException.class, () -> registry.get("https://example.com/api/webhooks/1/token"));
+        assertThrows(NullPointerException.class, () -> registry.get(1L, null));
+        assertEquals(0, registry.size());
+    }
+
+}
@@ -0,0 +1,63 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordWebhookTest {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    @Test
+    public void executeAsyncCompletesWithResponse() {
+        DiscordResponse response = webhook.executeAsync("{\"content\":\"test\"}").join();
+        assertTrue(response.isSuccessful());
+        assertEquals("POST", transport.getRequests().get(0).getMethod());
+        assertEquals("{\"content\":\"test\"}", transport.getRequests().get(0).getBodyAsString());
+    }
+
+    @Test
+    public void executeAsyncFailsWithRejectedResponse() {
+        transport.respondWith(request -> new DiscordResponse(400, Map.of(), "{\"code\": 50006}"));
+        CompletableFuture<DiscordResponse> future = webhook.executeAsync("{}");
+
+        CompletionException ex = assertThrows(CompletionException.class, future::join);
+        DiscordWebhookException cause = assertInstanceOf(DiscordWebhookException.class, ex.getCause());
+        assertEquals(400, cause.getResponse().getCode());
+        assertEquals(1, transport.getRequestCount());
+    }
+
+    @Test
+    public void builderIsFrozenBeforeExecuteAsyncReturns() {
+        DiscordWebhookBuilder builder = webhook.builder().withContent("first");
+        CompletableFuture<DiscordResponse> future = builder.executeAsync();
+        builder.withContent("second");
+
+        future.join();
+        assertTrue(transport.getRequests().get(0).getBodyAsString().contains("\"first\""));
+    }
+
+    @Test
+    public void invalidBuilderFailsFuture() {
+        CompletableFuture<DiscordResponse> future = webhook.builder().executeAsync();
+
+        CompletionException ex = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertEquals(0, transport.getRequestCount());
+    }
+
+}
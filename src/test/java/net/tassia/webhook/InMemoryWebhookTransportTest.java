@@ -0,0 +1,52 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryWebhookTransportTest {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .withRetryPolicy(DiscordRetryPolicy.builder().withMaxAttempts(1).build())
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    @Test
+    public void recordsRequests() throws IOException {
+        webhook.execute("{\"content\":\"test\"}");
+        DiscordMessageHandle handle = webhook.builder().withContent("wait").executeAndWait();
+        handle.delete();
+
+        assertEquals(3, transport.getRequestCount());
+        InMemoryWebhookTransport.RecordedRequest request = transport.getRequests().get(0);
+        assertEquals("POST", request.getMethod());
+        assertEquals(webhook.getURL(), request.getURL());
+        assertEquals("DELETE", transport.getRequests().get(2).getMethod());
+        assertTrue(transport.getRequests().get(2).getURL().endsWith("/messages/" + handle.getId()));
+
+        transport.clear();
+        assertEquals(0, transport.getRequestCount());
+    }
+
+    @Test
+    public void simulatesNetworkErrors() {
+        transport.respondWith(request -> {
+            throw new UncheckedIOException(new IOException("connection reset"));
+        });
+        IOException ex = assertThrows(IOException.class, () -> webhook.execute("{\"content\":\"test\"}"));
+        assertEquals("connection reset", ex.getMessage());
+        assertEquals(1, transport.getRequestCount());
+    }
+
+}
@@ -0,0 +1,75 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JacksonPayloadTest {
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private DiscordWebhookBuilder message() {
+        DiscordWebhookBuilder builder = webhook.builder().withContent("Hello \"world\"").withUsername("bot");
+        builder.embed().setTitle("Title").addField("Name", "Value");
+        return builder;
+    }
+
+    @Test
+    public void writesSameBytesAsMapper() throws IOException {
+        DiscordWebhookBuilder builder = message();
+        JacksonPayload payload = new JacksonPayload(webhook, builder);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        payload.writeTo(out);
+
+        assertArrayEquals(client.getMapper().writeValueAsBytes(builder), out.toByteArray());
+        assertEquals(-1L, payload.getContentLength());
+    }
+
+    @Test
+    public void canBeWrittenRepeatedlyWithoutClosingStream() throws IOException {
+        JacksonPayload payload = new JacksonPayload(webhook, message());
+        ClosingAwareStream out = new ClosingAwareStream();
+        payload.writeTo(out);
+        int length = out.size();
+        payload.writeTo(out);
+
+        assertFalse(out.closed);
+        assertEquals(2 * length, out.size());
+    }
+
+    @Test
+    public void executeStreamsBuilder() throws IOException {
+        DiscordWebhookBuilder builder = message();
+        builder.execute();
+
+        assertEquals(builder.getJSON(), transport.getRequests().get(0).getBodyAsString());
+        assertEquals(JacksonPayload.CONTENT_TYPE, transport.getRequests().get(0).getContentType());
+    }
+
+
+
+    private static class ClosingAwareStream extends ByteArrayOutputStream {
+
+        private boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultipartPayloadTest implements DiscordConstants {
+
+    private static final byte[] JSON = "{\"content\":\"test\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final InMemoryWebhookTransport transport = new InMemoryWebhookTransport();
+    private final DiscordWebhookClient client = DiscordWebhookClient.builder()
+        .withTransport(transport)
+        .build();
+    private final DiscordWebhook webhook = client.webhook(1L, "token");
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void close() {
+        client.close();
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) i;
+        return data;
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private List<DiscordAttachment> attachments() throws IOException {
+        Path file = Files.write(directory.resolve("file.bin"), data(20_000));
+        ByteBuffer direct = ByteBuffer.allocateDirect(10_000).put(data(10_000)).flip();
+        return List.of(
+            DiscordAttachment.of("file.bin", file),
+            DiscordAttachment.of("heap.bin", ByteBuffer.wrap(data(100), 10, 50)),
+            DiscordAttachment.of("direct.bin", direct)
+        );
+    }
+
+    @Test
+    public void writesDeclaredLength() throws IOException {
+        MultipartPayload payload = new MultipartPayload(JSON, attachments());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        payload.writeTo(out);
+
+        assertEquals(payload.getContentLength(), out.size());
+        assertFalse(payload.isOneShot());
+    }
+
+    @Test
+    public void transfersToChannelsWithSameBytes() throws IOException {
+        MultipartPayload payload = new MultipartPayload(JSON, attachments());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ChannelStream channel = new ChannelStream();
+        payload.writeTo(stream);
+        payload.writeTo(channel);
+
+        assertEquals(payload.getContentLength(), channel.size());
+        // The boundary is the same, so both ways must produce the same body
+        assertArrayEquals(stream.toByteArray(), channel.toByteArray());
+    }
+
+    @Test
+    public void containsJsonAndFiles() throws IOException {
+        byte[] file = data(300);
+        MultipartPayload payload = new MultipartPayload(JSON, List.of(
+            DiscordAttachment.of("a\"b\r\n.txt", new ByteArrayInputStream(file), file.length)
+        ));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        payload.writeTo(out);
+        byte[] body = out.toByteArray();
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+
+        assertTrue(payload.isOneShot());
+        assertTrue(payload.getContentType().startsWith("multipart/form-data; boundary="));
+        assertTrue(text.contains("name=\"payload_json\""));
+        assertTrue(text.contains("name=\"files[0]\"; filename=\"a%22b.txt\""));
+        assertTrue(indexOf(body, JSON) > 0);
+        assertTrue(indexOf(body, file) > indexOf(body, JSON));
+    }
+
+    @Test
+    public void failsOnShortStream() {
+        MultipartPayload payload = new MultipartPayload(JSON, List.of(
+            DiscordAttachment.of("a.txt", new ByteArrayInputStream(data(10)), 20)
+        ));
+        assertThrows(IOException.class, () -> payload.writeTo(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void builderSendsMultipart() throws IOException {
+        Path file = Files.write(directory.resolve("report.txt"), "report".getBytes(StandardCharsets.UTF_8));
+        webhook.builder().withContent("test").withFile(file).execute();
+
+        InMemoryWebhookTransport.RecordedRequest request = transport.getRequests().get(0);
+        assertTrue(request.getContentType().startsWith("multipart/form-data"));
+        assertTrue(request.getBodyAsString().contains("filename=\"report.txt\""));
+        assertTrue(request.getBodyAsString().contains("report\r\n"));
+    }
+
+    @Test
+    public void builderEnforcesLimits() {
+        DiscordWebhookBuilder builder = webhook.builder();
+        for (int i = 0; i < LIMIT_FILES; i++) builder.withFile(i + ".txt", ByteBuffer.allocate(1));
+        assertThrows(IllegalArgumentException.class, () -> builder.withFile("more.txt", ByteBuffer.allocate(1)));
+        assertThrows(IllegalArgumentException.class, () -> webhook.builder().withFile("big.bin", new ByteArrayInputStream(new byte[0]), LIMIT_FILE_SIZE + 1L));
+    }
+
+
+
+    private static class ChannelStream extends ByteArrayOutputStream implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer src) {
+            // Partial writes, like a socket with a full send buffer
+            int length = Math.min(src.remaining(), 4096);
+            byte[] chunk = new byte[length];
+            src.get(chunk);
+            write(chunk, 0, length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+    }
+
+}
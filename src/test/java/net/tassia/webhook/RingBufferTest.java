@@ -0,0 +1,90 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferTest {
+
+    @Test
+    public void singleSlotHoldsOneElement() {
+        RingBuffer<String> buffer = new RingBuffer<>(1);
+        assertTrue(buffer.offer("a"));
+        assertFalse(buffer.offer("b"));
+        assertEquals(1, buffer.size());
+
+        assertEquals("a", buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.offer("c"));
+        assertFalse(buffer.offer("d"));
+        assertEquals("c", buffer.poll());
+    }
+
+    @Test
+    public void keepsOrderAcrossWrapAround() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        List<Integer> polled = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(i));
+            if (i % 3 == 2) {
+                assertFalse(buffer.offer(-1));
+                Integer element;
+                while ((element = buffer.poll()) != null) polled.add(element);
+            }
+        }
+        polled.add(buffer.poll());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), polled);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void losesNothingUnderContention() throws Exception {
+        RingBuffer<Integer> buffer = new RingBuffer<>(16);
+        int producers = 4;
+        int perProducer = 20_000;
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+        AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int offset = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(offset + i)) Thread.yield();
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                while (remaining.get() > 0) {
+                    Integer element = buffer.poll();
+                    if (element == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    received.add(element);
+                    remaining.decrementAndGet();
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join(10_000);
+
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < producers * perProducer; i++) expected.add(i);
+        assertEquals(expected, received);
+    }
+
+    @Test
+    public void rejectsInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+    }
+
+}
@@ -0,0 +1,80 @@
+package net.tassia.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextSplitterTest {
+
+    private static String lines(int count, String prefix) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append('\n');
+            text.append(prefix).append(i);
+        }
+        return text.toString();
+    }
+
+    private static long fences(String chunk) {
+        return chunk.lines().filter(line -> line.trim().startsWith("```")).count();
+    }
+
+    @Test
+    public void keepsShortText() {
+        assertEquals(List.of("short"), TextSplitter.split("short", 10));
+    }
+
+    @Test
+    public void cutsAtLineBreaks() {
+        String text = lines(100, "line ");
+        List<String> chunks = TextSplitter.split(text, 50);
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 50);
+            assertFalse(chunk.startsWith("\n"));
+        }
+        assertEquals(text, String.join("\n", chunks));
+    }
+
+    @Test
+    public void cutsAtWhitespaceThenInWords() {
+        List<String> words = TextSplitter.split("aaaa bbbb cccc", 7);
+        assertEquals(List.of("aaaa ", "bbbb ", "cccc"), words);
+
+        List<String> word = TextSplitter.split("abcdefghij", 4);
+        assertEquals(List.of("abcd", "efgh", "ij"), word);
+    }
+
+    @Test
+    public void neverSeparatesSurrogatePairs() {
+        String text = "ab\uD83D\uDE00\uD83D\uDE00\uD83D\uDE00";
+        for (String chunk : TextSplitter.split(text, 3)) {
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), chunk);
+            assertFalse(Character.isLowSurrogate(chunk.charAt(0)), chunk);
+        }
+    }
+
+    @Test
+    public void reopensCodeBlocks() {
+        String text = "Stack trace:\n```java\n" + lines(50, "    at Foo.bar") + "\n```\nDone.";
+        List<String> chunks = TextSplitter.split(text, 200);
+
+        assertTrue(chunks.size() > 2);
+        for (int i = 0; i < chunks.size(); i++) {
+            String chunk = chunks.get(i);
+            assertTrue(chunk.length() <= 200);
+            assertEquals(0, fences(chunk) % 2, chunk);
+            if (i > 0) assertTrue(chunk.startsWith("```java\n"), chunk);
+        }
+        assertTrue(chunks.get(chunks.size() - 1).endsWith("Done."));
+    }
+
+    @Test
+    public void rejectsTooSmallLimit() {
+        assertThrows(IllegalArgumentException.class, () -> TextSplitter.split("```\n" + lines(10, "x") + "\n```", 4));
+    }
+
+}
@@ -0,0 +1,99 @@
+package net.tassia.webhook;
+
+import net.tassia.webhook.stub.DiscordStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebhookTransportTest {
+
+    private final DiscordStubServer server;
+
+    public WebhookTransportTest() throws Exception {
+        this.server = DiscordStubServer.builder().withRateLimit(50, Duration.ofSeconds(1)).start();
+    }
+
+    @AfterEach
+    public void close() {
+        server.close();
+    }
+
+    private DiscordWebhookClient client(DiscordWebhookClient.TransportType type, String baseUrl) {
+        return DiscordWebhookClient.builder()
+            .withTransport(type)
+            .withBaseURL(baseUrl)
+            .withRetryPolicy(DiscordRetryPolicy.builder().withMaxAttempts(1).build())
+            .build();
+    }
+
+    @ParameterizedTest
+    @EnumSource(DiscordWebhookClient.TransportType.class)
+    public void sendsJson(DiscordWebhookClient.TransportType type) throws Exception {
+        try (DiscordWebhookClient client = client(type, server.getBaseURL())) {
+            DiscordWebhook webhook = client.webhook(1L, "token");
+            webhook.execute("{\"content\":\"sync\"}");
+            DiscordResponse response = webhook.executeAsync("{\"content\":\"async\"}").get(10, TimeUnit.SECONDS);
+
+            assertEquals(204, response.getCode());
+            assertEquals("50", response.getHeader("X-RateLimit-Limit"));
+            assertEquals("{\"content\":\"sync\"}", server.getRequests().get(0).getBodyAsString());
+            assertTrue(server.getRequests().get(1).getContentType().startsWith("application/json"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DiscordWebhookClient.TransportType.class)
+    public void sendsMultipart(DiscordWebhookClient.TransportType type) throws Exception {
+        try (DiscordWebhookClient client = client(type, server.getBaseURL())) {
+            byte[] file = "file content".getBytes(StandardCharsets.UTF_8);
+            client.webhook(1L, "token").builder()
+                .withContent("test")
+                .withFile("a.txt", new ByteArrayInputStream(file), file.length)
+                .execute();
+
+            assertEquals(1, server.getAcceptedCount());
+            assertTrue(server.getRequests().get(0).getBodyAsString().contains("file content"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DiscordWebhookClient.TransportType.class)
+    public void returnsCreatedMessage(DiscordWebhookClient.TransportType type) throws Exception {
+        try (DiscordWebhookClient client = client(type, server.getBaseURL())) {
+            DiscordMessageHandle handle = client.webhook(1L, "token").builder().withContent("test").executeAndWait();
+            assertNotNull(handle.getId());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DiscordWebhookClient.TransportType.class)
+    public void reportsRejectedRequests(DiscordWebhookClient.TransportType type) {
+        try (DiscordWebhookClient client = client(type, server.getBaseURL())) {
+            DiscordWebhookException ex = assertThrows(DiscordWebhookException.class, () -> client.webhook(1L, "token").execute("{}"));
+            assertEquals(400, ex.getResponse().getCode());
+            assertTrue(ex.getResponse().getBody().contains("50035"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(DiscordWebhookClient.TransportType.class)
+    public void failsWithoutServer(DiscordWebhookClient.TransportType type) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        try (DiscordWebhookClient client = client(type, "http://127.0.0.1:" + port + "/api")) {
+            assertThrows(IOException.class, () -> client.webhook(1L, "token").execute("{\"content\":\"test\"}"));
+        }
+    }
+
+}
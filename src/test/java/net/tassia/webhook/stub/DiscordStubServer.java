@@ -0,0 +1,650 @@
+package net.tassia.webhook.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.tassia.webhook.DiscordConstants;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process stand-in for Discord's webhook endpoints, for load and soak tests.
+ * <p>
+ * It serves <code>POST</code>, <code>PATCH</code> and <code>DELETE</code> on
+ * <code>/api/webhooks/{id}/{token}</code> (and <code>.../messages/{id}</code>), validates payloads against the
+ * limits in {@link DiscordConstants}, answers with realistic <code>X-RateLimit-*</code> headers and
+ * <code>429</code> responses, and can inject latency and <code>5xx</code> faults. Point a client at it with
+ * <code>DiscordWebhookClient.builder().withBaseURL(server.getBaseURL())</code>.
+ * </p>
+ */
+public class DiscordStubServer implements DiscordConstants, Closeable {
+
+    private static final Pattern PATH = Pattern.compile("/api/webhooks/([0-9]+)/([A-Za-z0-9_-]+)(?:/messages/([0-9]+))?/?");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final int rateLimit;
+    private final long rateLimitWindow;
+    private final int globalRateLimit;
+    private final long latency;
+    private final long latencyJitter;
+    private final double failureRate;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket global;
+    private final List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong messageIds = new AtomicLong(1000000000000000000L);
+    private final Set<String> deletedMessages = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong faults = new AtomicLong();
+    private final boolean recordRequests;
+    private final boolean validate;
+
+    private DiscordStubServer(Builder builder) throws IOException {
+        this.rateLimit = builder.rateLimit;
+        this.rateLimitWindow = builder.rateLimitWindow.toNanos();
+        this.globalRateLimit = builder.globalRateLimit;
+        this.latency = builder.latency.toNanos();
+        this.latencyJitter = builder.latencyJitter.toNanos();
+        this.failureRate = builder.failureRate;
+        this.recordRequests = builder.recordRequests;
+        this.validate = builder.validate;
+        this.global = new Bucket(globalRateLimit, TimeUnit.SECONDS.toNanos(1));
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 0);
+        this.executor = Executors.newFixedThreadPool(builder.threads, runnable -> {
+            Thread thread = new Thread(runnable, "DiscordStubServer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns a new builder that can be used to configure and start a server.
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the base URL to configure clients with, e.g. <code>http://127.0.0.1:43210/api</code>.
+     * @return the base URL
+     */
+    public String getBaseURL() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    /**
+     * Returns a webhook URL served by this server.
+     * @param id the webhook ID
+     * @param token the webhook token
+     * @return the URL
+     */
+    public String getWebhookURL(long id, String token) {
+        return getBaseURL() + "/webhooks/" + id + "/" + token;
+    }
+
+    /**
+     * Returns all recorded requests, if recording is enabled.
+     * @return a snapshot of the recorded requests
+     */
+    public List<Request> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    /**
+     * Returns the amount of requests answered with a <code>2xx</code> status code.
+     * @return the amount of accepted requests
+     */
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * Returns the amount of requests rejected with <code>400 Bad Request</code> or <code>404 Not Found</code>.
+     * @return the amount of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the amount of requests answered with <code>429 Too Many Requests</code>.
+     * @return the amount of rate limited requests
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    /**
+     * Returns the amount of injected <code>5xx</code> faults.
+     * @return the amount of faults
+     */
+    public long getFaultCount() {
+        return faults.get();
+    }
+
+    /**
+     * Stops the server immediately.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            String query = exchange.getRequestURI().getRawQuery();
+            if (recordRequests) {
+                requests.add(new Request(method, exchange.getRequestURI().getPath(), query,
+                    exchange.getRequestHeaders().getFirst("Content-Type"), body));
+            }
+
+            injectLatency();
+
+            if (method.equals("HEAD")) {
+                // Used by clients to warm up connections
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            Matcher matcher = PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.matches()) {
+                respond(exchange, 404, error("Unknown Webhook", 10015));
+                return;
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                faults.incrementAndGet();
+                respond(exchange, 502, null);
+                return;
+            }
+
+            if (globalRateLimit > 0) {
+                long wait = global.acquire(System.nanoTime());
+                if (wait > 0) {
+                    rateLimit(exchange, wait, true);
+                    return;
+                }
+            }
+            Bucket bucket = null;
+            if (rateLimit > 0) {
+                bucket = buckets.computeIfAbsent(matcher.group(1), key -> new Bucket(rateLimit, rateLimitWindow));
+                long wait = bucket.acquire(System.nanoTime());
+                if (wait > 0) {
+                    addRateLimitHeaders(exchange, bucket, matcher.group(1));
+                    rateLimit(exchange, wait, false);
+                    return;
+                }
+                addRateLimitHeaders(exchange, bucket, matcher.group(1));
+            }
+
+            String messageId = matcher.group(3);
+            switch (method) {
+                case "POST":
+                    if (messageId != null) {
+                        respond(exchange, 405, error("405: Method Not Allowed", 0));
+                        return;
+                    }
+                    execute(exchange, body, query != null && query.contains("wait=true"));
+                    break;
+                case "PATCH":
+                    if (messageId != null && deletedMessages.contains(messageId)) {
+                        respond(exchange, 404, error("Unknown Message", 10008));
+                        return;
+                    }
+                    patch(exchange, body, messageId);
+                    break;
+                case "DELETE":
+                    if (messageId != null && !deletedMessages.add(messageId)) {
+                        respond(exchange, 404, error("Unknown Message", 10008));
+                        return;
+                    }
+                    accepted.incrementAndGet();
+                    respond(exchange, 204, null);
+                    break;
+                case "GET":
+                    accepted.incrementAndGet();
+                    respond(exchange, 200, mapper.createObjectNode().put("id", matcher.group(1)));
+                    break;
+                default:
+                    respond(exchange, 405, error("405: Method Not Allowed", 0));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void execute(HttpExchange exchange, byte[] body, boolean wait) throws IOException {
+        if (!validate && !wait) {
+            accepted.incrementAndGet();
+            respond(exchange, 204, null);
+            return;
+        }
+        JsonNode payload = parsePayload(exchange, body);
+        String problem = payload == null ? "Cannot send an empty message" : validate(payload, hasFiles(exchange, body));
+        if (problem != null) {
+            rejected.incrementAndGet();
+            respond(exchange, 400, error(problem, 50035));
+            return;
+        }
+        accepted.incrementAndGet();
+        if (wait) {
+            respond(exchange, 200, message(payload));
+        } else {
+            respond(exchange, 204, null);
+        }
+    }
+
+    private void patch(HttpExchange exchange, byte[] body, String messageId) throws IOException {
+        JsonNode payload = parsePayload(exchange, body);
+        if (payload == null) {
+            rejected.incrementAndGet();
+            respond(exchange, 400, error("Invalid Form Body", 50035));
+            return;
+        }
+        if (messageId != null) {
+            String problem = validate(payload, hasFiles(exchange, body));
+            if (problem != null) {
+                rejected.incrementAndGet();
+                respond(exchange, 400, error(problem, 50035));
+                return;
+            }
+            ObjectNode message = message(payload);
+            message.put("id", messageId);
+            accepted.incrementAndGet();
+            respond(exchange, 200, message);
+        } else {
+            accepted.incrementAndGet();
+            respond(exchange, 200, payload);
+        }
+    }
+
+    private JsonNode parsePayload(HttpExchange exchange, byte[] body) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        try {
+            if (contentType != null && contentType.startsWith("multipart/form-data")) {
+                String json = payloadJson(new String(body, StandardCharsets.ISO_8859_1), contentType);
+                if (json == null) return null;
+                return mapper.readTree(json.getBytes(StandardCharsets.ISO_8859_1));
+            }
+            if (body.length == 0) return null;
+            return mapper.readTree(body);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static String payloadJson(String body, String contentType) {
+        int index = contentType.indexOf("boundary=");
+        if (index < 0) return null;
+        String boundary = "--" + contentType.substring(index + 9).replace("\"", "");
+        for (String part : body.split(Pattern.quote(boundary))) {
+            int headerEnd = part.indexOf("\r\n\r\n");
+            if (headerEnd < 0 || !part.substring(0, headerEnd).contains("name=\"payload_json\"")) continue;
+            String content = part.substring(headerEnd + 4);
+            return content.endsWith("\r\n") ? content.substring(0, content.length() - 2) : content;
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether a multipart request has at least one <code>files[n]</code> part.
+     */
+    private static boolean hasFiles(HttpExchange exchange, byte[] body) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.startsWith("multipart/form-data")) return false;
+        int index = contentType.indexOf("boundary=");
+        if (index < 0) return false;
+        String boundary = "--" + contentType.substring(index + 9).replace("\"", "");
+        for (String part : new String(body, StandardCharsets.ISO_8859_1).split(Pattern.quote(boundary))) {
+            int headerEnd = part.indexOf("\r\n\r\n");
+            if (headerEnd >= 0 && part.substring(0, headerEnd).contains("name=\"files[")) return true;
+        }
+        return false;
+    }
+
+    private static String validate(JsonNode payload, boolean hasFiles) {
+        String content = payload.path("content").asText("");
+        JsonNode embeds = payload.path("embeds");
+        // Like Discord, a message consisting only of files is not empty
+        if (content.isEmpty() && embeds.size() == 0 && !payload.has("attachments") && !hasFiles) {
+            return "Cannot send an empty message";
+        }
+        if (content.length() > LIMIT_CONTENT) return "content: Must be " + LIMIT_CONTENT + " or fewer in length.";
+        if (embeds.size() > LIMIT_EMBEDS) return "embeds: Must be " + LIMIT_EMBEDS + " or fewer in length.";
+
+        int total = 0;
+        for (JsonNode embed : embeds) {
+            String title = embed.path("title").asText("");
+            String description = embed.path("description").asText("");
+            String footer = embed.path("footer").path("text").asText("");
+            String author = embed.path("author").path("name").asText("");
+            if (title.length() > LIMIT_EMBED_TITLE) return "embeds.title: Must be " + LIMIT_EMBED_TITLE + " or fewer in length.";
+            if (description.length() > LIMIT_EMBED_DESCRIPTION) return "embeds.description: Must be " + LIMIT_EMBED_DESCRIPTION + " or fewer in length.";
+            if (footer.length() > LIMIT_FOOTER) return "embeds.footer.text: Must be " + LIMIT_FOOTER + " or fewer in length.";
+            if (author.length() > LIMIT_AUTHOR) return "embeds.author.name: Must be " + LIMIT_AUTHOR + " or fewer in length.";
+            total += title.length() + description.length() + footer.length() + author.length();
+
+            JsonNode fields = embed.path("fields");
+            if (fields.size() > LIMIT_EMBED_FIELDS) return "embeds.fields: Must be " + LIMIT_EMBED_FIELDS + " or fewer in length.";
+            for (JsonNode field : fields) {
+                String name = field.path("name").asText("");
+                String value = field.path("value").asText("");
+                if (name.isEmpty() || value.isEmpty()) return "embeds.fields: This field is required";
+                if (name.length() > LIMIT_FIELD_NAME) return "embeds.fields.name: Must be " + LIMIT_FIELD_NAME + " or fewer in length.";
+                if (value.length() > LIMIT_FIELD_VALUE) return "embeds.fields.value: Must be " + LIMIT_FIELD_VALUE + " or fewer in length.";
+                total += name.length() + value.length();
+            }
+        }
+        if (total > LIMIT_TOTAL) return "embeds: Embed size exceeds maximum size of " + LIMIT_TOTAL;
+        return null;
+    }
+
+    private ObjectNode message(JsonNode payload) {
+        ObjectNode message = mapper.createObjectNode();
+        message.put("id", Long.toString(messageIds.incrementAndGet()));
+        message.put("type", 0);
+        message.set("content", payload.path("content").isMissingNode() ? mapper.getNodeFactory().textNode("") : payload.get("content"));
+        message.set("embeds", payload.path("embeds").isMissingNode() ? mapper.createArrayNode() : payload.get("embeds"));
+        message.put("tts", payload.path("tts").asBoolean(false));
+        return message;
+    }
+
+    private ObjectNode error(String message, int code) {
+        return mapper.createObjectNode().put("message", message).put("code", code);
+    }
+
+    private void rateLimit(HttpExchange exchange, long waitNanos, boolean isGlobal) throws IOException {
+        rateLimited.incrementAndGet();
+        double retryAfter = waitNanos / 1e9;
+        exchange.getResponseHeaders().set("Retry-After", Long.toString((long) Math.ceil(retryAfter)));
+        if (isGlobal) {
+            exchange.getResponseHeaders().set("X-RateLimit-Global", "true");
+            exchange.getResponseHeaders().set("X-RateLimit-Scope", "global");
+        } else {
+            exchange.getResponseHeaders().set("X-RateLimit-Scope", "user");
+        }
+        ObjectNode body = mapper.createObjectNode()
+            .put("message", "You are being rate limited.")
+            .put("retry_after", retryAfter)
+            .put("global", isGlobal);
+        respond(exchange, 429, body);
+    }
+
+    private static void addRateLimitHeaders(HttpExchange exchange, Bucket bucket, String id) {
+        long now = System.nanoTime();
+        double resetAfter = Math.max(0L, bucket.resetAt(now) - now) / 1e9;
+        exchange.getResponseHeaders().set("X-RateLimit-Bucket", Integer.toHexString(id.hashCode()));
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", Integer.toString(bucket.limit));
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", Integer.toString(bucket.remaining(now)));
+        exchange.getResponseHeaders().set("X-RateLimit-Reset-After", String.format(Locale.ROOT, "%.3f", resetAfter));
+        exchange.getResponseHeaders().set("X-RateLimit-Reset", String.format(Locale.ROOT, "%.3f", System.currentTimeMillis() / 1000.0 + resetAfter));
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void injectLatency() {
+        long delay = latency;
+        if (latencyJitter > 0) delay += ThreadLocalRandom.current().nextLong(latencyJitter);
+        if (delay <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+
+    /**
+     * Represents a request received by the server.
+     */
+    public static class Request {
+
+        private final String method;
+        private final String path;
+        private final String query;
+        private final String contentType;
+        private final byte[] body;
+
+        private Request(String method, String path, String query, String contentType, byte[] body) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body.clone();
+        }
+
+        public String getBodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+    }
+
+
+
+    private static class Bucket {
+
+        private final int limit;
+        private final long window;
+        private int used = 0;
+        private long resetAt;
+
+        private Bucket(int limit, long window) {
+            this.limit = limit;
+            this.window = window;
+            this.resetAt = System.nanoTime();
+        }
+
+        synchronized long acquire(long now) {
+            roll(now);
+            if (used >= limit) return resetAt - now;
+            used++;
+            return 0L;
+        }
+
+        synchronized int remaining(long now) {
+            roll(now);
+            return limit - used;
+        }
+
+        synchronized long resetAt(long now) {
+            roll(now);
+            return resetAt;
+        }
+
+        private void roll(long now) {
+            if (now - resetAt >= 0) {
+                used = 0;
+                resetAt = now + window;
+            }
+        }
+
+    }
+
+
+
+    /**
+     * This class is responsible for configuring and starting a {@link DiscordStubServer}.
+     */
+    public static class Builder {
+
+        private int port = 0;
+        private int threads = 8;
+        private int rateLimit = 5;
+        private Duration rateLimitWindow = Duration.ofSeconds(2);
+        private int globalRateLimit = 0;
+        private Duration latency = Duration.ZERO;
+        private Duration latencyJitter = Duration.ZERO;
+        private double failureRate = 0.0;
+        private boolean recordRequests = true;
+        private boolean validate = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the port to listen on. Defaults to a random free port.
+         * @param port the port
+         * @return <code>this</code>
+         */
+        public Builder withPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets the amount of threads handling requests.
+         * @param threads the amount of threads
+         * @return <code>this</code>
+         */
+        public Builder withThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the per-webhook rate limit. Defaults to Discord's 5 requests per 2 seconds.
+         * @param limit the amount of requests per window, or 0 to disable rate limiting
+         * @param window the window
+         * @return <code>this</code>
+         */
+        public Builder withRateLimit(int limit, Duration window) {
+            this.rateLimit = limit;
+            this.rateLimitWindow = window;
+            return this;
+        }
+
+        /**
+         * Sets the global rate limit, across all webhooks. Disabled by default.
+         * @param limit the amount of requests per second, or 0 to disable the global rate limit
+         * @return <code>this</code>
+         */
+        public Builder withGlobalRateLimit(int limit) {
+            this.globalRateLimit = limit;
+            return this;
+        }
+
+        /**
+         * Delays every response.
+         * @param latency the fixed delay
+         * @param jitter the maximum random delay added on top
+         * @return <code>this</code>
+         */
+        public Builder withLatency(Duration latency, Duration jitter) {
+            this.latency = latency;
+            this.latencyJitter = jitter;
+            return this;
+        }
+
+        /**
+         * Answers the given fraction of requests with <code>502 Bad Gateway</code>.
+         * @param failureRate the fraction, between 0 and 1
+         * @return <code>this</code>
+         */
+        public Builder withFailureRate(double failureRate) {
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        /**
+         * Sets whether requests are recorded for {@link DiscordStubServer#getRequests()}.
+         * Disable this for soak tests to keep memory usage flat.
+         * @param recordRequests record requests
+         * @return <code>this</code>
+         */
+        public Builder withRecordRequests(boolean recordRequests) {
+            this.recordRequests = recordRequests;
+            return this;
+        }
+
+        /**
+         * Sets whether executed payloads are parsed and validated against the limits in {@link DiscordConstants}.
+         * Disable this for benchmarks to keep the server's own overhead out of the measurement.
+         * @param validate validate payloads
+         * @return <code>this</code>
+         */
+        public Builder withValidation(boolean validate) {
+            this.validate = validate;
+            return this;
+        }
+
+        /**
+         * Starts the server.
+         * @return the server
+         * @throws IOException if the server cannot be started
+         */
+        public DiscordStubServer start() throws IOException {
+            return new DiscordStubServer(this);
+        }
+
+    }
+
+}
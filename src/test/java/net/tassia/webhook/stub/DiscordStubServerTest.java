@@ -0,0 +1,124 @@
+package net.tassia.webhook.stub;
+
+import net.tassia.webhook.DiscordConstants;
+import net.tassia.webhook.DiscordWebhookClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscordStubServerTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private DiscordStubServer server;
+
+    @AfterEach
+    public void close() {
+        if (server != null) server.close();
+    }
+
+    private HttpResponse<String> post(String url, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void acceptsValidMessages() throws Exception {
+        server = DiscordStubServer.builder().start();
+        HttpResponse<String> response = post(server.getWebhookURL(1L, "token"), "{\"content\":\"test\"}");
+
+        assertEquals(204, response.statusCode());
+        assertEquals(1, server.getAcceptedCount());
+        assertEquals("{\"content\":\"test\"}", server.getRequests().get(0).getBodyAsString());
+    }
+
+    @Test
+    public void rejectsInvalidMessages() throws Exception {
+        server = DiscordStubServer.builder().start();
+        HttpResponse<String> empty = post(server.getWebhookURL(1L, "token"), "{}");
+        HttpResponse<String> tooLong = post(server.getWebhookURL(1L, "token"), "{\"content\":\"" + "x".repeat(DiscordConstants.LIMIT_CONTENT + 1) + "\"}");
+
+        assertEquals(400, empty.statusCode());
+        assertTrue(empty.body().contains("50035"));
+        assertEquals(400, tooLong.statusCode());
+        assertEquals(2, server.getRejectedCount());
+    }
+
+    @Test
+    public void acceptsFileOnlyMessages() throws Exception {
+        server = DiscordStubServer.builder().start();
+        try (DiscordWebhookClient client = DiscordWebhookClient.builder().withBaseURL(server.getBaseURL()).build()) {
+            client.webhook(1L, "token").builder()
+                .withFile("report.txt", ByteBuffer.wrap("report".getBytes(StandardCharsets.UTF_8)))
+                .execute();
+        }
+        assertEquals(1, server.getAcceptedCount());
+
+        String boundary = "boundary";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.getWebhookURL(1L, "token")))
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofString("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"payload_json\"\r\n\r\n{}\r\n--" + boundary + "--\r\n"))
+            .build();
+        assertEquals(400, http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    public void answersUnknownWebhooks() throws Exception {
+        server = DiscordStubServer.builder().start();
+        HttpResponse<String> response = post(server.getBaseURL() + "/webhooks/abc", "{\"content\":\"test\"}");
+
+        assertEquals(404, response.statusCode());
+        assertTrue(response.body().contains("10015"));
+    }
+
+    @Test
+    public void returnsMessageOnWait() throws Exception {
+        server = DiscordStubServer.builder().start();
+        HttpResponse<String> response = post(server.getWebhookURL(1L, "token") + "?wait=true", "{\"content\":\"test\"}");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"id\""));
+        assertTrue(response.body().contains("\"content\":\"test\""));
+    }
+
+    @Test
+    public void rateLimitsPerWebhook() throws Exception {
+        server = DiscordStubServer.builder().withRateLimit(2, Duration.ofSeconds(10)).start();
+        String url = server.getWebhookURL(1L, "token");
+        HttpResponse<String> first = post(url, "{\"content\":\"1\"}");
+        post(url, "{\"content\":\"2\"}");
+        HttpResponse<String> limited = post(url, "{\"content\":\"3\"}");
+        HttpResponse<String> other = post(server.getWebhookURL(2L, "token"), "{\"content\":\"4\"}");
+
+        assertEquals("2", first.headers().firstValue("X-RateLimit-Limit").orElse(null));
+        assertEquals("1", first.headers().firstValue("X-RateLimit-Remaining").orElse(null));
+        assertEquals(429, limited.statusCode());
+        assertTrue(limited.body().contains("retry_after"));
+        assertEquals("user", limited.headers().firstValue("X-RateLimit-Scope").orElse(null));
+        assertEquals(204, other.statusCode());
+        assertEquals(1, server.getRateLimitedCount());
+    }
+
+    @Test
+    public void injectsFaults() throws Exception {
+        server = DiscordStubServer.builder().withFailureRate(1.0).start();
+        HttpResponse<String> response = post(server.getWebhookURL(1L, "token"), "{\"content\":\"test\"}");
+
+        assertEquals(502, response.statusCode());
+        assertEquals(1, server.getFaultCount());
+    }
+
+}